@@ -0,0 +1,34 @@
+package searchengine.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+final class Corpus {
+
+    private Corpus() {
+    }
+
+    static String load(String language) {
+        String resource = "/corpus/" + language + ".txt";
+        try (InputStream in = Corpus.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException("Корпус не найден: " + resource);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Текст «страницы» заданного размера, склеенный из корпуса. */
+    static String page(String language, int minLength) {
+        String text = load(language);
+        StringBuilder sb = new StringBuilder(minLength + text.length());
+        while (sb.length() < minLength) {
+            sb.append(text).append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,55 @@
+package searchengine.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import searchengine.config.MorphologySettings;
+import searchengine.service.MorphologyServiceImpl;
+import searchengine.utils.TermFrequencyMap;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MorphologyBenchmark {
+
+    @Param({"ru", "en"})
+    public String language;
+
+    @Param({"5000", "100000"})
+    public int pageLength;
+
+    private MorphologyServiceImpl morphologyService;
+    private String text;
+
+    @Setup
+    public void setUp() {
+        morphologyService = new MorphologyServiceImpl(new MorphologySettings());
+        text = Corpus.page(language, pageLength);
+    }
+
+    @Benchmark
+    public List<String> lemmatize() {
+        return morphologyService.lemmatize(text);
+    }
+
+    @Benchmark
+    public TermFrequencyMap countLemmas() {
+        TermFrequencyMap freq = new TermFrequencyMap(Math.max(16, text.length() / 64));
+        morphologyService.countLemmas(text, freq);
+        return freq;
+    }
+}
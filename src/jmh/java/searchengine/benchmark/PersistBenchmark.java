@@ -0,0 +1,272 @@
+package searchengine.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import searchengine.config.CrawlerSettings;
+import searchengine.config.IndexerSettings;
+import searchengine.config.MorphologySettings;
+import searchengine.config.SearchSettings;
+import searchengine.crawler.HostScheduler;
+import searchengine.model.LemmaEntity;
+import searchengine.model.SiteEntity;
+import searchengine.repository.IndexBatchRepository;
+import searchengine.repository.IndexRepository;
+import searchengine.repository.LemmaRepository;
+import searchengine.repository.PageBodyRepository;
+import searchengine.repository.PageRepository;
+import searchengine.repository.SiteRepository;
+import searchengine.search.CorpusStatistics;
+import searchengine.search.InMemoryIndex;
+import searchengine.search.IndexVersion;
+import searchengine.service.MorphologyServiceImpl;
+import searchengine.utils.LemmaIdCache;
+import searchengine.utils.PageIndexingUtils;
+import searchengine.utils.PageTerms;
+import searchengine.utils.PageWrite;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Запись пачки страниц (persist-batch-size = 16) через PageIndexingUtils.savePages: многострочные
+ * запросы IndexBatchRepository против прежней записи по лемме через JPA (batch-writes = false).
+ * MySQL в окружении бенчмарка нет: репозитории и JdbcTemplate — заглушки, которые считают
+ * запросы и на каждый ждут {@code rttMicros} (время ответа базы). rttMicros = 0 измеряет только
+ * код записи; результат в операциях в секунду — это страницы в секунду.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistBenchmark {
+
+    private static final int PAGES_PER_BATCH = 16;
+
+    @Param({"true", "false"})
+    public boolean batchWrites;
+
+    @Param({"0", "100", "300"})
+    public int rttMicros;
+
+    private final SiteEntity site = new SiteEntity();
+    private PageIndexingUtils utils;
+    private List<String> texts;
+    private List<PageTerms> terms;
+    private long statements;
+    private long pages;
+    private int nextPath;
+
+    @Setup
+    public void setUp() {
+        // без Spring логирование не настроено, а savePage пишет INFO на каждую страницу
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME))
+                .setLevel(ch.qos.logback.classic.Level.WARN);
+        site.setId(1);
+        site.setUrl("https://bench.ru");
+        IndexerSettings indexerSettings = new IndexerSettings();
+        indexerSettings.setBatchWrites(batchWrites);
+        SearchSettings searchSettings = new SearchSettings();
+        JdbcTemplate jdbc = new CountingJdbcTemplate();
+        MorphologyServiceImpl morphology = new MorphologyServiceImpl(new MorphologySettings());
+
+        utils = new PageIndexingUtils(repository(PageRepository.class), new PageBodyRepository(jdbc, indexerSettings),
+                repository(LemmaRepository.class), repository(IndexRepository.class),
+                repository(SiteRepository.class), morphology, new HostScheduler(new CrawlerSettings()),
+                new CrawlerSettings(), indexerSettings, new IndexBatchRepository(jdbc, indexerSettings),
+                new LemmaIdCache(jdbc, indexerSettings), new InMemoryIndex(jdbc, searchSettings), new IndexVersion(),
+                new CorpusStatistics(jdbc, searchSettings), new CountingTransactionTemplate());
+
+        // страницы — окна корпуса с разным сдвигом, по ~500 слов
+        String[] words = Corpus.page("ru", 40_000).split("\\s+");
+        texts = new ArrayList<>();
+        terms = new ArrayList<>();
+        for (int i = 0; i < PAGES_PER_BATCH * 4; i++) {
+            StringBuilder sb = new StringBuilder();
+            for (int w = 0; w < 500; w++) {
+                sb.append(words[(i * 173 + w) % words.length]).append(' ');
+            }
+            texts.add(sb.toString());
+            terms.add(utils.analyze(sb.toString()));
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void resetCounters() {
+        statements = 0;
+        pages = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportStatements() {
+        if (pages > 0) {
+            System.out.printf("%n[batchWrites=%s] запросов к базе на страницу: %.1f%n",
+                    batchWrites, (double) statements / pages);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAGES_PER_BATCH)
+    public Object savePages() {
+        List<PageWrite> writes = new ArrayList<>(PAGES_PER_BATCH);
+        for (int i = 0; i < PAGES_PER_BATCH; i++) {
+            int n = nextPath++;
+            int sample = n % texts.size();
+            writes.add(PageWrite.page("/p" + n, texts.get(sample), null, null, null, terms.get(sample)));
+        }
+        pages += PAGES_PER_BATCH;
+        return utils.savePages(site, writes);
+    }
+
+    private void roundTrip() {
+        statements++;
+        if (rttMicros > 0) {
+            long until = System.nanoTime() + rttMicros * 1_000L;
+            while (System.nanoTime() < until) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    /** Репозиторий Spring Data, где каждый вызов — один запрос; save выдаёт сущности id. */
+    @SuppressWarnings("unchecked")
+    private <T> T repository(Class<T> type) {
+        Map<Class<?>, Integer> ids = new HashMap<>();
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return method.invoke(this, args);
+            }
+            if (method.getName().equals("getReferenceById")) {
+                LemmaEntity lemma = new LemmaEntity();
+                lemma.setId((Integer) args[0]);
+                return lemma;
+            }
+            roundTrip();
+            if (method.getName().equals("save")) {
+                Object entity = args[0];
+                int id = ids.merge(entity.getClass(), 1, Integer::sum);
+                Method setId = entity.getClass().getMethod("setId", Integer.class);
+                setId.invoke(entity, id);
+                return entity;
+            }
+            return empty(method.getReturnType());
+        });
+    }
+
+    private static Object empty(Class<?> type) {
+        if (type == Optional.class) {
+            return Optional.empty();
+        }
+        if (type == List.class) {
+            return List.of();
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == double.class) {
+            return 0.0;
+        }
+        if (type == boolean.class) {
+            return false;
+        }
+        return null;
+    }
+
+    /** JdbcTemplate без базы: id лемм выдаются при первом upsert и возвращаются запросом по IN. */
+    private final class CountingJdbcTemplate extends JdbcTemplate {
+        private final Map<String, Integer> lemmaIds = new HashMap<>();
+
+        @Override
+        public int update(String sql, Object... args) {
+            roundTrip();
+            if (sql.startsWith("INSERT INTO lemma")) {
+                for (int i = 1; i < args.length; i += 5) {
+                    lemmaIds.computeIfAbsent((String) args[i], k -> lemmaIds.size() + 1);
+                }
+            }
+            return 1;
+        }
+
+        @Override
+        public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+            roundTrip();
+            return new int[batchArgs.size()];
+        }
+
+        @Override
+        public void query(String sql, RowCallbackHandler handler, Object... args) {
+            roundTrip();
+            if (!sql.startsWith("SELECT id, lemma FROM lemma")) {
+                return;
+            }
+            try {
+                for (int i = 1; i < args.length; i++) {
+                    Integer id = lemmaIds.get((String) args[i]);
+                    if (id != null) {
+                        handler.processRow(row(id, (String) args[i]));
+                    }
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public <T> List<T> queryForList(String sql, Class<T> elementType, Object... args) {
+            roundTrip();
+            return List.of();
+        }
+    }
+
+    /** Начало и фиксация транзакции — ещё один обмен с базой. */
+    private final class CountingTransactionTemplate extends TransactionTemplate {
+        @Override
+        public void executeWithoutResult(Consumer<TransactionStatus> action) {
+            action.accept(null);
+            roundTrip();
+        }
+
+        @Override
+        public <T> T execute(TransactionCallback<T> action) {
+            T result = action.doInTransaction(null);
+            roundTrip();
+            return result;
+        }
+    }
+
+    private static ResultSet row(int id, String lemma) {
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> method.getName().equals("getInt") ? id : lemma);
+    }
+}
@@ -0,0 +1,125 @@
+package searchengine.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import searchengine.config.SearchSettings;
+import searchengine.search.Bm25;
+import searchengine.search.InMemoryIndex;
+import searchengine.search.PageScoreAccumulator;
+import searchengine.search.TopKCollector;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнивает полную сортировку кандидатов (как было в SearchServiceImpl) с отбором top-K кучей
+ * и измеряет подсчёт оценок по индексу в памяти моделями tf-idf и BM25.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RankingBenchmark {
+
+    private static final List<String> QUERY = List.of("common", "medium", "rare");
+
+    @Param({"10000", "200000"})
+    public int candidates;
+
+    @Param({"10"})
+    public int limit;
+
+    private int[] pageIds;
+    private float[] scores;
+    private InMemoryIndex index;
+    private float[] weights;
+    private Bm25 bm25;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        pageIds = new int[candidates];
+        scores = new float[candidates];
+        for (int i = 0; i < candidates; i++) {
+            pageIds[i] = i + 1;
+            scores[i] = (float) random.nextDouble(100.0);
+        }
+
+        SearchSettings settings = new SearchSettings();
+        settings.setEngine(SearchSettings.Engine.MEMORY);
+        index = new InMemoryIndex(null, settings);
+        for (int pageId = 1; pageId <= candidates; pageId++) {
+            Map<String, Integer> freq = new HashMap<>();
+            freq.put("common", 1 + random.nextInt(20));
+            if (random.nextInt(10) == 0) freq.put("medium", 1 + random.nextInt(5));
+            if (random.nextInt(1000) == 0) freq.put("rare", 1 + random.nextInt(3));
+            index.putPage(pageId, 1 + pageId % 4, freq, Map.of());
+        }
+        weights = new float[]{0.01f, 2.3f, 6.9f};
+        // «common» в среднем 10.5 раза на странице, «medium» на каждой десятой по 3
+        bm25 = new Bm25(1.2, 0.75, 10.8);
+    }
+
+    @Benchmark
+    public List<PageScore> fullSort() {
+        List<PageScore> all = new ArrayList<>(candidates);
+        for (int i = 0; i < candidates; i++) {
+            all.add(new PageScore(pageIds[i], scores[i]));
+        }
+        all.sort((a, b) -> Float.compare(b.score, a.score));
+        return new ArrayList<>(all.subList(0, Math.min(limit, all.size())));
+    }
+
+    @Benchmark
+    public TopKCollector topKHeap() {
+        TopKCollector top = new TopKCollector(limit);
+        for (int i = 0; i < candidates; i++) {
+            top.offer(pageIds[i], scores[i]);
+        }
+        top.pageId(0);
+        return top;
+    }
+
+    @Benchmark
+    public TopKCollector inMemoryScoreTopK() {
+        PageScoreAccumulator acc = index.score(QUERY, weights, null, null);
+        TopKCollector top = new TopKCollector(limit);
+        acc.forEach(top::offer);
+        top.pageId(0);
+        return top;
+    }
+
+    @Benchmark
+    public TopKCollector inMemoryScoreTopKBm25() {
+        PageScoreAccumulator acc = index.score(QUERY, weights, null, bm25);
+        TopKCollector top = new TopKCollector(limit);
+        acc.forEach(top::offer);
+        top.pageId(0);
+        return top;
+    }
+
+    public static final class PageScore {
+        final int pageId;
+        final float score;
+
+        PageScore(int pageId, float score) {
+            this.pageId = pageId;
+            this.score = score;
+        }
+    }
+}
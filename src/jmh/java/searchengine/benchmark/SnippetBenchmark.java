@@ -0,0 +1,101 @@
+package searchengine.benchmark;
+
+import org.jsoup.Jsoup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import searchengine.config.MorphologySettings;
+import searchengine.service.MorphologyService;
+import searchengine.service.MorphologyServiceImpl;
+import searchengine.service.SnippetService;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Сниппет по совпадениям лемм (SnippetService) против прежнего пути: Jsoup.parse текста,
+ * поиск подстрок и регулярное выражение на каждое слово ({@link #legacySnippet}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SnippetBenchmark {
+
+    private static final int WINDOW = 60;
+    private static final int MAX_SNIPPET_LENGTH = 300;
+
+    @Param({"ru", "en"})
+    public String language;
+
+    private SnippetService snippetService;
+    private String content;
+    private List<String> queryWords;
+    private List<String> queryLemmas;
+
+    @Setup
+    public void setUp() {
+        MorphologyService morphologyService = new MorphologyServiceImpl(new MorphologySettings());
+        snippetService = new SnippetService(morphologyService);
+        content = Corpus.page(language, 20_000);
+        queryWords = "ru".equals(language)
+                ? List.of("ремонт", "дороги", "каналах")
+                : List.of("ranking", "posting", "snippets");
+        // как SearchServiceImpl.extractLemmas
+        queryLemmas = morphologyService.lemmatize(String.join(" ", queryWords)).stream()
+                .map(String::toLowerCase)
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public String lemmaSnippet() {
+        return snippetService.generateSnippet(content, queryLemmas);
+    }
+
+    @Benchmark
+    public String legacySnippet() {
+        String text = Jsoup.parse(content).text().replaceAll("\\s+", " ").trim();
+        String lower = text.toLowerCase(Locale.ROOT);
+        StringBuilder snippet = new StringBuilder();
+        int segments = 0;
+        for (String word : queryWords) {
+            String w = word.toLowerCase(Locale.ROOT);
+            int idx = lower.indexOf(w);
+            if (idx < 0) {
+                continue;
+            }
+            int start = Math.max(0, idx - WINDOW);
+            int end = Math.min(text.length(), idx + w.length() + WINDOW);
+            Matcher m = Pattern.compile("\\b" + Pattern.quote(w) + "\\b",
+                    Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE).matcher(text.substring(start, end));
+            StringBuffer sb = new StringBuffer();
+            while (m.find()) {
+                m.appendReplacement(sb, "<b>" + Matcher.quoteReplacement(m.group()) + "</b>");
+            }
+            m.appendTail(sb);
+            if (segments++ > 0) {
+                snippet.append(" ... ");
+            }
+            snippet.append(sb);
+            if (segments >= 2) {
+                break;
+            }
+        }
+        return snippet.length() > MAX_SNIPPET_LENGTH ? snippet.substring(0, MAX_SNIPPET_LENGTH) : snippet.toString();
+    }
+}
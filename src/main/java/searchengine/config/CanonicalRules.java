@@ -0,0 +1,32 @@
+package searchengine.config;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Правила приведения URL к каноническому виду. Общие правила задаются в
+ * {@code crawler-settings.canonical}, для отдельного сайта их можно заменить в
+ * {@code indexing-settings.sites[].canonical}.
+ */
+@Data
+public class CanonicalRules {
+    private boolean stripWww = true;
+    private boolean removeDefaultPort = true;
+    private TrailingSlash trailingSlash = TrailingSlash.STRIP;
+    // последний сегмент пути, равный одному из этих имён, отбрасывается: /a/index.html -> /a/
+    private List<String> indexFiles = new ArrayList<>(List.of("index.html", "index.htm", "index.php"));
+    // если список не пуст, остаются только эти параметры запроса
+    private List<String> allowParams = new ArrayList<>();
+    // параметры, которые всегда удаляются; "utm_*" — по префиксу
+    private List<String> denyParams = new ArrayList<>(List.of(
+            "utm_*", "fbclid", "gclid", "yclid", "_openstat", "sid", "sessionid", "phpsessid", "jsessionid"));
+    private boolean sortParams = true;
+    // страница с <link rel="canonical"> на другой URL сайта сохраняется ссылкой на него
+    private boolean relCanonical = true;
+
+    public enum TrailingSlash {
+        STRIP, KEEP, ADD
+    }
+}
@@ -0,0 +1,118 @@
+package searchengine.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "crawler-settings")
+public class CrawlerSettings {
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    // сколько сайтов индексируется одновременно; у каждого свой конвейер и свои потоки стадий
+    private int siteParallelism = 4;
+    // повторный обход: условный GET и пропуск переиндексации неизменившихся страниц
+    private boolean incremental = true;
+    private Politeness politeness = new Politeness();
+    private Fetch fetch = new Fetch();
+    private Pipeline pipeline = new Pipeline();
+    private Checkpoint checkpoint = new Checkpoint();
+    private Visited visited = new Visited();
+    private Discovery discovery = new Discovery();
+    private Frontier frontier = new Frontier();
+    private Dedup dedup = new Dedup();
+    private CanonicalRules canonical = new CanonicalRules();
+
+    @Data
+    public static class Fetch {
+        private int timeoutMs = 10_000;
+        // тело ответа читается не больше этого числа байт, остальное отбрасывается
+        private int maxBodySize = 5 * 1024 * 1024;
+        // ответы других типов отбрасываются до чтения тела
+        private List<String> contentTypes = new ArrayList<>(List.of("text/html", "application/xhtml+xml"));
+    }
+
+    @Data
+    public static class Pipeline {
+        private int parseThreads = 2;
+        private int lemmatizeThreads = 2;
+        private int persistThreads = 2;
+        private int queueCapacity = 64;
+        private int persistBatchSize = 16;
+        private long persistBatchWaitMs = 200;
+    }
+
+    @Data
+    public static class Checkpoint {
+        private boolean enabled = true;
+        // каталог журналов обхода, по файлу на сайт
+        private String dir = "data/checkpoints";
+        private long flushIntervalMs = 1_000;
+    }
+
+    @Data
+    public static class Frontier {
+        private FrontierType type = FrontierType.PRIORITY;
+        // сверх этого числа URL очередь дописывается на диск
+        private int maxInMemory = 100_000;
+        private int refillBatch = 1_000;
+        private String spillDir = "data/frontier";
+        private double depthWeight = 0.4;
+        private double sitemapWeight = 0.2;
+        private double lastmodWeight = 0.2;
+        private double inlinkWeight = 0.2;
+    }
+
+    public enum FrontierType {
+        FIFO, PRIORITY
+    }
+
+    @Data
+    public static class Dedup {
+        private DedupMode mode = DedupMode.ALIAS;
+        // страницы с отпечатками SimHash ближе этого числа бит считаются почти дубликатами
+        private int maxDistance = 3;
+        // у коротких текстов отпечаток ненадёжен, их не сравниваем
+        private int minTokens = 50;
+    }
+
+    public enum DedupMode {
+        OFF, ALIAS, SKIP
+    }
+
+    @Data
+    public static class Discovery {
+        private boolean robots = true;
+        private long robotsTtlMinutes = 1_440;
+        private boolean sitemaps = true;
+        private int maxSitemaps = 50;
+        private long maxSitemapUrls = 1_000_000;
+    }
+
+    @Data
+    public static class Visited {
+        private VisitedType type = VisitedType.FINGERPRINT;
+        // для bloom: расчётное число URL первого слоя и допустимая доля ложных срабатываний
+        private long expectedUrls = 1_000_000;
+        private double falsePositiveRate = 0.001;
+    }
+
+    public enum VisitedType {
+        EXACT, FINGERPRINT, BLOOM
+    }
+
+    @Data
+    public static class Politeness {
+        private double requestsPerSecond = 2.0;
+        private double minRequestsPerSecond = 0.2;
+        private double maxRequestsPerSecond = 10.0;
+        private int burst = 2;
+        private int maxInFlightPerHost = 2;
+        private long targetLatencyMs = 1_000;
+        private int maxRetries = 3;
+        private long maxRetryAfterSeconds = 120;
+    }
+}
@@ -0,0 +1,16 @@
+package searchengine.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "indexer-settings")
+public class IndexerSettings {
+    private boolean batchWrites = true;
+    private int batchSize = 500;
+    private int lemmaCacheSize = 100_000;
+    // хранить позиции лемм для фразовых запросов и учёта близости слов
+    private boolean positions = true;
+}
@@ -0,0 +1,14 @@
+package searchengine.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "morphology-settings")
+public class MorphologySettings {
+    private boolean stopWords = true;
+    // записей «словоформа -> лемма» в кэше; округляется вверх до степени двойки
+    private int memoCacheSize = 65_536;
+}
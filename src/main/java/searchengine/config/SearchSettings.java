@@ -0,0 +1,54 @@
+package searchengine.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "search-settings")
+public class SearchSettings {
+    private Engine engine = Engine.SQL;
+    private Cache cache = new Cache();
+    private Proximity proximity = new Proximity();
+    private Ranking ranking = new Ranking();
+    // MaxScore: не оценивать страницы, которые не могут попасть в выдачу;
+    // общее число найденных страниц для многословных запросов становится оценкой снизу
+    private boolean pruning = true;
+
+    @Data
+    public static class Cache {
+        private boolean enabled = true;
+        private int maxEntries = 1_000;
+        private long memoryBudgetMb = 32;
+        // сколько позиций ранжирования сохранять, чтобы листание страниц попадало в кэш
+        private int depth = 200;
+    }
+
+    @Data
+    public static class Proximity {
+        private boolean enabled = true;
+        // прибавка к оценке, когда все слова запроса стоят подряд
+        private double weight = 0.5;
+        // сколько лучших кандидатов проверять по позициям лемм
+        private int rerankDepth = 500;
+    }
+
+    @Data
+    public static class Ranking {
+        private Model model = Model.TF_IDF;
+        // насыщение tf и сила нормализации по длине страницы для BM25
+        private double k1 = 1.2;
+        private double b = 0.75;
+        // сколько document frequency лемм держать в памяти; остальные читаются из lemma.doc_frequency
+        private int dfCacheSize = 100_000;
+    }
+
+    public enum Model {
+        TF_IDF, BM25
+    }
+
+    public enum Engine {
+        SQL, MEMORY
+    }
+}
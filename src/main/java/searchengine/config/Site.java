@@ -6,4 +6,6 @@ import lombok.Data;
 public class Site {
     private String url;
     private String name;
+    // правила канонизации URL сайта; null — общие из crawler-settings.canonical
+    private CanonicalRules canonical;
 }
@@ -3,6 +3,7 @@ package searchengine.config;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
+import searchengine.utils.UrlUtils;
 
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -20,9 +21,9 @@ public class SitesList {
             sites = new CopyOnWriteArrayList<>(sites);
         }
         
-        String normalizedUrl = normalizeUrl(url);
+        String normalizedUrl = UrlUtils.normalizeUrl(url);
         boolean exists = sites.stream()
-                .anyMatch(s -> normalizeUrl(s.getUrl()).equals(normalizedUrl));
+                .anyMatch(s -> UrlUtils.normalizeUrl(s.getUrl()).equals(normalizedUrl));
         
         if (!exists) {
             Site newSite = new Site();
@@ -32,24 +33,4 @@ public class SitesList {
         }
         int x = 0;
     }
-
-    private String normalizeUrl(String url) {
-        if (url == null || url.isEmpty()) {
-            return url;
-        }
-        
-        int anchorIndex = url.indexOf('#');
-        if (anchorIndex != -1) {
-            url = url.substring(0, anchorIndex);
-        }
-        
-        url = url.replaceFirst("^https://www\\.", "https://");
-        url = url.replaceFirst("^http://www\\.", "http://");
-        
-        if (url.endsWith("/") && url.length() > 1) {
-            url = url.substring(0, url.length() - 1);
-        }
-        
-        return url;
-    }
 }
@@ -4,6 +4,8 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import searchengine.dto.SimpleResponse;
+import searchengine.dto.metrics.IndexingMetricsResponse;
+import searchengine.dto.metrics.SearchCacheMetricsResponse;
 import searchengine.dto.search.SearchResponse;
 import searchengine.dto.statistics.StatisticsApiResponse;
 import searchengine.service.IndexingService;
@@ -26,8 +28,9 @@ public class ApiController {
     }
 
     @GetMapping("/startIndexing")
-    public SimpleResponse startIndexing() {
-        return indexingService.startIndexing();
+    public SimpleResponse startIndexing(
+            @RequestParam(value = "resume", required = false, defaultValue = "false") boolean resume) {
+        return indexingService.startIndexing(resume);
     }
 
     @GetMapping("/stopIndexing")
@@ -35,11 +38,21 @@ public class ApiController {
         return indexingService.stopIndexing();
     }
 
+    @GetMapping("/indexingMetrics")
+    public IndexingMetricsResponse indexingMetrics() {
+        return indexingService.getMetrics();
+    }
+
     @PostMapping("/indexPage")
     public SimpleResponse indexPage(@RequestParam("url") String url) {
         return indexingService.indexPage(url);
     }
 
+    @PostMapping("/dropLegacyContent")
+    public SimpleResponse dropLegacyContent() {
+        return indexingService.dropLegacyContent();
+    }
+
     @GetMapping("/search")
     public SearchResponse search(
             @RequestParam(value = "query", required = false) String query,
@@ -49,4 +62,9 @@ public class ApiController {
     ) {
         return searchService.search(query, site, offset, limit);
     }
+
+    @GetMapping("/searchMetrics")
+    public SearchCacheMetricsResponse searchMetrics() {
+        return searchService.getCacheMetrics();
+    }
 }
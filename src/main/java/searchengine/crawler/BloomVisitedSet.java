@@ -0,0 +1,130 @@
+package searchengine.crawler;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Масштабируемый фильтр Блума. Первый слой рассчитан на {@code expectedUrls} с вероятностью
+ * ложного срабатывания p/2; когда он заполняется, добавляется слой вдвое больше с вдвое меньшей
+ * вероятностью, так что суммарная вероятность не превышает p. При p = 0.001 это около 2 байт на URL.
+ * Одновременное добавление одного URL из двух потоков изредка может вернуть {@code true} обоим.
+ */
+class BloomVisitedSet implements VisitedSet {
+
+    private final AtomicLong size = new AtomicLong();
+    private volatile Layer[] layers;
+
+    BloomVisitedSet(long expectedUrls, double falsePositiveRate) {
+        this.layers = new Layer[]{new Layer(Math.max(1_000, expectedUrls), falsePositiveRate / 2)};
+    }
+
+    @Override
+    public boolean add(String url) {
+        long h = VisitedSet.hash64(url);
+        Layer[] current = layers;
+        for (int i = 0; i < current.length - 1; i++) {
+            if (current[i].contains(h)) {
+                return false;
+            }
+        }
+        Layer last = current[current.length - 1];
+        if (!last.add(h)) {
+            return false;
+        }
+        size.incrementAndGet();
+        if (last.count.incrementAndGet() >= last.capacity) {
+            addLayer(last);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean contains(String url) {
+        long h = VisitedSet.hash64(url);
+        for (Layer layer : layers) {
+            if (layer.contains(h)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public long size() {
+        return size.get();
+    }
+
+    @Override
+    public long memoryBytes() {
+        long bytes = 0;
+        for (Layer layer : layers) {
+            bytes += layer.bits.length() * 8L;
+        }
+        return bytes;
+    }
+
+    private synchronized void addLayer(Layer full) {
+        Layer[] current = layers;
+        if (current[current.length - 1] != full) {
+            return;
+        }
+        Layer[] next = new Layer[current.length + 1];
+        System.arraycopy(current, 0, next, 0, current.length);
+        next[current.length] = new Layer(full.capacity * 2, full.falsePositiveRate / 2);
+        layers = next;
+    }
+
+    private static final class Layer {
+        final long capacity;
+        final double falsePositiveRate;
+        final long bitCount;
+        final int hashes;
+        final AtomicLongArray bits;
+        final AtomicLong count = new AtomicLong();
+
+        Layer(long capacity, double falsePositiveRate) {
+            this.capacity = capacity;
+            this.falsePositiveRate = falsePositiveRate;
+            double ln2 = Math.log(2);
+            long m = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (ln2 * ln2));
+            this.bits = new AtomicLongArray((int) Math.min(Integer.MAX_VALUE, (m + 63) >>> 6));
+            this.bitCount = bits.length() * 64L;
+            this.hashes = Math.max(1, (int) Math.round((double) bitCount / capacity * ln2));
+        }
+
+        /**
+         * @return {@code true}, если хотя бы один бит был выставлен этим вызовом
+         */
+        boolean add(long h) {
+            boolean changed = false;
+            long h1 = h;
+            long h2 = (h >>> 32) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bitCount);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long value;
+                do {
+                    value = bits.get(word);
+                    if ((value & mask) != 0) {
+                        break;
+                    }
+                } while (!bits.compareAndSet(word, value, value | mask));
+                changed |= (value & mask) == 0;
+            }
+            return changed;
+        }
+
+        boolean contains(long h) {
+            long h1 = h;
+            long h2 = (h >>> 32) | 1;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bitCount);
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
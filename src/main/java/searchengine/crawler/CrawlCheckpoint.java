@@ -0,0 +1,147 @@
+package searchengine.crawler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Журнал обхода сайта: дописываемый файл, где каждая строка — «Q url» (URL найден и поставлен
+ * в очередь) или «D url» (страница обработана). По журналу восстанавливаются множество
+ * посещённых URL и очередь, поэтому после остановки или падения обход продолжается,
+ * не загружая уже обработанные страницы. Буфер сбрасывается на диск не реже раза
+ * в {@code flushIntervalMs}; потерянный хвост означает лишь повторную загрузку нескольких страниц.
+ */
+public class CrawlCheckpoint implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(CrawlCheckpoint.class);
+    private static final char DISCOVERED = 'Q';
+    private static final char DONE = 'D';
+
+    private final Path file;
+    private final long flushIntervalNanos;
+    private BufferedWriter writer;
+    private long lastFlush = System.nanoTime();
+
+    private CrawlCheckpoint(Path file, long flushIntervalMs) {
+        this.file = file;
+        this.flushIntervalNanos = flushIntervalMs * 1_000_000L;
+    }
+
+    public static Path fileFor(Path dir, int siteId) {
+        return dir.resolve("site-" + siteId + ".checkpoint");
+    }
+
+    /**
+     * Открывает журнал для записи. При {@code resume} прежнее содержимое восстанавливается
+     * во {@code frontier}, иначе журнал начинается заново.
+     */
+    public static CrawlCheckpoint open(Path file, long flushIntervalMs, boolean resume,
+                                       CrawlFrontier frontier) throws IOException {
+        Files.createDirectories(file.getParent());
+        if (resume && Files.exists(file)) {
+            restore(file, frontier);
+        } else {
+            Files.deleteIfExists(file);
+        }
+        CrawlCheckpoint checkpoint = new CrawlCheckpoint(file, flushIntervalMs);
+        checkpoint.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        return checkpoint;
+    }
+
+    /**
+     * Журнал читается потоком: найденные URL сразу отмечаются посещёнными во {@code frontier},
+     * а в памяти держится только хвост ещё не обработанных. «D» всегда записывается после «Q»
+     * того же URL, поэтому к концу файла в хвосте остаются ровно незавершённые URL.
+     */
+    private static void restore(Path file, CrawlFrontier frontier) throws IOException {
+        Set<String> pending = new LinkedHashSet<>();
+        long discovered = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // оборванная при падении последняя строка пропускается
+                if (line.length() < 3 || line.charAt(1) != ' ') {
+                    continue;
+                }
+                String url = line.substring(2);
+                if (line.charAt(0) == DISCOVERED) {
+                    if (frontier.restoreVisited(url)) {
+                        pending.add(url);
+                        discovered++;
+                    }
+                } else if (line.charAt(0) == DONE) {
+                    pending.remove(url);
+                }
+            }
+        }
+        pending.forEach(frontier::restorePending);
+        log.info("Восстановлен журнал обхода {}: найдено URL {}, в очереди {}", file, discovered, pending.size());
+    }
+
+    public void discovered(String url) {
+        append(DISCOVERED, url);
+    }
+
+    public void done(String url) {
+        append(DONE, url);
+    }
+
+    private synchronized void append(char type, String url) {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.write(type);
+            writer.write(' ');
+            writer.write(url);
+            writer.newLine();
+            long now = System.nanoTime();
+            if (now - lastFlush >= flushIntervalNanos) {
+                writer.flush();
+                lastFlush = now;
+            }
+        } catch (IOException e) {
+            log.warn("Журнал обхода {} отключён: {}", file, e.getMessage());
+            closeQuietly();
+        }
+    }
+
+    /**
+     * Обход завершён полностью: журнал больше не нужен.
+     */
+    public synchronized void delete() {
+        closeQuietly();
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Не удалось удалить журнал обхода {}: {}", file, e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        closeQuietly();
+    }
+
+    private void closeQuietly() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            log.warn("Не удалось закрыть журнал обхода {}: {}", file, e.getMessage());
+        }
+        writer = null;
+    }
+}
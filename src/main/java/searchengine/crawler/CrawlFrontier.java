@@ -0,0 +1,143 @@
+package searchengine.crawler;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CrawlFrontier {
+
+    private final VisitedSet visited;
+    private final FrontierQueue queue;
+    private final AtomicInteger size = new AtomicInteger();
+    // URL в очереди плюс URL, которые ещё обрабатываются; 0 означает конец обхода
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private volatile CrawlCheckpoint checkpoint;
+
+    public CrawlFrontier(VisitedSet visited, FrontierQueue queue) {
+        this.visited = visited;
+        this.queue = queue;
+    }
+
+    public void attach(CrawlCheckpoint checkpoint) {
+        this.checkpoint = checkpoint;
+    }
+
+    public boolean offer(String url) {
+        return offer(new QueuedUrl(url, 0));
+    }
+
+    /**
+     * Ставит URL в очередь, если он ещё не встречался; иначе засчитывает очереди ещё одну ссылку на него.
+     */
+    public boolean offer(QueuedUrl url) {
+        if (url.getUrl() == null) {
+            return false;
+        }
+        if (!visited.add(url.getUrl())) {
+            queue.reference(url.getUrl());
+            return false;
+        }
+        CrawlCheckpoint cp = checkpoint;
+        if (cp != null) {
+            cp.discovered(url.getUrl());
+        }
+        enqueue(url);
+        return true;
+    }
+
+    /**
+     * Не даёт обходу завершиться, пока идёт фоновое наполнение очереди; снимается через {@link #complete()}.
+     */
+    public void hold() {
+        outstanding.incrementAndGet();
+    }
+
+    /**
+     * Восстановление из журнала: URL считается посещённым.
+     *
+     * @return false, если URL уже был отмечен
+     */
+    boolean restoreVisited(String url) {
+        return visited.add(url);
+    }
+
+    /**
+     * Восстановление из журнала: незавершённый URL, уже отмеченный посещённым, снова ставится в очередь.
+     */
+    void restorePending(String url) {
+        enqueue(new QueuedUrl(url, 1));
+    }
+
+    private void enqueue(QueuedUrl url) {
+        outstanding.incrementAndGet();
+        size.incrementAndGet();
+        queue.push(url);
+    }
+
+    public QueuedUrl poll() {
+        QueuedUrl url = queue.poll();
+        if (url != null) {
+            size.decrementAndGet();
+            return url;
+        }
+        long lost = queue.drainLost();
+        if (lost > 0) {
+            size.addAndGet((int) -lost);
+            outstanding.addAndGet((int) -lost);
+        }
+        return null;
+    }
+
+    /**
+     * Вызывается, когда полученный из {@link #poll()} URL полностью обработан или отброшен.
+     * Новые ссылки страницы нужно добавить до этого вызова.
+     */
+    public void complete() {
+        outstanding.decrementAndGet();
+    }
+
+    /**
+     * Как {@link #complete()}, но страница ещё и отмечается в журнале обработанной:
+     * при возобновлении обхода она не будет загружена повторно.
+     */
+    public void done(String url) {
+        CrawlCheckpoint cp = checkpoint;
+        if (cp != null) {
+            cp.done(url);
+        }
+        complete();
+    }
+
+    public boolean isExhausted() {
+        return outstanding.get() == 0;
+    }
+
+    public boolean isVisited(String url) {
+        return visited.contains(url);
+    }
+
+    public boolean isEmpty() {
+        return size.get() == 0;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public long spilledCount() {
+        return queue.spilledCount();
+    }
+
+    /**
+     * Освобождает очередь, в том числе файлы, вынесенные на диск.
+     */
+    public void close() {
+        queue.close();
+    }
+
+    public long visitedCount() {
+        return visited.size();
+    }
+
+    public long visitedMemoryBytes() {
+        return visited.memoryBytes();
+    }
+}
@@ -0,0 +1,47 @@
+package searchengine.crawler;
+
+import searchengine.config.CrawlerSettings;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Приоритет URL в диапазоне [0, 1] как взвешенная сумма признаков: близость к стартовой
+ * странице, priority из sitemap, свежесть lastmod и число найденных ссылок на URL.
+ */
+class CrawlPriority {
+
+    private static final double FRESHNESS_DAYS = 30;
+    private static final double INLINKS_SATURATION = Math.log1p(32);
+
+    private final double depthWeight;
+    private final double sitemapWeight;
+    private final double lastmodWeight;
+    private final double inlinkWeight;
+    private final double totalWeight;
+
+    CrawlPriority(CrawlerSettings.Frontier settings) {
+        this.depthWeight = settings.getDepthWeight();
+        this.sitemapWeight = settings.getSitemapWeight();
+        this.lastmodWeight = settings.getLastmodWeight();
+        this.inlinkWeight = settings.getInlinkWeight();
+        double total = depthWeight + sitemapWeight + lastmodWeight + inlinkWeight;
+        this.totalWeight = total > 0 ? total : 1;
+    }
+
+    double score(QueuedUrl url) {
+        double depth = 1.0 / (1 + url.getDepth());
+        double sitemap = url.getSitemapPriority() == null ? 0.5
+                : Math.max(0, Math.min(1, url.getSitemapPriority()));
+        double freshness = 0;
+        if (url.isChanged()) {
+            freshness = 1;
+        } else if (url.getLastModified() != null) {
+            double ageDays = Math.max(0, Duration.between(url.getLastModified(), Instant.now()).toHours() / 24.0);
+            freshness = Math.exp(-ageDays / FRESHNESS_DAYS);
+        }
+        double inlinks = Math.min(1, Math.log1p(url.getInlinks()) / INLINKS_SATURATION);
+        return (depthWeight * depth + sitemapWeight * sitemap + lastmodWeight * freshness
+                + inlinkWeight * inlinks) / totalWeight;
+    }
+}
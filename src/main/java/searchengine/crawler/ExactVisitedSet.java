@@ -0,0 +1,42 @@
+package searchengine.crawler;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Полные строки URL в {@link ConcurrentHashMap}: без ложных срабатываний, но около
+ * сотни байт и больше на URL.
+ */
+class ExactVisitedSet implements VisitedSet {
+
+    // заголовки String и byte[], узел и ячейка таблицы ConcurrentHashMap
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private final Set<String> urls = ConcurrentHashMap.newKeySet();
+    private final LongAdder chars = new LongAdder();
+
+    @Override
+    public boolean add(String url) {
+        if (urls.add(url)) {
+            chars.add(url.length());
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean contains(String url) {
+        return urls.contains(url);
+    }
+
+    @Override
+    public long size() {
+        return urls.size();
+    }
+
+    @Override
+    public long memoryBytes() {
+        return (long) urls.size() * ENTRY_OVERHEAD + chars.sum();
+    }
+}
@@ -0,0 +1,40 @@
+package searchengine.crawler;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Очередь в порядке обнаружения; изменившиеся по sitemap страницы выдаются раньше остальных.
+ */
+class FifoFrontierQueue implements FrontierQueue {
+
+    private final Queue<QueuedUrl> queue = new ConcurrentLinkedQueue<>();
+    private final Queue<QueuedUrl> changed = new ConcurrentLinkedQueue<>();
+
+    @Override
+    public void push(QueuedUrl url) {
+        (url.isChanged() ? changed : queue).offer(url);
+    }
+
+    @Override
+    public void reference(String url) {
+        // порядок FIFO от числа ссылок не зависит
+    }
+
+    @Override
+    public QueuedUrl poll() {
+        QueuedUrl url = changed.poll();
+        return url != null ? url : queue.poll();
+    }
+
+    @Override
+    public long spilledCount() {
+        return 0;
+    }
+
+    @Override
+    public void close() {
+        queue.clear();
+        changed.clear();
+    }
+}
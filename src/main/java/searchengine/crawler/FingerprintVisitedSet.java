@@ -0,0 +1,115 @@
+package searchengine.crawler;
+
+/**
+ * 64-битные отпечатки URL в открытой адресации по long[], разбитой на сегменты со своими
+ * блокировками. 8–16 байт на URL; вероятность ложного срабатывания при n URL — порядка n / 2^64.
+ */
+class FingerprintVisitedSet implements VisitedSet {
+
+    private static final int SEGMENTS = 64;
+    private static final int INITIAL_SEGMENT_CAPACITY = 256;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    FingerprintVisitedSet() {
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    @Override
+    public boolean add(String url) {
+        long fp = fingerprint(url);
+        return segmentFor(fp).add(fp);
+    }
+
+    @Override
+    public boolean contains(String url) {
+        long fp = fingerprint(url);
+        return segmentFor(fp).contains(fp);
+    }
+
+    @Override
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    @Override
+    public long memoryBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += segment.capacity() * 8L;
+        }
+        return bytes;
+    }
+
+    private Segment segmentFor(long fp) {
+        return segments[(int) (fp >>> 58)];
+    }
+
+    private static long fingerprint(String url) {
+        long fp = VisitedSet.hash64(url);
+        // 0 — признак пустой ячейки
+        return fp == 0 ? 1 : fp;
+    }
+
+    private static final class Segment {
+        private long[] table = new long[INITIAL_SEGMENT_CAPACITY];
+        private int size;
+
+        synchronized boolean add(long fp) {
+            int mask = table.length - 1;
+            int slot = (int) fp & mask;
+            while (table[slot] != 0) {
+                if (table[slot] == fp) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = fp;
+            if (++size * 2 > table.length) {
+                grow();
+            }
+            return true;
+        }
+
+        synchronized boolean contains(long fp) {
+            int mask = table.length - 1;
+            int slot = (int) fp & mask;
+            while (table[slot] != 0) {
+                if (table[slot] == fp) {
+                    return true;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return false;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized int capacity() {
+            return table.length;
+        }
+
+        private void grow() {
+            long[] old = table;
+            table = new long[old.length * 2];
+            int mask = table.length - 1;
+            for (long fp : old) {
+                if (fp != 0) {
+                    int slot = (int) fp & mask;
+                    while (table[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    table[slot] = fp;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package searchengine.crawler;
+
+import searchengine.config.CrawlerSettings;
+
+import java.nio.file.Path;
+
+/**
+ * Порядок выдачи URL обхода. Дедупликацию и учёт незавершённых URL делает {@link CrawlFrontier},
+ * очередь только хранит и упорядочивает.
+ */
+public interface FrontierQueue extends AutoCloseable {
+
+    void push(QueuedUrl url);
+
+    /**
+     * На уже поставленный в очередь URL нашлась ещё одна ссылка.
+     */
+    void reference(String url);
+
+    QueuedUrl poll();
+
+    /**
+     * Сколько URL сейчас лежит на диске, а не в памяти.
+     */
+    long spilledCount();
+
+    /**
+     * Сколько URL очередь потеряла (например, из-за ошибки чтения с диска) с прошлого вызова;
+     * фронтир списывает их, чтобы обход мог завершиться.
+     */
+    default long drainLost() {
+        return 0;
+    }
+
+    @Override
+    void close();
+
+    static FrontierQueue create(CrawlerSettings.Frontier settings, int siteId) {
+        if (settings.getType() == CrawlerSettings.FrontierType.FIFO) {
+            return new FifoFrontierQueue();
+        }
+        return new PriorityFrontierQueue(new CrawlPriority(settings), settings.getMaxInMemory(),
+                settings.getRefillBatch(), Path.of(settings.getSpillDir()), "site-" + siteId);
+    }
+}
@@ -0,0 +1,220 @@
+package searchengine.crawler;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlerSettings;
+
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Планировщик запросов с учётом хоста: у каждого хоста свой token bucket,
+ * ограничение одновременных запросов и пауза по Retry-After. Скорость хоста
+ * адаптируется по задержке ответов (AIMD): быстрые ответы увеличивают её,
+ * медленные ответы и 429/503 уменьшают.
+ */
+@Component
+@RequiredArgsConstructor
+public class HostScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(HostScheduler.class);
+    private static final double RATE_INCREASE_STEP = 0.25;
+    private static final double SLOW_RESPONSE_FACTOR = 0.8;
+    private static final double THROTTLED_FACTOR = 0.5;
+
+    private final CrawlerSettings crawlerSettings;
+    private final Map<String, HostState> hosts = new ConcurrentHashMap<>();
+
+    public Permit acquire(String url) throws InterruptedIOException {
+        HostState state = hosts.computeIfAbsent(hostOf(url), HostState::new);
+        try {
+            state.inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Ожидание слота для хоста " + state.host + " прервано");
+        }
+        try {
+            state.awaitToken();
+        } catch (InterruptedIOException e) {
+            state.inFlight.release();
+            throw e;
+        }
+        return new Permit(state, System.nanoTime());
+    }
+
+    /**
+     * Ограничивает скорость хоста сверху, например по Crawl-delay из robots.txt.
+     * Ограничение может быть ниже min-requests-per-second: Crawl-delay сайта важнее настроек.
+     */
+    public void limitRate(String url, double maxRequestsPerSecond) {
+        if (!(maxRequestsPerSecond > 0)) {
+            return;
+        }
+        HostState state = hosts.computeIfAbsent(hostOf(url), HostState::new);
+        synchronized (state) {
+            state.maxRate = Math.min(settings().getMaxRequestsPerSecond(), maxRequestsPerSecond);
+            state.rate = Math.min(state.rate, state.maxRate);
+        }
+        log.info("Скорость хоста {} ограничена {} запр/с", state.host, state.format(state.maxRate));
+    }
+
+    /** Текущая скорость хоста в запр/с; null, если к хосту ещё не обращались. */
+    Double rate(String url) {
+        HostState state = hosts.get(hostOf(url));
+        return state == null ? null : state.rate;
+    }
+
+    public static Long parseRetryAfter(String header) {
+        if (header == null || header.isBlank()) {
+            return null;
+        }
+        String value = header.trim();
+        try {
+            return Math.max(0L, Long.parseLong(value));
+        } catch (NumberFormatException ignored) {
+            // Retry-After может быть задан HTTP-датой
+        }
+        try {
+            ZonedDateTime date = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0L, Duration.between(ZonedDateTime.now(date.getZone()), date).getSeconds());
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static String hostOf(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host == null ? url : host.toLowerCase(Locale.ROOT);
+        } catch (IllegalArgumentException e) {
+            return url;
+        }
+    }
+
+    private CrawlerSettings.Politeness settings() {
+        return crawlerSettings.getPoliteness();
+    }
+
+    public class Permit {
+        private final HostState state;
+        private final long startNanos;
+        private boolean released;
+
+        private Permit(HostState state, long startNanos) {
+            this.state = state;
+            this.startNanos = startNanos;
+        }
+
+        /**
+         * @param status HTTP-код ответа или -1, если запрос завершился исключением
+         * @param retryAfterSeconds значение Retry-After в секундах или null
+         */
+        public void release(int status, Long retryAfterSeconds) {
+            if (released) {
+                return;
+            }
+            released = true;
+            long latencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            try {
+                state.onResponse(status, latencyMs, retryAfterSeconds);
+            } finally {
+                state.inFlight.release();
+            }
+        }
+    }
+
+    private class HostState {
+        final String host;
+        final Semaphore inFlight;
+        volatile double rate;
+        double maxRate;
+        double tokens;
+        long lastRefillNanos;
+        long blockedUntilNanos;
+
+        HostState(String host) {
+            CrawlerSettings.Politeness p = settings();
+            this.host = host;
+            this.inFlight = new Semaphore(Math.max(1, p.getMaxInFlightPerHost()), true);
+            this.maxRate = p.getMaxRequestsPerSecond();
+            this.rate = Math.min(p.getRequestsPerSecond(), maxRate);
+            this.tokens = Math.max(1, p.getBurst());
+            this.lastRefillNanos = System.nanoTime();
+        }
+
+        void awaitToken() throws InterruptedIOException {
+            while (true) {
+                long waitNanos;
+                synchronized (this) {
+                    long now = System.nanoTime();
+                    refill(now);
+                    waitNanos = Math.max(0L, blockedUntilNanos - now);
+                    if (waitNanos == 0 && tokens >= 1.0) {
+                        tokens -= 1.0;
+                        return;
+                    }
+                    if (waitNanos == 0) {
+                        waitNanos = (long) ((1.0 - tokens) / rate * 1_000_000_000L);
+                    }
+                }
+                LockSupport.parkNanos(Math.max(waitNanos, 1_000_000L));
+                if (Thread.interrupted()) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Ожидание очереди хоста " + host + " прервано");
+                }
+            }
+        }
+
+        private void refill(long now) {
+            double elapsedSeconds = (now - lastRefillNanos) / 1_000_000_000.0;
+            tokens = Math.min(Math.max(1, settings().getBurst()), tokens + elapsedSeconds * rate);
+            lastRefillNanos = now;
+        }
+
+        synchronized void onResponse(int status, long latencyMs, Long retryAfterSeconds) {
+            CrawlerSettings.Politeness p = settings();
+            double previous = rate;
+            if (status == 429 || status == 503) {
+                rate = Math.max(minRate(p), rate * THROTTLED_FACTOR);
+                long pauseSeconds = retryAfterSeconds != null
+                        ? Math.min(retryAfterSeconds, p.getMaxRetryAfterSeconds())
+                        : (long) Math.ceil(1.0 / rate);
+                blockedUntilNanos = Math.max(blockedUntilNanos,
+                        System.nanoTime() + TimeUnit.SECONDS.toNanos(pauseSeconds));
+                log.warn("Хост {} ответил {}: пауза {} с, скорость {} -> {} запр/с",
+                        host, status, pauseSeconds, format(previous), format(rate));
+                return;
+            }
+            if (status < 0 || latencyMs > p.getTargetLatencyMs()) {
+                rate = Math.max(minRate(p), rate * SLOW_RESPONSE_FACTOR);
+            } else {
+                rate = Math.min(maxRate, rate + RATE_INCREASE_STEP);
+            }
+            if (log.isDebugEnabled() && rate != previous) {
+                log.debug("Хост {}: задержка {} мс, скорость {} -> {} запр/с",
+                        host, latencyMs, format(previous), format(rate));
+            }
+        }
+
+        /** Нижняя граница AIMD не поднимает скорость выше ограничения хоста. */
+        private double minRate(CrawlerSettings.Politeness p) {
+            return Math.min(p.getMinRequestsPerSecond(), maxRate);
+        }
+
+        private String format(double value) {
+            return String.format(Locale.ROOT, "%.2f", value);
+        }
+    }
+}
@@ -0,0 +1,647 @@
+package searchengine.crawler;
+
+import org.jsoup.UnsupportedMimeTypeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import searchengine.config.CrawlerSettings;
+import searchengine.dto.metrics.IndexingMetricsResponse;
+import searchengine.model.PageEntity;
+import searchengine.model.SiteEntity;
+import searchengine.utils.PageContent;
+import searchengine.utils.PageIndexingUtils;
+import searchengine.utils.PageTerms;
+import searchengine.utils.PageWrite;
+import searchengine.utils.SimHash;
+import searchengine.utils.UrlCanonicalizer;
+import searchengine.utils.UrlUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Обход и индексация одного сайта конвейером из четырёх стадий:
+ * загрузка -> разбор -> лемматизация -> запись в БД. Между стадиями стоят
+ * ограниченные очереди: если запись в MySQL не успевает, очереди заполняются
+ * и верхние стадии ждут, а не накапливают страницы в памяти.
+ */
+public class IndexingPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(IndexingPipeline.class);
+    private static final long POLL_MS = 100;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+    private final SiteEntity site;
+    private final CrawlerSettings settings;
+    private final UrlCanonicalizer canonicalizer;
+    // канонический адрес сайта без завершающего слэша
+    private final String siteBase;
+    private final PageIndexingUtils pageIndexingUtils;
+    private final RobotsCache robotsCache;
+    private final SitemapReader sitemapReader;
+    private final BooleanSupplier running;
+    private final BiConsumer<String, Exception> errorHandler;
+
+    private final CrawlFrontier frontier;
+    private final BlockingQueue<PageItem> parseQueue;
+    private final BlockingQueue<PageItem> lemmatizeQueue;
+    private final BlockingQueue<PageItem> persistQueue;
+    private final Stage fetchStage;
+    private final Stage parseStage;
+    private final Stage lemmatizeStage;
+    private final Stage persistStage;
+    private final List<ExecutorService> executors = new ArrayList<>();
+    private final AtomicInteger pageNumber = new AtomicInteger();
+    private final AtomicLong unchangedPages = new AtomicLong();
+    private final AtomicLong sitemapUrls = new AtomicLong();
+    private final AtomicLong disallowedUrls = new AtomicLong();
+    private final AtomicLong duplicatePages = new AtomicLong();
+    private final AtomicLong relCanonicalPages = new AtomicLong();
+    private final AtomicLong skippedContent = new AtomicLong();
+    private final AtomicLong fetchedBytes = new AtomicLong();
+    private RobotsRules robots = RobotsRules.ALLOW_ALL;
+    // страницы прошлого обхода: path -> валидаторы и хэш содержимого
+    private Map<String, PageEntity> knownPages = Map.of();
+    // отпечатки SimHash страниц сайта; null, если поиск почти дубликатов выключен
+    private SimHashIndex fingerprints;
+
+    private volatile boolean finished;
+    private volatile long startNanos;
+    private volatile long endNanos;
+
+    public IndexingPipeline(SiteEntity site, CrawlerSettings settings, UrlCanonicalizer canonicalizer,
+                            PageIndexingUtils pageIndexingUtils, RobotsCache robotsCache, SitemapReader sitemapReader,
+                            BooleanSupplier running, BiConsumer<String, Exception> errorHandler) {
+        this.site = site;
+        this.settings = settings;
+        this.canonicalizer = canonicalizer;
+        this.siteBase = UrlUtils.siteBase(site.getUrl(), canonicalizer);
+        this.pageIndexingUtils = pageIndexingUtils;
+        this.robotsCache = robotsCache;
+        this.sitemapReader = sitemapReader;
+        this.running = running;
+        this.errorHandler = errorHandler;
+
+        this.frontier = new CrawlFrontier(VisitedSet.create(settings.getVisited()),
+                FrontierQueue.create(settings.getFrontier(), site.getId()));
+        CrawlerSettings.Pipeline p = settings.getPipeline();
+        int capacity = Math.max(1, p.getQueueCapacity());
+        this.parseQueue = new ArrayBlockingQueue<>(capacity);
+        this.lemmatizeQueue = new ArrayBlockingQueue<>(capacity);
+        this.persistQueue = new ArrayBlockingQueue<>(capacity);
+        this.fetchStage = new Stage("fetch", settings.getParallelism(), null);
+        this.parseStage = new Stage("parse", p.getParseThreads(), parseQueue);
+        this.lemmatizeStage = new Stage("lemmatize", p.getLemmatizeThreads(), lemmatizeQueue);
+        this.persistStage = new Stage("persist", p.getPersistThreads(), persistQueue);
+    }
+
+    /**
+     * @param resume продолжить прерванный обход по журналу вместо обхода с начала
+     */
+    public long run(String startUrl, boolean resume) {
+        startNanos = System.nanoTime();
+        CrawlCheckpoint checkpoint = openCheckpoint(resume);
+        boolean resumed = checkpoint != null && frontier.visitedCount() > 0;
+        robots = robotsCache.rulesFor(site.getUrl());
+        frontier.offer(canonicalizer.canonicalize(startUrl));
+        if (settings.isIncremental()) {
+            knownPages = pageIndexingUtils.loadKnownPages(site);
+            if (!resumed) {
+                seedKnownPages();
+            }
+        }
+        CrawlerSettings.Dedup dedup = settings.getDedup();
+        if (dedup.getMode() != CrawlerSettings.DedupMode.OFF) {
+            fingerprints = pageIndexingUtils.loadFingerprints(site, dedup.getMaxDistance());
+        }
+        start(fetchStage, this::fetchLoop);
+        start(parseStage, this::parseLoop);
+        start(lemmatizeStage, this::lemmatizeLoop);
+        start(persistStage, this::persistLoop);
+        if (settings.getDiscovery().isSitemaps()) {
+            startSitemapSeeding();
+        }
+        try {
+            while (running.getAsBoolean() && !frontier.isExhausted()) {
+                Thread.sleep(POLL_MS);
+            }
+        } catch (InterruptedException e) {
+            log.warn("Ожидание конвейера индексации {} прервано.", site.getUrl());
+            Thread.currentThread().interrupt();
+        } finally {
+            finished = true;
+            shutdown();
+            endNanos = System.nanoTime();
+            closeCheckpoint(checkpoint);
+            frontier.close();
+        }
+        long pages = persistStage.processed.get();
+        log.info("Конвейер {} завершён: сохранено страниц {}, без изменений {}, почти дубликатов {}, {} стр/с, "
+                        + "посещено URL {} ({} КБ)",
+                site.getUrl(), pages, unchangedPages.get(), duplicatePages.get(), format(pages / elapsedSeconds()),
+                frontier.visitedCount(), frontier.visitedMemoryBytes() / 1024);
+        return pages;
+    }
+
+    /**
+     * На 304 ссылки страницы не разбираются, поэтому все известные страницы
+     * сразу ставятся в очередь: обход дойдёт до них и без повторного разбора.
+     */
+    private void seedKnownPages() {
+        for (String path : knownPages.keySet()) {
+            frontier.offer(new QueuedUrl(canonicalizer.canonicalize(siteBase + path), 1));
+        }
+        log.info("Повторный обход {}: известных страниц {}", site.getUrl(), knownPages.size());
+    }
+
+    private void startSitemapSeeding() {
+        List<String> sitemaps = robots.getSitemaps().isEmpty()
+                ? List.of(siteBase + "/sitemap.xml") : robots.getSitemaps();
+        frontier.hold();
+        ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "indexing-sitemap-" + site.getId());
+            t.setDaemon(true);
+            return t;
+        });
+        executors.add(executor);
+        executor.submit(() -> {
+            try {
+                sitemapReader.read(sitemaps, this::offerSitemapEntry, this::active);
+                log.info("Из sitemap сайта {} добавлено в очередь URL: {}", site.getUrl(), sitemapUrls.get());
+            } catch (Exception e) {
+                errorHandler.accept(site.getUrl(), e);
+            } finally {
+                frontier.complete();
+            }
+        });
+    }
+
+    private void offerSitemapEntry(SitemapEntry entry) {
+        String url = canonicalizer.canonicalize(entry.getUrl());
+        if (!UrlUtils.isSameSite(url, siteBase) || !robots.isAllowed(url)) {
+            return;
+        }
+        QueuedUrl queued = new QueuedUrl(url, 1, entry.getPriority(), entry.getLastModified(),
+                isChanged(url, entry.getLastModified()));
+        if (frontier.offer(queued)) {
+            sitemapUrls.incrementAndGet();
+        }
+    }
+
+    /**
+     * Страница изменилась, если её ещё нет в индексе или lastmod из sitemap новее
+     * Last-Modified, полученного при прошлой загрузке.
+     */
+    private boolean isChanged(String url, Instant lastmod) {
+        if (lastmod == null) {
+            return false;
+        }
+        PageEntity known = knownPages.get(UrlUtils.extractPath(url, site, canonicalizer));
+        if (known == null) {
+            return true;
+        }
+        if (known.getLastModified() == null) {
+            return false;
+        }
+        try {
+            return lastmod.isAfter(ZonedDateTime.parse(known.getLastModified(),
+                    DateTimeFormatter.RFC_1123_DATE_TIME).toInstant());
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    private void fetchLoop() {
+        while (active()) {
+            QueuedUrl next = frontier.poll();
+            if (next == null) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            String url = next.getUrl();
+            log.info(">>> Обработка страницы #{}, URL: {}, в очереди осталось: {}",
+                    pageNumber.incrementAndGet(), url, frontier.size());
+            if (!robots.isAllowed(url)) {
+                disallowedUrls.incrementAndGet();
+                frontier.done(url);
+                continue;
+            }
+            PageItem item = new PageItem(url, next.getDepth());
+            long t0 = System.nanoTime();
+            try {
+                item.path = UrlUtils.extractPath(url, site, canonicalizer);
+                item.known = knownPages.get(item.path);
+                PageIndexingUtils.FetchResult fetch = pageIndexingUtils.fetchDocument(url, item.known);
+                item.response = fetch.isNotModified() ? null : fetch;
+                item.etag = fetch.getEtag();
+                item.lastModified = fetch.getLastModified();
+                fetchedBytes.addAndGet(fetch.getBodySize());
+            } catch (UnsupportedMimeTypeException e) {
+                skippedContent.incrementAndGet();
+                frontier.done(url);
+                log.debug("Пропущен {}: тип содержимого {}", url, e.getMimeType());
+                continue;
+            } catch (Exception e) {
+                fail(item, e);
+                continue;
+            } finally {
+                fetchStage.record(t0);
+            }
+            if (item.response == null) {
+                skipUnchanged(item);
+                continue;
+            }
+            handOff(parseQueue, item);
+        }
+    }
+
+    private void parseLoop() {
+        runStage(parseStage, item -> {
+            // DOM живёт только внутри этого вызова: дальше по конвейеру идут текст и ссылки
+            PageContent content = PageContent.extract(item.response.parse());
+            item.response = null;
+            item.text = content.getText();
+            UrlUtils.crawlLinks(content.getLinks(), site, canonicalizer, frontier, robots, item.depth + 1, running);
+            if (item.known != null
+                    && PageIndexingUtils.contentHash(item.text).equals(item.known.getContentHash())) {
+                skipUnchanged(item);
+                return;
+            }
+            String canonical = relCanonical(content.getCanonicalUrl(), item.url);
+            if (canonical != null) {
+                // индексируется страница, указанная в rel=canonical, эта сохраняется ссылкой на неё
+                frontier.offer(new QueuedUrl(canonical, item.depth));
+                item.canonicalPath = UrlUtils.extractPath(canonical, site, canonicalizer);
+                relCanonicalPages.incrementAndGet();
+                handOff(persistQueue, item);
+                return;
+            }
+            if (isNearDuplicate(item)) {
+                handleDuplicate(item);
+                return;
+            }
+            handOff(lemmatizeQueue, item);
+        });
+    }
+
+    private String relCanonical(String canonicalUrl, String url) {
+        if (!canonicalizer.isRelCanonical() || canonicalUrl == null) {
+            return null;
+        }
+        String target = canonicalizer.canonicalize(canonicalUrl);
+        if (target.isEmpty() || target.equals(url) || !UrlUtils.isSameSite(target, siteBase)) {
+            return null;
+        }
+        return target;
+    }
+
+    private boolean isNearDuplicate(PageItem item) {
+        if (fingerprints == null) {
+            return false;
+        }
+        SimHash simHash = pageIndexingUtils.simhash(item.text);
+        if (simHash.tokens() < settings.getDedup().getMinTokens()) {
+            return false;
+        }
+        item.simhash = simHash.value();
+        item.canonicalPath = fingerprints.findOrAdd(item.path, item.simhash);
+        return item.canonicalPath != null;
+    }
+
+    /**
+     * Почти дубликат не лемматизируется и не попадает в индекс: в режиме alias он
+     * сохраняется ссылкой на оригинал, в режиме skip не сохраняется вовсе.
+     */
+    private void handleDuplicate(PageItem item) throws Exception {
+        duplicatePages.incrementAndGet();
+        log.debug("Почти дубликат {} страницы {}", item.url, item.canonicalPath);
+        if (settings.getDedup().getMode() == CrawlerSettings.DedupMode.ALIAS) {
+            handOff(persistQueue, item);
+            return;
+        }
+        if (item.known != null) {
+            pageIndexingUtils.deletePageIfExists(site, item.path);
+        }
+        frontier.done(item.url);
+    }
+
+    private void lemmatizeLoop() {
+        runStage(lemmatizeStage, item -> {
+            item.terms = pageIndexingUtils.analyze(item.text);
+            handOff(persistQueue, item);
+        });
+    }
+
+    private void persistLoop() {
+        CrawlerSettings.Pipeline p = settings.getPipeline();
+        int batchSize = Math.max(1, p.getPersistBatchSize());
+        List<PageItem> batch = new ArrayList<>(batchSize);
+        while (active()) {
+            try {
+                PageItem first = persistQueue.poll(POLL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(p.getPersistBatchWaitMs());
+                while (batch.size() < batchSize) {
+                    persistQueue.drainTo(batch, batchSize - batch.size());
+                    long left = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || left <= 0) {
+                        break;
+                    }
+                    PageItem next = persistQueue.poll(left, TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long t0 = System.nanoTime();
+            try {
+                persistBatch(batch);
+            } finally {
+                persistStage.record(t0, batch.size());
+                batch.forEach(item -> frontier.done(item.url));
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Пачка пишется одной транзакцией. Если она откатилась, страницы записываются по одной,
+     * чтобы ошибка одной страницы не теряла остальные и попала в отчёт с её адресом.
+     */
+    private void persistBatch(List<PageItem> batch) {
+        List<PageWrite> writes = new ArrayList<>(batch.size());
+        for (PageItem item : batch) {
+            writes.add(toWrite(item));
+        }
+        try {
+            pageIndexingUtils.savePages(site, writes);
+            return;
+        } catch (Exception e) {
+            if (batch.size() == 1) {
+                errorHandler.accept(batch.get(0).url, e);
+                return;
+            }
+            log.warn("Пачка из {} страниц сайта {} не записана, запись по одной: {}", batch.size(), site.getUrl(),
+                    e.getMessage());
+        }
+        for (PageItem item : batch) {
+            try {
+                pageIndexingUtils.savePages(site, List.of(toWrite(item)));
+            } catch (Exception e) {
+                errorHandler.accept(item.url, e);
+            }
+        }
+    }
+
+    private static PageWrite toWrite(PageItem item) {
+        return item.canonicalPath != null
+                ? PageWrite.alias(item.path, item.text, item.etag, item.lastModified, item.simhash, item.canonicalPath)
+                : PageWrite.page(item.path, item.text, item.etag, item.lastModified, item.simhash, item.terms);
+    }
+
+    private void runStage(Stage stage, StageAction action) {
+        while (active()) {
+            PageItem item;
+            try {
+                item = stage.input.poll(POLL_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (item == null) {
+                continue;
+            }
+            long t0 = System.nanoTime();
+            try {
+                action.accept(item);
+            } catch (Exception e) {
+                fail(item, e);
+            } finally {
+                stage.record(t0);
+            }
+        }
+    }
+
+    private void handOff(BlockingQueue<PageItem> queue, PageItem item) {
+        try {
+            while (!queue.offer(item, POLL_MS, TimeUnit.MILLISECONDS)) {
+                if (!active()) {
+                    frontier.complete();
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            frontier.complete();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void skipUnchanged(PageItem item) {
+        try {
+            pageIndexingUtils.touchPage(item.known, item.etag, item.lastModified);
+        } catch (Exception e) {
+            errorHandler.accept(item.url, e);
+        }
+        unchangedPages.incrementAndGet();
+        frontier.done(item.url);
+        log.debug("Страница не изменилась: {}", item.url);
+    }
+
+    private void fail(PageItem item, Exception e) {
+        if (active()) {
+            frontier.done(item.url);
+        } else {
+            // прервано остановкой: при возобновлении страница будет загружена снова
+            frontier.complete();
+        }
+        errorHandler.accept(item.url, e);
+    }
+
+    private CrawlCheckpoint openCheckpoint(boolean resume) {
+        CrawlerSettings.Checkpoint cfg = settings.getCheckpoint();
+        if (!cfg.isEnabled()) {
+            return null;
+        }
+        Path file = CrawlCheckpoint.fileFor(Path.of(cfg.getDir()), site.getId());
+        try {
+            CrawlCheckpoint checkpoint = CrawlCheckpoint.open(file, cfg.getFlushIntervalMs(), resume, frontier);
+            frontier.attach(checkpoint);
+            return checkpoint;
+        } catch (IOException e) {
+            log.warn("Журнал обхода {} недоступен, обход без возобновления: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private void closeCheckpoint(CrawlCheckpoint checkpoint) {
+        if (checkpoint == null) {
+            return;
+        }
+        frontier.attach(null);
+        if (running.getAsBoolean() && frontier.isExhausted()) {
+            checkpoint.delete();
+        } else {
+            checkpoint.close();
+            log.info("Обход {} прерван, журнал сохранён для возобновления", site.getUrl());
+        }
+    }
+
+    private boolean active() {
+        return !finished && running.getAsBoolean() && !Thread.currentThread().isInterrupted();
+    }
+
+    private void start(Stage stage, Runnable loop) {
+        String prefix = "indexing-" + stage.name + "-" + site.getId() + "-";
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(stage.threads, r -> {
+            Thread t = new Thread(r, prefix + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        for (int i = 0; i < stage.threads; i++) {
+            executor.submit(loop);
+        }
+        executors.add(executor);
+    }
+
+    private void shutdown() {
+        boolean stopped = !running.getAsBoolean();
+        for (ExecutorService executor : executors) {
+            if (stopped) {
+                executor.shutdownNow();
+            } else {
+                executor.shutdown();
+            }
+        }
+        for (ExecutorService executor : executors) {
+            try {
+                if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public IndexingMetricsResponse.SiteMetrics metrics() {
+        IndexingMetricsResponse.SiteMetrics m = new IndexingMetricsResponse.SiteMetrics();
+        double elapsed = elapsedSeconds();
+        m.setUrl(site.getUrl());
+        m.setActive(!finished);
+        m.setElapsedSeconds(elapsed);
+        m.setFrontierSize(frontier.size());
+        m.setSpilledUrls(frontier.spilledCount());
+        m.setDiscoveredUrls(frontier.visitedCount());
+        m.setVisitedMemoryBytes(frontier.visitedMemoryBytes());
+        m.setUnchangedPages(unchangedPages.get());
+        m.setDuplicatePages(duplicatePages.get());
+        m.setRelCanonicalPages(relCanonicalPages.get());
+        m.setSkippedContent(skippedContent.get());
+        m.setFetchedBytes(fetchedBytes.get());
+        m.setSitemapUrls(sitemapUrls.get());
+        m.setDisallowedUrls(disallowedUrls.get());
+        m.setStages(List.of(fetchStage.metrics(elapsed), parseStage.metrics(elapsed),
+                lemmatizeStage.metrics(elapsed), persistStage.metrics(elapsed)));
+        return m;
+    }
+
+    private double elapsedSeconds() {
+        if (startNanos == 0) {
+            return 0;
+        }
+        long end = endNanos != 0 ? endNanos : System.nanoTime();
+        return Math.max(1e-3, (end - startNanos) / 1_000_000_000.0);
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+
+    @FunctionalInterface
+    private interface StageAction {
+        void accept(PageItem item) throws Exception;
+    }
+
+    private static final class PageItem {
+        final String url;
+        final int depth;
+        String path;
+        PageEntity known;
+        // тело ответа до разбора; null после разбора и при 304
+        PageIndexingUtils.FetchResult response;
+        String etag;
+        String lastModified;
+        String text;
+        Long simhash;
+        // путь оригинала, если страница — почти дубликат
+        String canonicalPath;
+        PageTerms terms;
+
+        PageItem(String url, int depth) {
+            this.url = url;
+            this.depth = depth;
+        }
+    }
+
+    private static final class Stage {
+        final String name;
+        final int threads;
+        final BlockingQueue<PageItem> input;
+        final AtomicLong processed = new AtomicLong();
+        final AtomicLong busyNanos = new AtomicLong();
+
+        Stage(String name, int threads, BlockingQueue<PageItem> input) {
+            this.name = name;
+            this.threads = Math.max(1, threads);
+            this.input = input;
+        }
+
+        void record(long startNanos) {
+            record(startNanos, 1);
+        }
+
+        void record(long startNanos, int pages) {
+            busyNanos.addAndGet(System.nanoTime() - startNanos);
+            processed.addAndGet(pages);
+        }
+
+        IndexingMetricsResponse.StageMetrics metrics(double elapsedSeconds) {
+            IndexingMetricsResponse.StageMetrics m = new IndexingMetricsResponse.StageMetrics();
+            m.setName(name);
+            m.setThreads(threads);
+            m.setQueueSize(input == null ? 0 : input.size());
+            m.setQueueCapacity(input == null ? 0 : input.size() + input.remainingCapacity());
+            m.setProcessed(processed.get());
+            if (elapsedSeconds > 0) {
+                m.setPagesPerSecond(processed.get() / elapsedSeconds);
+                m.setBusyRatio(busyNanos.get() / 1_000_000_000.0 / (elapsedSeconds * threads));
+            }
+            return m;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package searchengine.crawler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Приоритетная очередь обхода из корзин: приоритет [0, 1] делится на {@link #BUCKETS} уровней,
+ * выдача идёт из самой приоритетной непустой корзины, внутри корзины — по порядку.
+ * Когда в памяти больше {@code maxInMemory} URL, новые записи дописываются в файл своей корзины
+ * со всеми признаками приоритета и читаются обратно порциями, когда до неё доходит очередь.
+ * Пока у корзины есть непрочитанный файл, новые записи этой корзины тоже идут в файл, поэтому
+ * порядок внутри корзины и между корзинами сохраняется. Повторная ссылка поднимает URL в более
+ * высокую корзину, если он ещё в памяти, и встаёт в её конец раньше записей из файла;
+ * старая запись при этом не удаляется, а пропускается при выдаче.
+ */
+class PriorityFrontierQueue implements FrontierQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(PriorityFrontierQueue.class);
+    static final int BUCKETS = 16;
+
+    private final CrawlPriority priority;
+    private final int maxInMemory;
+    private final int refillBatch;
+    private final Bucket[] buckets = new Bucket[BUCKETS];
+    private final Map<String, QueuedUrl> inMemory = new HashMap<>();
+    private long spilled;
+    private long lost;
+
+    PriorityFrontierQueue(CrawlPriority priority, int maxInMemory, int refillBatch, Path spillDir, String name) {
+        this.priority = priority;
+        this.maxInMemory = Math.max(1, maxInMemory);
+        this.refillBatch = Math.max(1, refillBatch);
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new Bucket(spillDir.resolve(name + "-frontier-" + i + ".queue"));
+        }
+    }
+
+    @Override
+    public synchronized void push(QueuedUrl url) {
+        int bucket = bucketOf(url);
+        Bucket target = buckets[bucket];
+        if ((inMemory.size() >= maxInMemory || target.hasSpilled()) && target.spill(url)) {
+            spilled++;
+            return;
+        }
+        keep(url, bucket);
+    }
+
+    @Override
+    public synchronized void reference(String url) {
+        QueuedUrl queued = inMemory.get(url);
+        if (queued == null) {
+            return;
+        }
+        queued.addInlink();
+        int bucket = bucketOf(queued);
+        if (bucket > queued.bucket) {
+            queued.bucket = bucket;
+            buckets[bucket].memory.addLast(queued);
+        }
+    }
+
+    @Override
+    public synchronized QueuedUrl poll() {
+        for (int b = BUCKETS - 1; b >= 0; b--) {
+            Bucket bucket = buckets[b];
+            while (true) {
+                QueuedUrl url = bucket.memory.pollFirst();
+                if (url == null) {
+                    int loaded = bucket.refill(refillBatch, b);
+                    if (loaded == 0) {
+                        break;
+                    }
+                    spilled -= loaded;
+                    continue;
+                }
+                if (url.bucket != b) {
+                    // запись перенесена в другую корзину или уже выдана
+                    continue;
+                }
+                url.bucket = -1;
+                inMemory.remove(url.getUrl());
+                return url;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized long spilledCount() {
+        return spilled;
+    }
+
+    @Override
+    public synchronized long drainLost() {
+        long result = lost;
+        lost = 0;
+        return result;
+    }
+
+    @Override
+    public synchronized void close() {
+        for (Bucket bucket : buckets) {
+            bucket.reset();
+        }
+        inMemory.clear();
+        spilled = 0;
+    }
+
+    private void keep(QueuedUrl url, int bucket) {
+        url.bucket = bucket;
+        buckets[bucket].memory.addLast(url);
+        inMemory.put(url.getUrl(), url);
+    }
+
+    private int bucketOf(QueuedUrl url) {
+        return Math.min(BUCKETS - 1, Math.max(0, (int) (priority.score(url) * BUCKETS)));
+    }
+
+    private final class Bucket {
+        final ArrayDeque<QueuedUrl> memory = new ArrayDeque<>();
+        final Path file;
+        BufferedWriter writer;
+        BufferedReader reader;
+        long written;
+        long read;
+
+        Bucket(Path file) {
+            this.file = file;
+        }
+
+        boolean hasSpilled() {
+            return read < written;
+        }
+
+        /**
+         * Строка файла: глубина, приоритет из sitemap, lastmod в миллисекундах, признак изменения,
+         * число ссылок и URL через табуляцию; отсутствующие значения пустые.
+         *
+         * @return {@code false}, если записать на диск не удалось и URL нужно оставить в памяти
+         */
+        boolean spill(QueuedUrl url) {
+            try {
+                if (writer == null) {
+                    Files.createDirectories(file.getParent());
+                    writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                }
+                writer.write(Integer.toString(url.getDepth()));
+                writer.write('\t');
+                if (url.getSitemapPriority() != null) {
+                    writer.write(Double.toString(url.getSitemapPriority()));
+                }
+                writer.write('\t');
+                if (url.getLastModified() != null) {
+                    writer.write(Long.toString(url.getLastModified().toEpochMilli()));
+                }
+                writer.write('\t');
+                writer.write(url.isChanged() ? '1' : '0');
+                writer.write('\t');
+                writer.write(Integer.toString(url.getInlinks()));
+                writer.write('\t');
+                writer.write(url.getUrl());
+                writer.newLine();
+                written++;
+                return true;
+            } catch (IOException e) {
+                log.warn("Не удалось вынести очередь обхода на диск {}: {}", file, e.getMessage());
+                return false;
+            }
+        }
+
+        int refill(int max, int index) {
+            if (read == written) {
+                return 0;
+            }
+            int loaded = 0;
+            try {
+                writer.flush();
+                if (reader == null) {
+                    reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+                }
+                while (loaded < max && read < written) {
+                    String line = reader.readLine();
+                    if (line == null) {
+                        break;
+                    }
+                    read++;
+                    keep(parse(line), index);
+                    loaded++;
+                }
+            } catch (IOException | RuntimeException e) {
+                log.error("Не удалось прочитать очередь обхода {}, потеряно URL: {}", file, written - read, e);
+                lost += written - read;
+                spilled -= written - read;
+                read = written;
+            }
+            if (read == written) {
+                closeFile();
+            }
+            return loaded;
+        }
+
+        private QueuedUrl parse(String line) {
+            String[] f = line.split("\t", 6);
+            return new QueuedUrl(f[5], Integer.parseInt(f[0]),
+                    f[1].isEmpty() ? null : Double.valueOf(f[1]),
+                    f[2].isEmpty() ? null : Instant.ofEpochMilli(Long.parseLong(f[2])),
+                    f[3].equals("1"), Integer.parseInt(f[4]));
+        }
+
+        void reset() {
+            memory.clear();
+            closeFile();
+        }
+
+        private void closeFile() {
+            try {
+                if (reader != null) {
+                    reader.close();
+                }
+                if (writer != null) {
+                    writer.close();
+                }
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Не удалось удалить файл очереди обхода {}: {}", file, e.getMessage());
+            }
+            reader = null;
+            writer = null;
+            written = 0;
+            read = 0;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package searchengine.crawler;
+
+import lombok.Getter;
+
+import java.time.Instant;
+
+/**
+ * URL в очереди обхода вместе с признаками, из которых считается его приоритет.
+ */
+@Getter
+public class QueuedUrl {
+    private final String url;
+    // число переходов по ссылкам от стартовой страницы
+    private final int depth;
+    private final Double sitemapPriority;
+    private final Instant lastModified;
+    // страница новая или изменилась по lastmod из sitemap
+    private final boolean changed;
+    private int inlinks;
+    // корзина приоритетной очереди, в которой запись действительна; -1 — запись уже выдана
+    int bucket = -1;
+
+    public QueuedUrl(String url, int depth) {
+        this(url, depth, null, null, false);
+    }
+
+    public QueuedUrl(String url, int depth, Double sitemapPriority, Instant lastModified, boolean changed) {
+        this(url, depth, sitemapPriority, lastModified, changed, 0);
+    }
+
+    /** Восстановление записи, вынесенной очередью на диск, вместе с накопленными ссылками. */
+    QueuedUrl(String url, int depth, Double sitemapPriority, Instant lastModified, boolean changed, int inlinks) {
+        this.url = url;
+        this.depth = depth;
+        this.sitemapPriority = sitemapPriority;
+        this.lastModified = lastModified;
+        this.changed = changed;
+        this.inlinks = inlinks;
+    }
+
+    void addInlink() {
+        inlinks++;
+    }
+}
@@ -0,0 +1,93 @@
+package searchengine.crawler;
+
+import lombok.RequiredArgsConstructor;
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlerSettings;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * robots.txt по хостам с временем жизни записи. Если файл недоступен или ответ не 2xx,
+ * ограничений нет: сбой robots.txt не должен останавливать обход сайта.
+ */
+@Component
+@RequiredArgsConstructor
+public class RobotsCache {
+
+    private static final Logger log = LoggerFactory.getLogger(RobotsCache.class);
+
+    private final CrawlerSettings crawlerSettings;
+    private final HostScheduler hostScheduler;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public RobotsRules rulesFor(String siteUrl) {
+        if (!crawlerSettings.getDiscovery().isRobots()) {
+            return RobotsRules.ALLOW_ALL;
+        }
+        String origin = originOf(siteUrl);
+        long ttlNanos = TimeUnit.MINUTES.toNanos(crawlerSettings.getDiscovery().getRobotsTtlMinutes());
+        Entry entry = entries.get(origin);
+        if (entry == null || System.nanoTime() - entry.loadedNanos > ttlNanos) {
+            entry = new Entry(load(origin + "/robots.txt"), System.nanoTime());
+            entries.put(origin, entry);
+        }
+        return entry.rules;
+    }
+
+    private RobotsRules load(String robotsUrl) {
+        int status = -1;
+        HostScheduler.Permit permit = null;
+        try {
+            permit = hostScheduler.acquire(robotsUrl);
+            Connection.Response response = Jsoup.connect(robotsUrl)
+                    .userAgent("Mozilla/5.0 (compatible; " + RobotsRules.AGENT + "/1.0)")
+                    .timeout(10_000)
+                    .ignoreContentType(true)
+                    .ignoreHttpErrors(true)
+                    .execute();
+            status = response.statusCode();
+            if (status < 200 || status >= 300) {
+                log.info("{} ответил {}, ограничений robots.txt нет", robotsUrl, status);
+                return RobotsRules.ALLOW_ALL;
+            }
+            RobotsRules rules = RobotsRules.parse(response.body());
+            if (rules.getCrawlDelaySeconds() != null && rules.getCrawlDelaySeconds() > 0) {
+                hostScheduler.limitRate(robotsUrl, 1.0 / rules.getCrawlDelaySeconds());
+            }
+            log.info("Загружен {}: sitemap {}, crawl-delay {}", robotsUrl, rules.getSitemaps().size(),
+                    rules.getCrawlDelaySeconds());
+            return rules;
+        } catch (IOException e) {
+            log.warn("Не удалось загрузить {}: {}", robotsUrl, e.getMessage());
+            return RobotsRules.ALLOW_ALL;
+        } finally {
+            if (permit != null) {
+                permit.release(status, null);
+            }
+        }
+    }
+
+    private static String originOf(String url) {
+        URI uri = URI.create(url);
+        String port = uri.getPort() > 0 ? ":" + uri.getPort() : "";
+        return uri.getScheme() + "://" + uri.getHost() + port;
+    }
+
+    private static final class Entry {
+        final RobotsRules rules;
+        final long loadedNanos;
+
+        Entry(RobotsRules rules, long loadedNanos) {
+            this.rules = rules;
+            this.loadedNanos = loadedNanos;
+        }
+    }
+}
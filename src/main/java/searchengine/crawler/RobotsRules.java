@@ -0,0 +1,157 @@
+package searchengine.crawler;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Правила robots.txt для нашего агента. Выбирается группа с нашим именем, иначе группа «*».
+ * Для URL побеждает самое длинное совпавшее правило, при равной длине — Allow;
+ * поддерживаются шаблоны {@code *} и {@code $}, как у основных поисковиков.
+ */
+public class RobotsRules {
+
+    public static final String AGENT = "SearchEngineBot";
+    public static final RobotsRules ALLOW_ALL = new RobotsRules(List.of(), List.of(), null);
+
+    private final List<Rule> rules;
+    private final List<String> sitemaps;
+    private final Double crawlDelaySeconds;
+
+    private RobotsRules(List<Rule> rules, List<String> sitemaps, Double crawlDelaySeconds) {
+        this.rules = rules;
+        this.sitemaps = sitemaps;
+        this.crawlDelaySeconds = crawlDelaySeconds;
+    }
+
+    public static RobotsRules parse(String content) {
+        String agent = AGENT.toLowerCase(Locale.ROOT);
+        List<String> sitemaps = new ArrayList<>();
+        Group own = null;
+        Group any = null;
+        Group current = null;
+        boolean groupHasRules = false;
+        for (String rawLine : content.split("\r?\n|\r")) {
+            int hash = rawLine.indexOf('#');
+            String line = (hash >= 0 ? rawLine.substring(0, hash) : rawLine).trim();
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            String key = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+            switch (key) {
+                case "user-agent":
+                    if (current == null || groupHasRules) {
+                        current = new Group();
+                        groupHasRules = false;
+                    }
+                    String name = value.toLowerCase(Locale.ROOT);
+                    int slash = name.indexOf('/');
+                    name = slash >= 0 ? name.substring(0, slash).trim() : name;
+                    if (name.equals("*")) {
+                        any = any == null ? current : any;
+                    } else if (name.equals(agent)) {
+                        own = own == null ? current : own;
+                    }
+                    break;
+                case "allow":
+                case "disallow":
+                    groupHasRules = true;
+                    if (current != null && !value.isEmpty()) {
+                        current.rules.add(new Rule(value, key.equals("allow")));
+                    }
+                    break;
+                case "crawl-delay":
+                    groupHasRules = true;
+                    if (current != null) {
+                        try {
+                            current.crawlDelay = Double.parseDouble(value);
+                        } catch (NumberFormatException ignored) {
+                            // некорректное значение игнорируется
+                        }
+                    }
+                    break;
+                case "sitemap":
+                    if (!value.isEmpty()) {
+                        sitemaps.add(value);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        Group group = own != null ? own : any;
+        return group == null
+                ? new RobotsRules(List.of(), sitemaps, null)
+                : new RobotsRules(group.rules, sitemaps, group.crawlDelay);
+    }
+
+    public boolean isAllowed(String url) {
+        if (rules.isEmpty()) {
+            return true;
+        }
+        String path = pathOf(url);
+        Rule best = null;
+        for (Rule rule : rules) {
+            if (rule.matches(path) && (best == null || rule.length > best.length
+                    || rule.length == best.length && rule.allow)) {
+                best = rule;
+            }
+        }
+        return best == null || best.allow;
+    }
+
+    public List<String> getSitemaps() {
+        return sitemaps;
+    }
+
+    public Double getCrawlDelaySeconds() {
+        return crawlDelaySeconds;
+    }
+
+    private static String pathOf(String url) {
+        try {
+            URI uri = URI.create(url);
+            String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+            return uri.getRawQuery() == null ? path : path + "?" + uri.getRawQuery();
+        } catch (IllegalArgumentException e) {
+            return url;
+        }
+    }
+
+    private static final class Group {
+        final List<Rule> rules = new ArrayList<>();
+        Double crawlDelay;
+    }
+
+    private static final class Rule {
+        final Pattern pattern;
+        final int length;
+        final boolean allow;
+
+        Rule(String value, boolean allow) {
+            this.length = value.length();
+            this.allow = allow;
+            boolean anchored = value.endsWith("$");
+            String body = anchored ? value.substring(0, value.length() - 1) : value;
+            StringBuilder regex = new StringBuilder();
+            for (String part : body.split("\\*", -1)) {
+                if (regex.length() > 0) {
+                    regex.append(".*");
+                }
+                regex.append(Pattern.quote(part));
+            }
+            if (anchored) {
+                regex.append('$');
+            }
+            this.pattern = Pattern.compile(regex.toString());
+        }
+
+        boolean matches(String path) {
+            return pattern.matcher(path).lookingAt();
+        }
+    }
+}
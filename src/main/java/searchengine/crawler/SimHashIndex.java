@@ -0,0 +1,112 @@
+package searchengine.crawler;
+
+import searchengine.utils.SimHash;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Индекс отпечатков SimHash страниц одного сайта для поиска почти дубликатов.
+ * 64 бита делятся на {@code maxDistance + 1} блоков: если отпечатки отличаются не более
+ * чем в maxDistance битах, хотя бы один блок у них совпадает целиком. Поэтому кандидаты
+ * ищутся точным поиском по каждому блоку, а расстояние Хэмминга считается только для них.
+ */
+public class SimHashIndex {
+
+    private final int maxDistance;
+    private final int[] shifts;
+    private final long[] masks;
+    private final List<Map<Long, List<Entry>>> tables;
+    private final Map<String, Entry> byPath = new HashMap<>();
+
+    public SimHashIndex(int maxDistance) {
+        this.maxDistance = Math.max(0, Math.min(7, maxDistance));
+        int blocks = this.maxDistance + 1;
+        shifts = new int[blocks];
+        masks = new long[blocks];
+        tables = new ArrayList<>(blocks);
+        for (int i = 0; i < blocks; i++) {
+            int from = i * 64 / blocks;
+            int to = (i + 1) * 64 / blocks;
+            shifts[i] = from;
+            // при одном блоке ширина 64, а 1L << 64 == 1L
+            masks[i] = to - from == 64 ? -1L : (1L << (to - from)) - 1;
+            tables.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Ищет страницу, почти совпадающую по отпечатку с {@code path}. Если такой нет,
+     * отпечаток запоминается за {@code path} (заменяя прежний) и возвращается null;
+     * иначе возвращается путь найденной страницы, а {@code path} из индекса убирается.
+     */
+    public synchronized String findOrAdd(String path, long fingerprint) {
+        String original = find(path, fingerprint);
+        remove(path);
+        if (original == null) {
+            add(path, fingerprint);
+        }
+        return original;
+    }
+
+    public synchronized void add(String path, long fingerprint) {
+        remove(path);
+        Entry entry = new Entry(path, fingerprint);
+        byPath.put(path, entry);
+        for (int i = 0; i < tables.size(); i++) {
+            tables.get(i).computeIfAbsent(block(fingerprint, i), k -> new ArrayList<>(1)).add(entry);
+        }
+    }
+
+    public synchronized int size() {
+        return byPath.size();
+    }
+
+    private String find(String path, long fingerprint) {
+        for (int i = 0; i < tables.size(); i++) {
+            List<Entry> candidates = tables.get(i).get(block(fingerprint, i));
+            if (candidates == null) {
+                continue;
+            }
+            for (Entry e : candidates) {
+                if (!e.path.equals(path) && SimHash.distance(e.fingerprint, fingerprint) <= maxDistance) {
+                    return e.path;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void remove(String path) {
+        Entry old = byPath.remove(path);
+        if (old == null) {
+            return;
+        }
+        for (int i = 0; i < tables.size(); i++) {
+            Long key = block(old.fingerprint, i);
+            List<Entry> list = tables.get(i).get(key);
+            if (list != null) {
+                list.remove(old);
+                if (list.isEmpty()) {
+                    tables.get(i).remove(key);
+                }
+            }
+        }
+    }
+
+    private long block(long fingerprint, int i) {
+        return (fingerprint >>> shifts[i]) & masks[i];
+    }
+
+    private static final class Entry {
+        final String path;
+        final long fingerprint;
+
+        Entry(String path, long fingerprint) {
+            this.path = path;
+            this.fingerprint = fingerprint;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package searchengine.crawler;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+public class SitemapEntry {
+    private String url;
+    // null, если в sitemap не указаны
+    private Instant lastModified;
+    private Double priority;
+}
@@ -0,0 +1,191 @@
+package searchengine.crawler;
+
+import lombok.RequiredArgsConstructor;
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlerSettings;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Потоковое чтение sitemap.xml и sitemap index через StAX: записи отдаются по одной,
+ * и файл на десятки мегабайт не держится в памяти ни целиком, ни в виде DOM.
+ * Вложенные sitemap из индекса читаются по очереди, не более {@code max-sitemaps} файлов.
+ */
+@Component
+@RequiredArgsConstructor
+public class SitemapReader {
+
+    private static final Logger log = LoggerFactory.getLogger(SitemapReader.class);
+    private static final XMLInputFactory XML = createFactory();
+
+    private final CrawlerSettings crawlerSettings;
+    private final HostScheduler hostScheduler;
+
+    /**
+     * @return число прочитанных записей URL
+     */
+    public long read(List<String> sitemapUrls, Consumer<SitemapEntry> consumer, BooleanSupplier running) {
+        CrawlerSettings.Discovery settings = crawlerSettings.getDiscovery();
+        Deque<String> pending = new ArrayDeque<>(sitemapUrls);
+        Set<String> seen = new HashSet<>(sitemapUrls);
+        long[] urls = {0};
+        int files = 0;
+        while (!pending.isEmpty() && files < settings.getMaxSitemaps() && running.getAsBoolean()
+                && urls[0] < settings.getMaxSitemapUrls()) {
+            String sitemapUrl = pending.poll();
+            files++;
+            try {
+                readOne(sitemapUrl, entry -> {
+                    if (urls[0] < settings.getMaxSitemapUrls()) {
+                        urls[0]++;
+                        consumer.accept(entry);
+                    }
+                }, nested -> {
+                    if (seen.add(nested)) {
+                        pending.add(nested);
+                    }
+                }, running);
+            } catch (IOException | XMLStreamException e) {
+                log.warn("Не удалось прочитать sitemap {}: {}", sitemapUrl, e.getMessage());
+            }
+        }
+        log.info("Прочитано sitemap-файлов {}, URL {}", files, urls[0]);
+        return urls[0];
+    }
+
+    private void readOne(String sitemapUrl, Consumer<SitemapEntry> urls, Consumer<String> nested,
+                         BooleanSupplier running) throws IOException, XMLStreamException {
+        int status = -1;
+        HostScheduler.Permit permit = hostScheduler.acquire(sitemapUrl);
+        try {
+            Connection.Response response = Jsoup.connect(sitemapUrl)
+                    .userAgent("Mozilla/5.0 (compatible; " + RobotsRules.AGENT + "/1.0)")
+                    .timeout(30_000)
+                    .maxBodySize(0)
+                    .ignoreContentType(true)
+                    .ignoreHttpErrors(true)
+                    .execute();
+            status = response.statusCode();
+            if (status != 200) {
+                log.info("Sitemap {} ответил {}", sitemapUrl, status);
+                return;
+            }
+            try (InputStream in = decompress(response.bodyStream())) {
+                parse(in, urls, nested, running);
+            }
+        } finally {
+            permit.release(status, null);
+        }
+    }
+
+    private static void parse(InputStream in, Consumer<SitemapEntry> urls, Consumer<String> nested,
+                              BooleanSupplier running) throws XMLStreamException {
+        XMLStreamReader reader = XML.createXMLStreamReader(in);
+        try {
+            String loc = null;
+            String lastmod = null;
+            String priority = null;
+            while (reader.hasNext() && running.getAsBoolean()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    switch (reader.getLocalName()) {
+                        case "url":
+                        case "sitemap":
+                            loc = null;
+                            lastmod = null;
+                            priority = null;
+                            break;
+                        case "loc":
+                            loc = reader.getElementText().trim();
+                            break;
+                        case "lastmod":
+                            lastmod = reader.getElementText().trim();
+                            break;
+                        case "priority":
+                            priority = reader.getElementText().trim();
+                            break;
+                        default:
+                            break;
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && loc != null && !loc.isEmpty()) {
+                    if (reader.getLocalName().equals("url")) {
+                        urls.accept(new SitemapEntry(loc, parseLastmod(lastmod), parsePriority(priority)));
+                        loc = null;
+                    } else if (reader.getLocalName().equals("sitemap")) {
+                        nested.accept(loc);
+                        loc = null;
+                    }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Файлы .xml.gz отдаются без Content-Encoding, поэтому gzip определяется по сигнатуре.
+     */
+    private static InputStream decompress(InputStream raw) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(raw);
+        in.mark(2);
+        int b1 = in.read();
+        int b2 = in.read();
+        in.reset();
+        return b1 == 0x1f && b2 == 0x8b ? new GZIPInputStream(in) : in;
+    }
+
+    static Instant parseLastmod(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            if (value.length() == 10) {
+                return LocalDate.parse(value).atStartOfDay(ZoneOffset.UTC).toInstant();
+            }
+            return OffsetDateTime.parse(value).toInstant();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static Double parsePriority(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static XMLInputFactory createFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+}
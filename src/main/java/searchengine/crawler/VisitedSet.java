@@ -0,0 +1,49 @@
+package searchengine.crawler;
+
+import searchengine.config.CrawlerSettings;
+
+/**
+ * Множество посещённых URL обхода. Реализации различаются памятью на URL
+ * и допустимостью ложных срабатываний: ложное «уже посещён» означает, что URL не будет загружен.
+ */
+public interface VisitedSet {
+
+    /**
+     * @return {@code true}, если URL добавлен впервые
+     */
+    boolean add(String url);
+
+    boolean contains(String url);
+
+    long size();
+
+    long memoryBytes();
+
+    static VisitedSet create(CrawlerSettings.Visited settings) {
+        switch (settings.getType()) {
+            case EXACT:
+                return new ExactVisitedSet();
+            case BLOOM:
+                return new BloomVisitedSet(settings.getExpectedUrls(), settings.getFalsePositiveRate());
+            default:
+                return new FingerprintVisitedSet();
+        }
+    }
+
+    /**
+     * 64-битный хэш URL: FNV-1a по символам с финальным перемешиванием из MurmurHash3.
+     */
+    static long hash64(String url) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < url.length(); i++) {
+            h ^= url.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,45 @@
+package searchengine.dto.metrics;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class IndexingMetricsResponse {
+    private boolean result;
+    private List<SiteMetrics> sites;
+
+    @Data
+    public static class SiteMetrics {
+        private String url;
+        private boolean active;
+        private double elapsedSeconds;
+        private int frontierSize;
+        private long spilledUrls;
+        private long discoveredUrls;
+        private long visitedMemoryBytes;
+        private long unchangedPages;
+        private long duplicatePages;
+        private long relCanonicalPages;
+        private long skippedContent;
+        private long fetchedBytes;
+        private long sitemapUrls;
+        private long disallowedUrls;
+        private List<StageMetrics> stages;
+    }
+
+    @Data
+    public static class StageMetrics {
+        private String name;
+        private int threads;
+        private int queueSize;
+        private int queueCapacity;
+        private long processed;
+        private double pagesPerSecond;
+        private double busyRatio;
+    }
+}
@@ -0,0 +1,16 @@
+package searchengine.dto.metrics;
+
+import lombok.Data;
+
+@Data
+public class SearchCacheMetricsResponse {
+    private boolean result;
+    private boolean enabled;
+    private long hits;
+    private long misses;
+    private double hitRate;
+    private long evictions;
+    private long invalidations;
+    private int entries;
+    private long bytes;
+}
@@ -23,4 +23,9 @@ public class IndexEntity {
 
     @Column(name = "rank_value")
     private float rank;
+
+    // позиции леммы на странице в формате PositionCodec; null, если индекс без позиций
+    @Lob
+    @Column(columnDefinition = "BLOB")
+    private byte[] positions;
 }
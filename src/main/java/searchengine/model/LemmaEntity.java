@@ -19,4 +19,12 @@ public class LemmaEntity {
 
     private String lemma;
     private int frequency;
+
+    @Column(name = "doc_frequency", columnDefinition = "INT NOT NULL DEFAULT 0")
+    private int docFrequency;
+
+    // наибольший rank леммы на страницах сайта — верхняя граница для отсечения MaxScore;
+    // при удалении страниц не уменьшается, null — ещё не посчитана
+    @Column(name = "max_rank")
+    private Integer maxRank;
 }
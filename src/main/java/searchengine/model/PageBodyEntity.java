@@ -0,0 +1,26 @@
+package searchengine.model;
+
+import lombok.Data;
+
+import javax.persistence.*;
+
+/**
+ * Текст страницы, сжатый LZ4. Хранится отдельно от page, чтобы выборки метаданных
+ * страниц не тянули тела; читается и пишется через PageBodyRepository.
+ */
+@Entity
+@Table(name = "page_body")
+@Data
+public class PageBodyEntity {
+    @Id
+    @Column(name = "page_id")
+    private Integer pageId;
+
+    // длина текста в UTF-8 до сжатия, нужна для распаковки
+    @Column(name = "raw_length", nullable = false)
+    private int rawLength;
+
+    @Lob
+    @Column(columnDefinition = "MEDIUMBLOB", nullable = false)
+    private byte[] data;
+}
@@ -4,6 +4,9 @@ import lombok.Data;
 
 import javax.persistence.*;
 
+/**
+ * Страница сайта без текста: текст хранится сжатым в page_body, см. PageBodyRepository.
+ */
 @Entity
 @Table(name = "page",
         uniqueConstraints = @UniqueConstraint(columnNames = {"site_id", "path"}))
@@ -20,6 +23,25 @@ public class PageEntity {
     private String path;
     private int code;
 
-    @Column(columnDefinition = "MEDIUMTEXT")
-    private String content;
+    // валидаторы из ответа сервера для условного GET при повторном обходе
+    private String etag;
+
+    @Column(name = "last_modified")
+    private String lastModified;
+
+    // SHA-256 извлечённого текста: если не изменился, индекс страницы не переписывается
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    // SimHash текста для поиска почти дубликатов
+    private Long simhash;
+
+    // у почти дубликата: путь страницы-оригинала; текст и индекс у такой страницы не хранятся
+    @Column(name = "canonical_path")
+    private String canonicalPath;
+
+    // длина страницы в леммах (сумма rank) для нормализации BM25; пишется только
+    // UPDATE из IndexBatchRepository, save() её не перезаписывает
+    @Column(name = "term_count", insertable = false, updatable = false)
+    private Integer termCount;
 }
@@ -24,6 +24,14 @@ public class SiteEntity {
     private String url;
     private String name;
 
+    // меняется только атомарными UPDATE из PageIndexingUtils, save() его не перезаписывает
+    @Column(name = "page_count", columnDefinition = "INT NOT NULL DEFAULT 0", insertable = false, updatable = false)
+    private int pageCount;
+
+    // сумма term_count проиндексированных страниц: средняя длина страницы для BM25
+    @Column(name = "term_count", columnDefinition = "BIGINT NOT NULL DEFAULT 0", insertable = false, updatable = false)
+    private long termCount;
+
     public enum Status {
         INDEXING, INDEXED, FAILED
     }
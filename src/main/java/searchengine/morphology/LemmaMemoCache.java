@@ -0,0 +1,51 @@
+package searchengine.morphology;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Кэш «словоформа -> лемма» фиксированного размера с прямым отображением: слот выбирается
+ * по хэшу, при коллизии запись просто вытесняется. Поиск сравнивает символы буфера
+ * токенизатора с ключом и на попадании ничего не выделяет. Записи неизменяемые,
+ * поэтому читать и писать можно из любых потоков без блокировок.
+ */
+final class LemmaMemoCache {
+
+    private final AtomicReferenceArray<Entry> table;
+    private final int mask;
+
+    LemmaMemoCache(int capacity) {
+        int size = Integer.highestOneBit(Math.max(16, capacity) - 1) << 1;
+        table = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+    }
+
+    Entry get(char[] buffer, int length, int hash) {
+        Entry entry = table.get(hash & mask);
+        if (entry == null || entry.hash != hash || entry.form.length() != length) {
+            return null;
+        }
+        for (int i = 0; i < length; i++) {
+            if (entry.form.charAt(i) != buffer[i]) {
+                return null;
+            }
+        }
+        return entry;
+    }
+
+    void put(Entry entry) {
+        table.lazySet(entry.hash & mask, entry);
+    }
+
+    static final class Entry {
+        final String form;
+        final int hash;
+        // null — служебное слово
+        final String lemma;
+
+        Entry(String form, int hash, String lemma) {
+            this.form = form;
+            this.hash = hash;
+            this.lemma = lemma;
+        }
+    }
+}
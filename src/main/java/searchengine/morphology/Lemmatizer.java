@@ -0,0 +1,57 @@
+package searchengine.morphology;
+
+/**
+ * Приводит слово к лемме по словарям morfologik: кириллица — русский, остальное — английский.
+ * Результаты запоминаются в {@link LemmaMemoCache}: частотность слов сильно неравномерна,
+ * и почти все вхождения на странице обслуживаются из кэша без обращения к словарю.
+ */
+public final class Lemmatizer {
+
+    private final MorphologyDictionary russian;
+    private final MorphologyDictionary english;
+    private final LemmaMemoCache cache;
+    private final boolean stopWords;
+
+    public Lemmatizer(int memoCacheSize, boolean stopWords) {
+        this.russian = MorphologyDictionary.load("ru");
+        this.english = MorphologyDictionary.load("en");
+        this.cache = new LemmaMemoCache(memoCacheSize);
+        this.stopWords = stopWords;
+    }
+
+    /**
+     * Лемма слова из {@code buffer[0, length)} в нижнем регистре или {@code null} для служебного слова.
+     */
+    public String lemma(char[] buffer, int length) {
+        int hash = hash(buffer, length);
+        LemmaMemoCache.Entry entry = cache.get(buffer, length, hash);
+        if (entry == null) {
+            String word = new String(buffer, 0, length);
+            entry = new LemmaMemoCache.Entry(word, hash, resolve(word));
+            cache.put(entry);
+        }
+        return entry.lemma;
+    }
+
+    private String resolve(String word) {
+        String normalized = word.indexOf('ё') >= 0 ? word.replace('ё', 'е') : word;
+        MorphologyDictionary dictionary =
+                Character.UnicodeBlock.of(normalized.charAt(0)) == Character.UnicodeBlock.CYRILLIC ? russian : english;
+        if (stopWords && dictionary.isStopWord(normalized)) {
+            return null;
+        }
+        String lemma = dictionary.lemma(normalized);
+        if (stopWords && dictionary.isStopWord(lemma)) {
+            return null;
+        }
+        return lemma;
+    }
+
+    private static int hash(char[] buffer, int length) {
+        int h = 0;
+        for (int i = 0; i < length; i++) {
+            h = 31 * h + buffer[i];
+        }
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,128 @@
+package searchengine.morphology;
+
+import morfologik.stemming.Dictionary;
+import morfologik.stemming.DictionaryLookup;
+import morfologik.stemming.WordData;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Морфологический словарь одного языка: FSA-словарь morfologik «словоформа -> лемма + тег»
+ * (русский — словарь АОТ из LanguageTool, английский — словарь частей речи LanguageTool)
+ * и список служебных слов из {@code morphology/<язык>.stop}.
+ * У омонимичной формы лемма выбирается так: сама форма, если она начальная («лучше»),
+ * иначе первое существительное («стали» -> «сталь»), иначе первый разбор словаря.
+ * Слово вне словаря возвращается без изменений. Буква ё в леммах заменяется на е: словарь
+ * АОТ сам находит формы, записанные через е.
+ */
+final class MorphologyDictionary {
+
+    private static final Map<String, String> RESOURCES = Map.of(
+            "ru", "org/languagetool/resource/ru/russian.dict",
+            "en", "org/languagetool/resource/en/english.dict");
+    private static final String NOUN_TAG = "NN";
+
+    private final Dictionary dictionary;
+    private final Set<String> stopWords = new HashSet<>();
+    /** DictionaryLookup хранит буферы разбора и не потокобезопасен, сам словарь — неизменяемый. */
+    private final ThreadLocal<DictionaryLookup> lookup;
+
+    private MorphologyDictionary(Dictionary dictionary) {
+        this.dictionary = dictionary;
+        this.lookup = ThreadLocal.withInitial(() -> new DictionaryLookup(this.dictionary));
+    }
+
+    static MorphologyDictionary load(String language) {
+        String resource = RESOURCES.get(language);
+        if (resource == null) {
+            throw new IllegalArgumentException("Нет словаря для языка " + language);
+        }
+        URL url = MorphologyDictionary.class.getClassLoader().getResource(resource);
+        if (url == null) {
+            throw new IllegalStateException("Не найден ресурс " + resource);
+        }
+        MorphologyDictionary result;
+        try {
+            result = new MorphologyDictionary(Dictionary.read(url));
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось прочитать " + resource, e);
+        }
+        result.readStopWords("morphology/" + language + ".stop");
+        return result;
+    }
+
+    String lemma(String word) {
+        List<WordData> analyses = lookup.get().lookup(word);
+        if (analyses.isEmpty()) {
+            return word;
+        }
+        String noun = null;
+        String first = null;
+        for (WordData analysis : analyses) {
+            CharSequence stem = analysis.getStem();
+            if (stem == null || stem.length() == 0) {
+                continue;
+            }
+            String lemma = normalize(stem);
+            if (lemma.equals(word)) {
+                return lemma;
+            }
+            if (first == null) {
+                first = lemma;
+            }
+            if (noun == null && startsWith(analysis.getTag(), NOUN_TAG)) {
+                noun = lemma;
+            }
+        }
+        return noun != null ? noun : first != null ? first : word;
+    }
+
+    boolean isStopWord(String word) {
+        return stopWords.contains(word);
+    }
+
+    private static String normalize(CharSequence stem) {
+        String lemma = stem.toString().toLowerCase(Locale.ROOT);
+        return lemma.indexOf('ё') >= 0 ? lemma.replace('ё', 'е') : lemma;
+    }
+
+    private static boolean startsWith(CharSequence tag, String prefix) {
+        if (tag == null || tag.length() < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (tag.charAt(i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void readStopWords(String resource) {
+        InputStream in = MorphologyDictionary.class.getClassLoader().getResourceAsStream(resource);
+        if (in == null) {
+            throw new IllegalStateException("Не найден ресурс " + resource);
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    stopWords.add(line);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Не удалось прочитать " + resource, e);
+        }
+    }
+}
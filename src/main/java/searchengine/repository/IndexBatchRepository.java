@@ -0,0 +1,143 @@
+package searchengine.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DeadlockLoserDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import searchengine.config.IndexerSettings;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Запись лемм и индекса страницы несколькими многострочными запросами
+ * вместо SELECT + save на каждую лемму.
+ */
+@Repository
+@RequiredArgsConstructor
+public class IndexBatchRepository {
+
+    private static final int DEADLOCK_RETRIES = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final IndexerSettings indexerSettings;
+
+    /**
+     * Увеличивает frequency и doc_frequency существующих лемм сайта, поднимает max_rank
+     * и создаёт недостающие. Леммы должны идти в отсортированном порядке, чтобы
+     * параллельные потоки блокировали строки в одном порядке.
+     */
+    public void upsertLemmas(int siteId, List<String> lemmas, List<Integer> counts, List<Integer> docCounts,
+                             List<Integer> maxRanks) {
+        int batch = batchSize();
+        for (int from = 0; from < lemmas.size(); from += batch) {
+            int to = Math.min(lemmas.size(), from + batch);
+            upsertLemmaChunk(siteId, lemmas.subList(from, to), counts.subList(from, to), docCounts.subList(from, to),
+                    maxRanks.subList(from, to));
+        }
+    }
+
+    public Map<String, Integer> findLemmaIds(int siteId, List<String> lemmas) {
+        if (lemmas.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, Integer> ids = new HashMap<>(lemmas.size() * 2);
+        int batch = batchSize();
+        for (int from = 0; from < lemmas.size(); from += batch) {
+            List<String> chunk = lemmas.subList(from, Math.min(lemmas.size(), from + batch));
+            String sql = "SELECT id, lemma FROM lemma WHERE site_id = ? AND lemma IN (" + placeholders(chunk.size(), "?") + ")";
+            Object[] args = new Object[chunk.size() + 1];
+            args[0] = siteId;
+            for (int i = 0; i < chunk.size(); i++) {
+                args[i + 1] = chunk.get(i);
+            }
+            jdbcTemplate.query(sql, rs -> {
+                ids.put(rs.getString(2), rs.getInt(1));
+            }, args);
+        }
+        for (String lemma : lemmas) {
+            if (!ids.containsKey(lemma)) {
+                // collation считает формы равными (например, «е» и «ё») — ищем по одной
+                List<Integer> found = jdbcTemplate.queryForList(
+                        "SELECT id FROM lemma WHERE site_id = ? AND lemma = ?", Integer.class, siteId, lemma);
+                if (!found.isEmpty()) {
+                    ids.put(lemma, found.get(0));
+                }
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * @param positions закодированные позиции для каждой строки; null, если не хранятся
+     */
+    public void insertIndices(List<Integer> pageIds, List<Integer> lemmaIds, List<Integer> ranks,
+                              List<byte[]> positions) {
+        int batch = batchSize();
+        for (int from = 0; from < lemmaIds.size(); from += batch) {
+            int to = Math.min(lemmaIds.size(), from + batch);
+            List<Object> args = new ArrayList<>((to - from) * 4);
+            for (int i = from; i < to; i++) {
+                args.add(pageIds.get(i));
+                args.add(lemmaIds.get(i));
+                args.add((float) ranks.get(i));
+                args.add(positions.get(i));
+            }
+            jdbcTemplate.update("INSERT INTO search_index (page_id, lemma_id, rank_value, positions) VALUES "
+                    + placeholders(to - from, "(?, ?, ?, ?)"), args.toArray());
+        }
+    }
+
+    /** Записывает page.term_count страницам, только что получившим индекс. */
+    public void updateTermCounts(List<Integer> pageIds, List<Integer> termCounts) {
+        List<Object[]> args = new ArrayList<>(pageIds.size());
+        for (int i = 0; i < pageIds.size(); i++) {
+            args.add(new Object[]{termCounts.get(i), pageIds.get(i)});
+        }
+        jdbcTemplate.batchUpdate("UPDATE page SET term_count = ? WHERE id = ?", args);
+    }
+
+    private void upsertLemmaChunk(int siteId, List<String> lemmas, List<Integer> counts, List<Integer> docCounts,
+                                  List<Integer> maxRanks) {
+        List<Object> args = new ArrayList<>(lemmas.size() * 5);
+        for (int i = 0; i < lemmas.size(); i++) {
+            args.add(siteId);
+            args.add(lemmas.get(i));
+            args.add(counts.get(i));
+            args.add(docCounts.get(i));
+            args.add(maxRanks.get(i));
+        }
+        // GREATEST с NULL даёт NULL: непосчитанная граница остаётся непосчитанной
+        String sql = "INSERT INTO lemma (site_id, lemma, frequency, doc_frequency, max_rank) VALUES "
+                + placeholders(lemmas.size(), "(?, ?, ?, ?, ?)")
+                + " ON DUPLICATE KEY UPDATE frequency = frequency + VALUES(frequency),"
+                + " doc_frequency = doc_frequency + VALUES(doc_frequency),"
+                + " max_rank = GREATEST(max_rank, VALUES(max_rank))";
+        for (int attempt = 1; ; attempt++) {
+            try {
+                jdbcTemplate.update(sql, args.toArray());
+                return;
+            } catch (DeadlockLoserDataAccessException ex) {
+                if (attempt >= DEADLOCK_RETRIES) {
+                    throw ex;
+                }
+            }
+        }
+    }
+
+    private int batchSize() {
+        return Math.max(1, indexerSettings.getBatchSize());
+    }
+
+    private static String placeholders(int count, String group) {
+        StringBuilder sb = new StringBuilder(count * (group.length() + 2));
+        for (int i = 0; i < count; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(group);
+        }
+        return sb.toString();
+    }
+}
@@ -1,8 +1,10 @@
 package searchengine.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import searchengine.model.IndexEntity;
 import searchengine.model.PageEntity;
 
@@ -23,12 +25,13 @@ public interface IndexRepository extends JpaRepository<IndexEntity, Integer> {
     List<Object[]> findPageIdsAndScoresByLemmasAndSite(@Param("lemmas") List<String> lemmas,
                                                        @Param("siteUrl") String siteUrl);
 
-    @Query("SELECT i.page.id, i.lemma.lemma, SUM(i.rank) FROM IndexEntity i " +
+    /** Строки (pageId, лемма, tf, длина страницы в леммах или null). */
+    @Query("SELECT i.page.id, i.lemma.lemma, SUM(i.rank), MAX(i.page.termCount) FROM IndexEntity i " +
             "WHERE i.lemma.lemma IN :lemmas " +
             "GROUP BY i.page.id, i.lemma.lemma")
     List<Object[]> findPageLemmaTfByLemmas(@Param("lemmas") List<String> lemmas);
 
-    @Query("SELECT i.page.id, i.lemma.lemma, SUM(i.rank) FROM IndexEntity i " +
+    @Query("SELECT i.page.id, i.lemma.lemma, SUM(i.rank), MAX(i.page.termCount) FROM IndexEntity i " +
             "WHERE i.lemma.lemma IN :lemmas AND i.page.site.url = :siteUrl " +
             "GROUP BY i.page.id, i.lemma.lemma")
     List<Object[]> findPageLemmaTfByLemmasAndSite(@Param("lemmas") List<String> lemmas,
@@ -52,5 +55,11 @@ public interface IndexRepository extends JpaRepository<IndexEntity, Integer> {
     @Query("SELECT i FROM IndexEntity i WHERE i.page = :page")
     List<IndexEntity> findByPage(@Param("page") PageEntity page);
 
-    void deleteByPage(PageEntity page);
+    @Query("SELECT i.lemma.id, i.lemma.lemma, i.rank FROM IndexEntity i WHERE i.page = :page")
+    List<Object[]> findLemmaRanksByPage(@Param("page") PageEntity page);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM IndexEntity i WHERE i.page = :page")
+    int deleteByPage(@Param("page") PageEntity page);
 }
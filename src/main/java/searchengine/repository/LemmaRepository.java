@@ -1,6 +1,10 @@
 package searchengine.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import searchengine.model.LemmaEntity;
 import searchengine.model.SiteEntity;
 
@@ -10,4 +14,17 @@ public interface LemmaRepository extends JpaRepository<LemmaEntity, Integer> {
     Optional<LemmaEntity> findBySiteAndLemma(SiteEntity site, String lemma);
 
     long countBySite(SiteEntity site);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE LemmaEntity l SET l.frequency = l.frequency + :delta, " +
+            "l.docFrequency = l.docFrequency + 1, " +
+            "l.maxRank = CASE WHEN l.maxRank < :delta THEN :delta ELSE l.maxRank END WHERE l.id = :id")
+    int addPageOccurrences(@Param("id") Integer id, @Param("delta") int delta);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE lemma SET frequency = GREATEST(frequency - :delta, 0), " +
+            "doc_frequency = GREATEST(doc_frequency - 1, 0) WHERE id = :id", nativeQuery = true)
+    int removePageOccurrences(@Param("id") Integer id, @Param("delta") int delta);
 }
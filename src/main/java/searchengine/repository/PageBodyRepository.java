@@ -0,0 +1,139 @@
+package searchengine.repository;
+
+import lombok.RequiredArgsConstructor;
+import net.jpountz.lz4.LZ4Factory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import searchengine.config.IndexerSettings;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Тексты страниц в таблице page_body, сжатые LZ4. Читаются только там, где нужен
+ * сам текст (заголовок и сниппет результата поиска), остальные выборки страниц
+ * обходятся строкой page без тела.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PageBodyRepository {
+
+    private static final Logger log = LoggerFactory.getLogger(PageBodyRepository.class);
+    private static final LZ4Factory LZ4 = LZ4Factory.fastestInstance();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final IndexerSettings indexerSettings;
+
+    public void save(int pageId, String text) {
+        byte[] raw = text.getBytes(StandardCharsets.UTF_8);
+        jdbcTemplate.update("INSERT INTO page_body (page_id, raw_length, data) VALUES (?, ?, ?)"
+                        + " ON DUPLICATE KEY UPDATE raw_length = VALUES(raw_length), data = VALUES(data)",
+                pageId, raw.length, LZ4.fastCompressor().compress(raw));
+    }
+
+    public void delete(int pageId) {
+        jdbcTemplate.update("DELETE FROM page_body WHERE page_id = ?", pageId);
+    }
+
+    public String findText(int pageId) {
+        return findTexts(List.of(pageId)).get(pageId);
+    }
+
+    /**
+     * @return pageId -> текст; страниц без сохранённого текста в результате нет
+     */
+    public Map<Integer, String> findTexts(Collection<Integer> pageIds) {
+        if (pageIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<Integer, String> texts = new HashMap<>(pageIds.size() * 2);
+        String sql = "SELECT page_id, raw_length, data FROM page_body WHERE page_id IN ("
+                + String.join(", ", Collections.nCopies(pageIds.size(), "?")) + ")";
+        jdbcTemplate.query(sql, rs -> {
+            byte[] raw = LZ4.fastDecompressor().decompress(rs.getBytes(3), rs.getInt(2));
+            texts.put(rs.getInt(1), new String(raw, StandardCharsets.UTF_8));
+        }, pageIds.toArray());
+        return texts;
+    }
+
+    /**
+     * Копирует тексты из старой колонки page.content в page_body пачками. Выполняется в фоне:
+     * пока перенос идёт, у ещё не перенесённых страниц в выдаче вместо заголовка показывается
+     * путь. Сама колонка здесь не удаляется — это отдельный явный шаг
+     * {@link #dropLegacyContentColumn()}.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateLegacyContentOnStartup() {
+        if (!hasLegacyContentColumn()) {
+            return;
+        }
+        Thread migrator = new Thread(this::migrateLegacyContent, "page-body-migration");
+        migrator.setDaemon(true);
+        migrator.start();
+    }
+
+    void migrateLegacyContent() {
+        long start = System.currentTimeMillis();
+        int batch = Math.max(1, indexerSettings.getBatchSize());
+        int moved = 0;
+        try {
+            while (true) {
+                List<Integer> ids = new ArrayList<>(batch);
+                List<Object[]> args = new ArrayList<>(batch);
+                jdbcTemplate.query("SELECT id, content FROM page WHERE content IS NOT NULL LIMIT ?", rs -> {
+                    byte[] raw = rs.getString(2).getBytes(StandardCharsets.UTF_8);
+                    ids.add(rs.getInt(1));
+                    args.add(new Object[]{rs.getInt(1), raw.length, LZ4.fastCompressor().compress(raw)});
+                }, batch);
+                if (ids.isEmpty()) {
+                    break;
+                }
+                // текст обнуляется только после того, как копия в page_body записана
+                jdbcTemplate.batchUpdate("INSERT IGNORE INTO page_body (page_id, raw_length, data) VALUES (?, ?, ?)", args);
+                jdbcTemplate.update("UPDATE page SET content = NULL WHERE id IN ("
+                        + String.join(", ", Collections.nCopies(ids.size(), "?")) + ")", ids.toArray());
+                moved += ids.size();
+            }
+            log.info("Тексты страниц перенесены в page_body: {} страниц за {} мс; пустую колонку page.content "
+                    + "можно удалить через POST /api/dropLegacyContent", moved, System.currentTimeMillis() - start);
+        } catch (Exception ex) {
+            log.error("Перенос текстов страниц в page_body прерван после {} страниц: {}", moved, ex.getMessage(), ex);
+        }
+    }
+
+    public boolean hasLegacyContentColumn() {
+        Integer columns = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.columns "
+                + "WHERE table_schema = DATABASE() AND table_name = 'page' AND column_name = 'content'", Integer.class);
+        return columns != null && columns > 0;
+    }
+
+    /** Сколько страниц ещё хранят текст в page.content. */
+    public long countLegacyContent() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(content) FROM page", Long.class);
+        return count == null ? 0L : count;
+    }
+
+    /**
+     * Удаляет колонку page.content, если в ней не осталось ни одного текста.
+     *
+     * @throws IllegalStateException если перенос в page_body ещё не закончен
+     */
+    public void dropLegacyContentColumn() {
+        long remaining = countLegacyContent();
+        if (remaining > 0) {
+            throw new IllegalStateException("В page.content осталось " + remaining
+                    + " неперенесённых текстов, колонка не удалена");
+        }
+        jdbcTemplate.execute("ALTER TABLE page DROP COLUMN content");
+        log.info("Колонка page.content удалена");
+    }
+}
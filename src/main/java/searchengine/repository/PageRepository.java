@@ -1,8 +1,10 @@
 package searchengine.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import searchengine.model.PageEntity;
 import searchengine.model.SiteEntity;
 
@@ -18,4 +20,22 @@ public interface PageRepository extends JpaRepository<PageEntity, Integer> {
     List<PageEntity> findAllWithSiteByIdIn(@Param("ids") List<Integer> ids);
 
     Optional<PageEntity> findBySiteAndPath(SiteEntity site, String path);
+
+    @Query("select p.id, p.path, p.etag, p.lastModified, p.contentHash from PageEntity p where p.site = :site")
+    List<Object[]> findValidatorsBySite(@Param("site") SiteEntity site);
+
+    @Query("select p.path, p.simhash from PageEntity p " +
+            "where p.site = :site and p.simhash is not null and p.canonicalPath is null")
+    List<Object[]> findFingerprintsBySite(@Param("site") SiteEntity site);
+
+    @Query("select coalesce(avg(p.termCount), 0) from PageEntity p where p.termCount is not null")
+    double averageTermCount();
+
+    @Query("select coalesce(avg(p.termCount), 0) from PageEntity p where p.termCount is not null and p.site.url = :url")
+    double averageTermCountBySite(@Param("url") String url);
+
+    @Transactional
+    @Modifying
+    @Query("update PageEntity p set p.etag = :etag, p.lastModified = :lastModified where p.id = :id")
+    int updateValidators(@Param("id") int id, @Param("etag") String etag, @Param("lastModified") String lastModified);
 }
@@ -1,6 +1,10 @@
 package searchengine.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import searchengine.model.SiteEntity;
 
 import java.util.List;
@@ -13,4 +17,10 @@ public interface SiteRepository extends JpaRepository<SiteEntity, Integer> {
     Optional<SiteEntity> findFirstByUrl(String url);
 
     List<SiteEntity> findAllByUrl(String url);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE site SET page_count = GREATEST(page_count + :delta, 0), " +
+            "term_count = GREATEST(term_count + :terms, 0) WHERE id = :id", nativeQuery = true)
+    int addPageCount(@Param("id") Integer id, @Param("delta") int delta, @Param("terms") long terms);
 }
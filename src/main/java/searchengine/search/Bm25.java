@@ -0,0 +1,39 @@
+package searchengine.search;
+
+/**
+ * Параметры BM25 одного запроса. Вклад леммы страницы
+ * {@code idf * tf * (k1 + 1) / (tf + norm)}, где {@code norm = k1 * (1 - b + b * len / avgdl)}
+ * зависит только от длины страницы. idf считается один раз на запрос из статистики корпуса,
+ * так что в цикле по вхождениям остаются умножения и одно деление.
+ */
+public final class Bm25 {
+
+    private final float k1;
+    private final float b;
+    private final float avgLength;
+
+    public Bm25(double k1, double b, double avgLength) {
+        this.k1 = (float) k1;
+        this.b = (float) b;
+        this.avgLength = (float) Math.max(1.0, avgLength);
+    }
+
+    /** Вариант Lucene: не бывает отрицательным даже для лемм, встречающихся на большинстве страниц. */
+    public static double idf(long totalPages, long documentFrequency) {
+        return Math.log(1.0 + (totalPages - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    /** @param length длина страницы в леммах; 0 — неизвестна, считается средней */
+    public float norm(int length) {
+        return length <= 0 ? k1 : k1 * (1f - b + b * length / avgLength);
+    }
+
+    public float score(float tf, float idf, float norm) {
+        return idf * tf * (k1 + 1f) / (tf + norm);
+    }
+
+    /** Наибольший вклад леммы с наибольшим tf {@code maxTf}: на самой короткой странице. */
+    public float upperBound(float maxTf, float idf) {
+        return score(maxTf, idf, k1 * (1f - b));
+    }
+}
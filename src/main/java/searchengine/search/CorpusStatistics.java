@@ -0,0 +1,281 @@
+package searchengine.search;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import searchengine.config.SearchSettings;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Статистика корпуса для IDF и BM25: число проиндексированных страниц (N), их суммарная
+ * длина в леммах и document frequency лемм, общие и по сайтам. Хранится в site.page_count,
+ * site.term_count и lemma.doc_frequency, которые PageIndexingUtils обновляет вместе
+ * с индексом. N и длины держатся в памяти целиком; document frequency читается из
+ * lemma.doc_frequency одним запросом на все леммы запроса и кэшируется с ограничением
+ * search-settings.ranking.df-cache-size.
+ * <p>
+ * Изменения индекса выполняются через {@link #update(Runnable)} и не пересекаются с загрузкой:
+ * всё, что зафиксировано в базе до снимка, в него попадает, а изменения, пришедшие во время
+ * загрузки, ждут её окончания и применяются к уже загруженным счётчикам.
+ */
+@Component
+@RequiredArgsConstructor
+public class CorpusStatistics {
+
+    private static final Logger log = LoggerFactory.getLogger(CorpusStatistics.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SearchSettings searchSettings;
+
+    private final AtomicLong totalPages = new AtomicLong();
+    private final Map<String, AtomicLong> sitePages = new ConcurrentHashMap<>();
+    private final AtomicLong totalTerms = new AtomicLong();
+    private final Map<String, AtomicLong> siteTerms = new ConcurrentHashMap<>();
+    // "url сайта\0лемма" или "\0лемма" для всех сайтов -> doc_frequency
+    private final Map<String, Long> dfCache = new ConcurrentHashMap<>();
+    // кэш пополняется только если за время запроса к базе индекс не менялся
+    private final AtomicLong changes = new AtomicLong();
+    private final AtomicInteger changesInFlight = new AtomicInteger();
+
+    private final ReadWriteLock loadLock = new ReentrantReadWriteLock();
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        Thread loader = new Thread(this::load, "corpus-statistics-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Выполняет запись в базу вместе с вызовами onPageIndexed/onPageRemoved после неё.
+     * Параллельные изменения не блокируют друг друга, загрузка ждёт их завершения.
+     */
+    public void update(Runnable change) {
+        loadLock.readLock().lock();
+        changesInFlight.incrementAndGet();
+        changes.incrementAndGet();
+        try {
+            change.run();
+        } finally {
+            changes.incrementAndGet();
+            changesInFlight.decrementAndGet();
+            loadLock.readLock().unlock();
+        }
+    }
+
+    void load() {
+        long start = System.currentTimeMillis();
+        loadLock.writeLock().lock();
+        try {
+            if (isOutOfSync()) {
+                rebuild();
+            }
+            jdbcTemplate.query("SELECT url, page_count, term_count FROM site", rs -> {
+                long pages = rs.getLong(2);
+                long terms = rs.getLong(3);
+                sitePages.put(rs.getString(1), new AtomicLong(pages));
+                siteTerms.put(rs.getString(1), new AtomicLong(terms));
+                totalPages.addAndGet(pages);
+                totalTerms.addAndGet(terms);
+            });
+            dfCache.clear();
+            ready = true;
+            log.info("Статистика корпуса загружена: страниц {}, сайтов {}, за {} мс",
+                    totalPages.get(), sitePages.size(), System.currentTimeMillis() - start);
+        } catch (Exception ex) {
+            log.error("Не удалось загрузить статистику корпуса, IDF считается запросами к search_index: {}",
+                    ex.getMessage(), ex);
+        } finally {
+            loadLock.writeLock().unlock();
+        }
+    }
+
+    /** Счётчики могут отсутствовать у базы, проиндексированной до их появления. */
+    private boolean isOutOfSync() {
+        Long stored = jdbcTemplate.queryForObject("SELECT COALESCE(SUM(page_count), 0) FROM site", Long.class);
+        Long actual = jdbcTemplate.queryForObject("SELECT COUNT(DISTINCT page_id) FROM search_index", Long.class);
+        if (stored == null || !stored.equals(actual)) {
+            return true;
+        }
+        Integer missingTerms = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM site WHERE page_count > 0 " +
+                "AND term_count = 0", Integer.class);
+        return missingTerms != null && missingTerms > 0;
+    }
+
+    private void rebuild() {
+        log.info("Пересчёт page_count, term_count и doc_frequency по search_index...");
+        jdbcTemplate.update("UPDATE lemma l LEFT JOIN (SELECT lemma_id, COUNT(*) c FROM search_index " +
+                "GROUP BY lemma_id) x ON x.lemma_id = l.id SET l.doc_frequency = COALESCE(x.c, 0)");
+        jdbcTemplate.update("UPDATE site s LEFT JOIN (SELECT p.site_id, COUNT(DISTINCT i.page_id) c " +
+                "FROM search_index i JOIN page p ON p.id = i.page_id GROUP BY p.site_id) x " +
+                "ON x.site_id = s.id SET s.page_count = COALESCE(x.c, 0)");
+        jdbcTemplate.update("UPDATE page p LEFT JOIN (SELECT page_id, SUM(rank_value) c FROM search_index " +
+                "GROUP BY page_id) x ON x.page_id = p.id SET p.term_count = x.c");
+        jdbcTemplate.update("UPDATE site s LEFT JOIN (SELECT site_id, SUM(term_count) c FROM page " +
+                "GROUP BY site_id) x ON x.site_id = s.id SET s.term_count = COALESCE(x.c, 0)");
+    }
+
+    /** @param length длина страницы в леммах */
+    public void onPageIndexed(String siteUrl, Collection<String> lemmas, int length) {
+        if (!ready || lemmas.isEmpty()) {
+            return;
+        }
+        sitePages.computeIfAbsent(siteUrl, k -> new AtomicLong()).incrementAndGet();
+        totalPages.incrementAndGet();
+        siteTerms.computeIfAbsent(siteUrl, k -> new AtomicLong()).addAndGet(length);
+        totalTerms.addAndGet(length);
+        adjustCachedDf(siteUrl, lemmas, 1);
+    }
+
+    public void onPageRemoved(String siteUrl, Collection<String> lemmas, int length) {
+        if (!ready || lemmas.isEmpty()) {
+            return;
+        }
+        decrement(sitePages.get(siteUrl));
+        decrement(totalPages);
+        subtract(siteTerms.get(siteUrl), length);
+        subtract(totalTerms, length);
+        adjustCachedDf(siteUrl, lemmas, -1);
+    }
+
+    /** @param siteUrl url сайта или null для всех сайтов */
+    public long totalPages(String siteUrl) {
+        if (siteUrl == null || siteUrl.isBlank()) {
+            return totalPages.get();
+        }
+        AtomicLong pages = sitePages.get(siteUrl);
+        return pages == null ? 0L : pages.get();
+    }
+
+    /**
+     * Средняя длина страницы в леммах; 0, если страниц нет.
+     *
+     * @param siteUrl url сайта или null для всех сайтов
+     */
+    public double averageLength(String siteUrl) {
+        long pages = totalPages(siteUrl);
+        if (pages == 0) {
+            return 0.0;
+        }
+        AtomicLong terms = siteUrl == null || siteUrl.isBlank() ? totalTerms : siteTerms.get(siteUrl);
+        return terms == null ? 0.0 : (double) terms.get() / pages;
+    }
+
+    /**
+     * Document frequency лемм: из кэша, недостающие — одним запросом к lemma.doc_frequency.
+     * Лемм, которых в индексе нет, в результате нет.
+     *
+     * @param siteUrl url сайта или null для всех сайтов
+     */
+    public Map<String, Long> documentFrequencies(Collection<String> lemmas, String siteUrl) {
+        String site = siteUrl == null || siteUrl.isBlank() ? null : siteUrl;
+        Map<String, Long> result = new HashMap<>(lemmas.size() * 2);
+        List<String> missing = new ArrayList<>();
+        for (String lemma : lemmas) {
+            Long df = dfCache.get(dfKey(site, lemma));
+            if (df == null) {
+                missing.add(lemma);
+            } else if (df > 0) {
+                result.put(lemma, df);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+        long before = changes.get();
+        Map<String, Long> loaded = loadDocumentFrequencies(missing, site);
+        boolean cacheable = changesInFlight.get() == 0 && changes.get() == before;
+        for (String lemma : missing) {
+            long df = loaded.getOrDefault(lemma, 0L);
+            if (df > 0) {
+                result.put(lemma, df);
+            }
+            if (cacheable) {
+                dfCache.putIfAbsent(dfKey(site, lemma), df);
+            }
+        }
+        if (cacheable && changes.get() != before) {
+            // изменение началось между проверкой и записью и могло не застать наши значения
+            missing.forEach(lemma -> dfCache.remove(dfKey(site, lemma)));
+        } else if (cacheable) {
+            trimDfCache();
+        }
+        return result;
+    }
+
+    private Map<String, Long> loadDocumentFrequencies(List<String> lemmas, String site) {
+        Map<String, Long> result = new HashMap<>(lemmas.size() * 2);
+        List<Object> args = new ArrayList<>(lemmas);
+        String sql = "SELECT l.lemma, SUM(l.doc_frequency) FROM lemma l";
+        if (site != null) {
+            sql += " JOIN site s ON s.id = l.site_id";
+        }
+        sql += " WHERE l.lemma IN (" + String.join(", ", Collections.nCopies(lemmas.size(), "?")) + ")";
+        if (site != null) {
+            sql += " AND s.url = ?";
+            args.add(site);
+        }
+        sql += " GROUP BY l.lemma";
+        jdbcTemplate.query(sql, rs -> {
+            result.merge(rs.getString(1), rs.getLong(2), Long::sum);
+        }, args.toArray());
+        return result;
+    }
+
+    /** Изменение страницы сдвигает df только уже закэшированных лемм, остальные прочитаются из базы. */
+    private void adjustCachedDf(String siteUrl, Collection<String> lemmas, long delta) {
+        for (String lemma : lemmas) {
+            dfCache.computeIfPresent(dfKey(siteUrl, lemma), (k, df) -> Math.max(0L, df + delta));
+            dfCache.computeIfPresent(dfKey(null, lemma), (k, df) -> Math.max(0L, df + delta));
+        }
+    }
+
+    /** Сверх лимита удаляются произвольные записи: порядок обхода ConcurrentHashMap от частоты не зависит. */
+    private void trimDfCache() {
+        int limit = Math.max(0, searchSettings.getRanking().getDfCacheSize());
+        if (dfCache.size() <= limit) {
+            return;
+        }
+        int target = limit - limit / 10;
+        Iterator<String> it = dfCache.keySet().iterator();
+        while (dfCache.size() > target && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private static String dfKey(String siteUrl, String lemma) {
+        return (siteUrl == null ? "" : siteUrl) + '\u0000' + lemma;
+    }
+
+    private static void decrement(AtomicLong counter) {
+        subtract(counter, 1);
+    }
+
+    private static void subtract(AtomicLong counter, long delta) {
+        if (counter != null) {
+            counter.updateAndGet(v -> Math.max(0, v - delta));
+        }
+    }
+}
@@ -0,0 +1,456 @@
+package searchengine.search;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import searchengine.config.SearchSettings;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Инвертированный индекс в памяти: лемма -> список (pageId, rank) в примитивных массивах.
+ * Позиции лемм страницы, если они сохраняются, хранятся закодированными рядом с прямым
+ * индексом, чтобы ProximityReranker не ходил за ними в MySQL.
+ * Источником истины остаётся MySQL: индекс загружается из search_index при старте
+ * и обновляется PageIndexingUtils при записи и удалении страниц.
+ * <p>
+ * Загрузка идёт параллельно с индексацией: страницы, изменённые через putPage/removePage
+ * после её начала, уже актуальны, и их строки из снимка search_index пропускаются.
+ */
+@Component
+@RequiredArgsConstructor
+public class InMemoryIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(InMemoryIndex.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SearchSettings searchSettings;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, PostingList> postings = new HashMap<>();
+    // прямой индекс pageId -> леммы страницы, нужен для удаления вхождений страницы
+    private String[][] pageTerms = new String[1024][];
+    private int[] pageSites = new int[1024];
+    // длина страницы в леммах (сумма rank) для BM25
+    private int[] pageLengths = new int[1024];
+    // позиции в формате PositionCodec в порядке pageTerms[pageId]; null, если не сохранялись
+    private byte[][][] pagePositions = new byte[1024][][];
+    private int totalPages;
+    // страницы, изменённые во время загрузки; null, когда загрузка не идёт
+    private Set<Integer> touchedDuringLoad;
+
+    private volatile boolean ready;
+
+    public boolean isEnabled() {
+        return searchSettings.getEngine() == SearchSettings.Engine.MEMORY;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (!isEnabled()) {
+            return;
+        }
+        Thread loader = new Thread(this::load, "in-memory-index-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    void load() {
+        long start = System.currentTimeMillis();
+        PageLoader loader = new PageLoader();
+        lock.writeLock().lock();
+        try {
+            touchedDuringLoad = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(
+                        "SELECT i.page_id, p.site_id, l.lemma, i.rank_value, i.positions FROM search_index i " +
+                                "JOIN page p ON p.id = i.page_id JOIN lemma l ON l.id = i.lemma_id " +
+                                "ORDER BY i.page_id",
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(Integer.MIN_VALUE);
+                return ps;
+            }, rs -> {
+                loader.accept(rs.getInt(1), rs.getInt(2), rs.getString(3), rs.getFloat(4), rs.getBytes(5));
+            });
+            loader.flush();
+            ready = true;
+            log.info("Индекс в памяти загружен: страниц {}, лемм {}, за {} мс",
+                    totalPages, postings.size(), System.currentTimeMillis() - start);
+        } catch (Exception ex) {
+            log.error("Не удалось загрузить индекс в память, поиск остаётся на SQL: {}", ex.getMessage(), ex);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                touchedDuringLoad = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * @param positions закодированные позиции лемм страницы; пустая карта, если не сохраняются
+     */
+    public void putPage(int pageId, int siteId, Map<String, Integer> lemmaFrequencies, Map<String, byte[]> positions) {
+        if (!isEnabled()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            markTouched(pageId);
+            putPageLocked(pageId, siteId, lemmaFrequencies, positions);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removePage(int pageId) {
+        if (!isEnabled()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            markTouched(pageId);
+            removePageLocked(pageId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Страница из снимка при загрузке; если её уже изменили после начала загрузки, снимок устарел. */
+    private void loadPage(int pageId, int siteId, Map<String, Integer> lemmaFrequencies,
+                          Map<String, byte[]> positions) {
+        lock.writeLock().lock();
+        try {
+            if (touchedDuringLoad == null || !touchedDuringLoad.contains(pageId)) {
+                putPageLocked(pageId, siteId, lemmaFrequencies, positions);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void markTouched(int pageId) {
+        if (touchedDuringLoad != null) {
+            touchedDuringLoad.add(pageId);
+        }
+    }
+
+    private void putPageLocked(int pageId, int siteId, Map<String, Integer> lemmaFrequencies,
+                               Map<String, byte[]> positions) {
+        removePageLocked(pageId);
+        if (lemmaFrequencies.isEmpty()) {
+            return;
+        }
+        String[] terms = new String[lemmaFrequencies.size()];
+        byte[][] termPositions = positions.isEmpty() ? null : new byte[terms.length][];
+        int n = 0;
+        int length = 0;
+        for (var entry : lemmaFrequencies.entrySet()) {
+            String lemma = entry.getKey();
+            postings.computeIfAbsent(lemma, k -> new PostingList()).put(pageId, entry.getValue());
+            if (termPositions != null) {
+                termPositions[n] = positions.get(lemma);
+            }
+            terms[n++] = lemma;
+            length += entry.getValue();
+        }
+        ensurePageCapacity(pageId);
+        pageTerms[pageId] = terms;
+        pagePositions[pageId] = termPositions;
+        pageSites[pageId] = siteId;
+        pageLengths[pageId] = length;
+        totalPages++;
+    }
+
+    /**
+     * Считает оценку страниц как сумму rank * weights[i] по леммам запроса или, если задан
+     * {@code bm25}, как сумму вкладов BM25 с весами-idf; веса передаёт вызывающий,
+     * статистику корпуса индекс не считает.
+     *
+     * @param siteId id сайта или null для поиска по всем сайтам
+     * @param bm25   параметры BM25 или null для tf-idf
+     */
+    public PageScoreAccumulator score(List<String> lemmas, float[] weights, Integer siteId, Bm25 bm25) {
+        lock.readLock().lock();
+        try {
+            PostingList[] lists = new PostingList[lemmas.size()];
+            int expected = 0;
+            for (int t = 0; t < lists.length; t++) {
+                lists[t] = postings.get(lemmas.get(t));
+                if (lists[t] != null) {
+                    expected += lists[t].size();
+                }
+            }
+            PageScoreAccumulator acc = new PageScoreAccumulator(expected);
+            for (int t = 0; t < lists.length; t++) {
+                PostingList list = lists[t];
+                if (list == null) {
+                    continue;
+                }
+                float weight = weights[t];
+                for (int i = 0, size = list.size(); i < size; i++) {
+                    int pageId = list.pageId(i);
+                    if (siteId == null || pageSites[pageId] == siteId) {
+                        acc.add(pageId, contribution(list.rank(i), weight, pageId, bm25));
+                    }
+                }
+            }
+            return acc;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * То же, что {@link #score}, но сразу в {@code top} и с отсечением MaxScore: списки
+     * упорядочены по верхней границе вклада maxRank * weight. Списки с наименьшими
+     * границами, сумма которых не дотягивает до порога k-й страницы, становятся
+     * «необязательными»: страницы только из них не перебираются, а для остальных
+     * в них ищется совпадение прыжками, пока оценка ещё может превысить порог.
+     * <p>
+     * Страницы, встречающиеся только в необязательных списках, в {@code top.total()}
+     * не попадают — общее число совпадений становится нижней оценкой.
+     * <p>
+     * Порог — оценка k-й страницы, а не последней в {@code top}: вместимость {@code top}
+     * может быть больше k, когда кандидатов потом переранжирует второй проход. Такой проход
+     * поднимает оценку не более чем в {@code maxBoost} раз, поэтому порог делится на него;
+     * первые k страниц {@code top} точно совпадают с оценкой без отсечения.
+     *
+     * @param k        сколько лучших страниц нужно вызывающему
+     * @param maxBoost во сколько раз второй проход может поднять оценку; 1, если его нет
+     */
+    public void scoreTopK(List<String> lemmas, float[] weights, Integer siteId, Bm25 bm25, TopKCollector top,
+                          int k, float maxBoost) {
+        lock.readLock().lock();
+        try {
+            int n = 0;
+            PostingList[] lists = new PostingList[lemmas.size()];
+            float[] listWeights = new float[lemmas.size()];
+            float[] bounds = new float[lemmas.size()];
+            for (int t = 0; t < lemmas.size(); t++) {
+                PostingList list = postings.get(lemmas.get(t));
+                if (list == null || list.size() == 0) {
+                    continue;
+                }
+                float bound = bm25 == null ? list.maxRank() * weights[t] : bm25.upperBound(list.maxRank(), weights[t]);
+                // вставками по возрастанию границы: лемм в запросе единицы
+                int i = n++;
+                while (i > 0 && bounds[i - 1] > bound) {
+                    lists[i] = lists[i - 1];
+                    listWeights[i] = listWeights[i - 1];
+                    bounds[i] = bounds[i - 1];
+                    i--;
+                }
+                lists[i] = list;
+                listWeights[i] = weights[t];
+                bounds[i] = bound;
+            }
+            // prefix[j] — сумма границ списков 0..j
+            float[] prefix = new float[n];
+            for (int j = 0; j < n; j++) {
+                prefix[j] = (j > 0 ? prefix[j - 1] : 0f) + bounds[j];
+            }
+            int[] cursor = new int[n];
+            TopKCollector kth = new TopKCollector(Math.min(k, top.capacity()));
+            float threshold = kth.threshold() / maxBoost;
+            int essential = 0;
+            while (essential < n && prefix[essential] < threshold) {
+                essential++;
+            }
+            while (essential < n) {
+                int pageId = Integer.MAX_VALUE;
+                for (int j = essential; j < n; j++) {
+                    if (cursor[j] < lists[j].size()) {
+                        pageId = Math.min(pageId, lists[j].pageId(cursor[j]));
+                    }
+                }
+                if (pageId == Integer.MAX_VALUE) {
+                    break;
+                }
+                float score = 0f;
+                for (int j = essential; j < n; j++) {
+                    if (cursor[j] < lists[j].size() && lists[j].pageId(cursor[j]) == pageId) {
+                        score += contribution(lists[j].rank(cursor[j]++), listWeights[j], pageId, bm25);
+                    }
+                }
+                if (siteId != null && pageSites[pageId] != siteId) {
+                    continue;
+                }
+                boolean pruned = false;
+                for (int j = essential - 1; j >= 0; j--) {
+                    if (score + prefix[j] < threshold) {
+                        pruned = true;
+                        break;
+                    }
+                    cursor[j] = lists[j].advance(cursor[j], pageId);
+                    if (cursor[j] < lists[j].size() && lists[j].pageId(cursor[j]) == pageId) {
+                        score += contribution(lists[j].rank(cursor[j]), listWeights[j], pageId, bm25);
+                    }
+                }
+                if (pruned) {
+                    top.addToTotal(1);
+                    continue;
+                }
+                top.offer(pageId, score);
+                kth.offer(pageId, score);
+                threshold = kth.threshold() / maxBoost;
+                while (essential < n && prefix[essential] < threshold) {
+                    essential++;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Страницы, на которых есть все леммы {@code lemmas}, по возрастанию id: пересечение
+     * списков вхождений, начиная с самого короткого, с прыжками по остальным.
+     */
+    public int[] intersect(Collection<String> lemmas) {
+        lock.readLock().lock();
+        try {
+            PostingList[] lists = new PostingList[lemmas.size()];
+            int n = 0;
+            for (String lemma : lemmas) {
+                PostingList list = postings.get(lemma);
+                if (list == null || list.size() == 0) {
+                    return new int[0];
+                }
+                lists[n++] = list;
+            }
+            if (n == 0) {
+                return new int[0];
+            }
+            Arrays.sort(lists, 0, n, (a, b) -> Integer.compare(a.size(), b.size()));
+            int[] result = new int[lists[0].size()];
+            int found = 0;
+            int[] cursor = new int[n];
+            for (int i = 0; i < lists[0].size(); i++) {
+                int pageId = lists[0].pageId(i);
+                boolean all = true;
+                for (int j = 1; j < n && all; j++) {
+                    cursor[j] = lists[j].advance(cursor[j], pageId);
+                    all = cursor[j] < lists[j].size() && lists[j].pageId(cursor[j]) == pageId;
+                }
+                if (all) {
+                    result[found++] = pageId;
+                }
+            }
+            return Arrays.copyOf(result, found);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Позиции лемм {@code lemmas} на страницах {@code pageIds}.
+     *
+     * @return pageId -> лемма -> позиции; страниц без сохранённых позиций в результате нет
+     */
+    public Map<Integer, Map<String, int[]>> positions(List<Integer> pageIds, Collection<String> lemmas) {
+        Map<Integer, Map<String, int[]>> result = new HashMap<>(pageIds.size() * 2);
+        lock.readLock().lock();
+        try {
+            for (int pageId : pageIds) {
+                if (pageId >= pageTerms.length || pagePositions[pageId] == null) {
+                    continue;
+                }
+                String[] terms = pageTerms[pageId];
+                for (int i = 0; i < terms.length; i++) {
+                    if (pagePositions[pageId][i] != null && lemmas.contains(terms[i])) {
+                        int[] decoded = PositionCodec.decode(pagePositions[pageId][i]);
+                        if (decoded.length > 0) {
+                            result.computeIfAbsent(pageId, id -> new HashMap<>()).put(terms[i], decoded);
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    private float contribution(float rank, float weight, int pageId, Bm25 bm25) {
+        return bm25 == null ? rank * weight : bm25.score(rank, weight, bm25.norm(pageLengths[pageId]));
+    }
+
+    private void removePageLocked(int pageId) {
+        if (pageId >= pageTerms.length || pageTerms[pageId] == null) {
+            return;
+        }
+        for (String lemma : pageTerms[pageId]) {
+            PostingList list = postings.get(lemma);
+            if (list != null && list.remove(pageId) && list.size() == 0) {
+                postings.remove(lemma);
+            }
+        }
+        totalPages--;
+        pageTerms[pageId] = null;
+        pageSites[pageId] = 0;
+        pageLengths[pageId] = 0;
+        pagePositions[pageId] = null;
+    }
+
+    private void ensurePageCapacity(int pageId) {
+        if (pageId >= pageTerms.length) {
+            int newLength = Math.max(pageId + 1, pageTerms.length * 2);
+            pageTerms = Arrays.copyOf(pageTerms, newLength);
+            pageSites = Arrays.copyOf(pageSites, newLength);
+            pageLengths = Arrays.copyOf(pageLengths, newLength);
+            pagePositions = Arrays.copyOf(pagePositions, newLength);
+        }
+    }
+
+    /** Собирает строки одной страницы (результат отсортирован по page_id) и добавляет её целиком. */
+    private class PageLoader {
+        int pageId = -1;
+        int siteId;
+        final Map<String, Integer> freq = new HashMap<>();
+        final Map<String, byte[]> positions = new HashMap<>();
+
+        void accept(int pageId, int siteId, String lemma, float rank, byte[] encodedPositions) {
+            if (pageId != this.pageId) {
+                flush();
+                this.pageId = pageId;
+                this.siteId = siteId;
+            }
+            freq.merge(lemma, (int) rank, Integer::sum);
+            if (encodedPositions != null) {
+                positions.put(lemma, encodedPositions);
+            }
+        }
+
+        void flush() {
+            if (pageId >= 0 && !freq.isEmpty()) {
+                loadPage(pageId, siteId, freq, positions);
+            }
+            freq.clear();
+            positions.clear();
+        }
+    }
+}
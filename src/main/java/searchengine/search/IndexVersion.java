@@ -0,0 +1,32 @@
+package searchengine.search;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Счётчики версий индекса: общий и по сайтам. Увеличиваются при каждой записи
+ * или удалении страниц, по ним кэш поиска понимает, что результат устарел.
+ */
+@Component
+public class IndexVersion {
+
+    private final AtomicLong global = new AtomicLong();
+    private final Map<String, AtomicLong> sites = new ConcurrentHashMap<>();
+
+    public void bump(String siteUrl) {
+        sites.computeIfAbsent(siteUrl, k -> new AtomicLong()).incrementAndGet();
+        global.incrementAndGet();
+    }
+
+    /** @param siteUrl url сайта или null для поиска по всем сайтам */
+    public long current(String siteUrl) {
+        if (siteUrl == null || siteUrl.isBlank()) {
+            return global.get();
+        }
+        AtomicLong version = sites.get(siteUrl);
+        return version == null ? 0L : version.get();
+    }
+}
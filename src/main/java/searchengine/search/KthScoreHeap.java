@@ -0,0 +1,95 @@
+package searchengine.search;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Порог отсечения MaxScore при оценке «лемма за леммой»: k-я по величине частичная оценка
+ * страниц. Частичные оценки только растут, поэтому достаточно min-кучи из k лучших страниц
+ * с повышением оценки на месте; порог читается за O(1), обновление стоит O(log k).
+ */
+final class KthScoreHeap {
+
+    private final int k;
+    private final int[] pageIds;
+    private final float[] scores;
+    // pageId -> место в куче; страниц в куче не больше k
+    private final Map<Integer, Integer> slots;
+    private int size;
+
+    KthScoreHeap(int k) {
+        this.k = Math.max(0, k);
+        this.pageIds = new int[this.k];
+        this.scores = new float[this.k];
+        this.slots = new HashMap<>(this.k * 2);
+    }
+
+    /** Новая частичная оценка страницы; она не меньше прежней. */
+    void update(int pageId, float score) {
+        if (k == 0) {
+            return;
+        }
+        Integer slot = slots.get(pageId);
+        if (slot != null) {
+            scores[slot] = score;
+            siftDown(slot);
+        } else if (size < k) {
+            pageIds[size] = pageId;
+            scores[size] = score;
+            slots.put(pageId, size);
+            siftUp(size++);
+        } else if (score > scores[0]) {
+            slots.remove(pageIds[0]);
+            pageIds[0] = pageId;
+            scores[0] = score;
+            slots.put(pageId, 0);
+            siftDown(0);
+        }
+    }
+
+    /** k-я лучшая оценка; минус бесконечность, пока страниц меньше k. */
+    float threshold() {
+        if (k == 0) {
+            return Float.POSITIVE_INFINITY;
+        }
+        return size < k ? Float.NEGATIVE_INFINITY : scores[0];
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (scores[parent] <= scores[i]) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) {
+                return;
+            }
+            int right = left + 1;
+            int min = right < size && scores[right] < scores[left] ? right : left;
+            if (scores[i] <= scores[min]) {
+                return;
+            }
+            swap(i, min);
+            i = min;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int id = pageIds[a];
+        pageIds[a] = pageIds[b];
+        pageIds[b] = id;
+        float score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+        slots.put(pageIds[a], a);
+        slots.put(pageIds[b], b);
+    }
+}
@@ -0,0 +1,197 @@
+package searchengine.search;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Оценка запроса по search_index с отсечением MaxScore «лемма за леммой».
+ * Леммы обходятся по убыванию верхней границы вклада леммы (lemma.max_rank * idf или
+ * её BM25-аналог). Пока сумма
+ * границ оставшихся лемм может вывести новую страницу в k лучших, вхождения леммы читаются
+ * целиком; как только не может — только для уже найденных страниц, которым это ещё
+ * способно помочь. Частые слова многословного запроса так обычно не сканируются вовсе.
+ */
+@Component
+@RequiredArgsConstructor
+public class MaxScoreSqlEvaluator {
+
+    private static final Logger log = LoggerFactory.getLogger(MaxScoreSqlEvaluator.class);
+    private static final int IN_CHUNK = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Страницы, встречающиеся только в пропущенных леммах, в {@code top.total()} не входят.
+     * Порог — k-я лучшая частичная оценка (см. {@link KthScoreHeap}), делённая на
+     * {@code maxBoost}; первые k страниц {@code top} точно совпадают с оценкой без отсечения.
+     *
+     * @param weights  idf лемм в порядке {@code lemmas}
+     * @param site     url сайта или null для поиска по всем сайтам
+     * @param bm25     параметры BM25 или null для tf-idf
+     * @param k        сколько лучших страниц нужно вызывающему; {@code top} может вмещать больше
+     * @param maxBoost во сколько раз второй проход может поднять оценку; 1, если его нет
+     */
+    public void score(List<String> lemmas, float[] weights, String site, Bm25 bm25, TopKCollector top,
+                      int k, float maxBoost) {
+        boolean allSites = site == null || site.isBlank();
+        Map<String, Float> maxRanks = loadMaxRanks(lemmas, allSites ? null : site);
+        int n = 0;
+        String[] order = new String[lemmas.size()];
+        float[] orderWeights = new float[lemmas.size()];
+        float[] bounds = new float[lemmas.size()];
+        for (int t = 0; t < lemmas.size(); t++) {
+            Float maxRank = maxRanks.get(lemmas.get(t));
+            if (maxRank == null) {
+                continue;
+            }
+            float bound;
+            if (weights[t] == 0f) {
+                bound = 0f;
+            } else {
+                bound = bm25 == null ? maxRank * weights[t] : bm25.upperBound(maxRank, weights[t]);
+            }
+            int i = n++;
+            while (i > 0 && bounds[i - 1] < bound) {
+                order[i] = order[i - 1];
+                orderWeights[i] = orderWeights[i - 1];
+                bounds[i] = bounds[i - 1];
+                i--;
+            }
+            order[i] = lemmas.get(t);
+            orderWeights[i] = weights[t];
+            bounds[i] = bound;
+        }
+        // remaining[j] — сумма границ лемм j..n-1
+        float[] remaining = new float[n + 1];
+        for (int j = n - 1; j >= 0; j--) {
+            remaining[j] = remaining[j + 1] + bounds[j];
+        }
+        PageScoreAccumulator acc = new PageScoreAccumulator(1024);
+        KthScoreHeap kth = new KthScoreHeap(Math.min(k, top.capacity()));
+        for (int j = 0; j < n; j++) {
+            float weight = orderWeights[j];
+            float threshold = kth.threshold() / maxBoost;
+            RankVisitor visitor = (pageId, rank, length) -> {
+                acc.add(pageId, bm25 == null ? rank * weight : bm25.score(rank, weight, bm25.norm(length)));
+                kth.update(pageId, acc.get(pageId));
+            };
+            if (remaining[j] >= threshold) {
+                loadRanks(order[j], allSites ? null : site, null, bm25 != null, visitor);
+                continue;
+            }
+            List<Integer> candidates = new ArrayList<>();
+            float rest = remaining[j];
+            acc.forEach((pageId, score) -> {
+                if (score + rest >= threshold) {
+                    candidates.add(pageId);
+                }
+            });
+            for (int from = 0; from < candidates.size(); from += IN_CHUNK) {
+                loadRanks(order[j], null, candidates.subList(from, Math.min(candidates.size(), from + IN_CHUNK)),
+                        bm25 != null, visitor);
+            }
+        }
+        acc.forEach(top::offer);
+    }
+
+    /**
+     * Верхняя граница rank по каждой лемме; лемм без записей в результате нет.
+     * Если у какой-то строки граница ещё не посчитана, лемма получает бесконечную
+     * границу и всегда читается целиком.
+     */
+    private Map<String, Float> loadMaxRanks(List<String> lemmas, String site) {
+        Map<String, Float> result = new HashMap<>(lemmas.size() * 2);
+        List<Object> args = new ArrayList<>(lemmas);
+        String sql = "SELECT l.lemma, MAX(l.max_rank), SUM(l.max_rank IS NULL) FROM lemma l";
+        if (site != null) {
+            sql += " JOIN site s ON s.id = l.site_id";
+        }
+        sql += " WHERE l.lemma IN (" + String.join(", ", Collections.nCopies(lemmas.size(), "?")) + ")";
+        if (site != null) {
+            sql += " AND s.url = ?";
+            args.add(site);
+        }
+        sql += " GROUP BY l.lemma";
+        jdbcTemplate.query(sql, rs -> {
+            float bound = rs.getLong(3) > 0 ? Float.POSITIVE_INFINITY : rs.getFloat(2);
+            result.put(rs.getString(1), bound);
+        }, args.toArray());
+        return result;
+    }
+
+    private void loadRanks(String lemma, String site, List<Integer> pageIds, boolean withLength, RankVisitor visitor) {
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(withLength
+                ? "SELECT i.page_id, i.rank_value, p.term_count FROM search_index i JOIN page p ON p.id = i.page_id"
+                : "SELECT i.page_id, i.rank_value, 0 FROM search_index i");
+        sql.append(" JOIN lemma l ON l.id = i.lemma_id");
+        if (site != null) {
+            sql.append(" JOIN site s ON s.id = l.site_id");
+        }
+        sql.append(" WHERE l.lemma = ?");
+        args.add(lemma);
+        if (site != null) {
+            sql.append(" AND s.url = ?");
+            args.add(site);
+        }
+        if (pageIds != null) {
+            sql.append(" AND i.page_id IN (").append(String.join(", ", Collections.nCopies(pageIds.size(), "?")))
+                    .append(')');
+            args.addAll(pageIds);
+        }
+        jdbcTemplate.query(sql.toString(), rs -> {
+            // term_count NULL у страниц до пересчёта: getInt вернёт 0, длина считается средней
+            visitor.visit(rs.getInt(1), rs.getFloat(2), rs.getInt(3));
+        }, args.toArray());
+    }
+
+    @FunctionalInterface
+    private interface RankVisitor {
+        void visit(int pageId, float rank, int length);
+    }
+
+    /**
+     * Заполняет lemma.max_rank для лемм, проиндексированных до появления колонки.
+     * До окончания у таких лемм граница бесконечна и отсечения по ним нет.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void fillMaxRanksOnStartup() {
+        Thread filler = new Thread(this::fillMaxRanks, "lemma-max-rank-fill");
+        filler.setDaemon(true);
+        filler.start();
+    }
+
+    void fillMaxRanks() {
+        long start = System.currentTimeMillis();
+        int filled = 0;
+        try {
+            while (true) {
+                List<Integer> ids = jdbcTemplate.queryForList(
+                        "SELECT id FROM lemma WHERE max_rank IS NULL LIMIT " + IN_CHUNK, Integer.class);
+                if (ids.isEmpty()) {
+                    break;
+                }
+                jdbcTemplate.update("UPDATE lemma l SET l.max_rank = (SELECT COALESCE(MAX(i.rank_value), 0)"
+                        + " FROM search_index i WHERE i.lemma_id = l.id) WHERE l.id IN ("
+                        + String.join(", ", Collections.nCopies(ids.size(), "?")) + ")", ids.toArray());
+                filled += ids.size();
+            }
+            if (filled > 0) {
+                log.info("Границы rank посчитаны для {} лемм за {} мс", filled, System.currentTimeMillis() - start);
+            }
+        } catch (Exception ex) {
+            log.error("Не удалось посчитать lemma.max_rank: {}", ex.getMessage(), ex);
+        }
+    }
+}
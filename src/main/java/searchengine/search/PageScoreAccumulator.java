@@ -0,0 +1,85 @@
+package searchengine.search;
+
+/**
+ * Открытая адресация int -> float для накопления оценок страниц без упаковки в объекты.
+ */
+public final class PageScoreAccumulator {
+
+    private static final int EMPTY = 0;
+
+    private int[] keys;
+    private float[] values;
+    private int size;
+    private int mask;
+
+    public PageScoreAccumulator(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(8, expectedSize * 2) - 1) << 1;
+        keys = new int[capacity];
+        values = new float[capacity];
+        mask = capacity - 1;
+    }
+
+    /** id страниц в MySQL начинаются с 1, поэтому 0 служит пустым слотом. */
+    public void add(int pageId, float delta) {
+        int slot = slot(pageId);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == pageId) {
+                values[slot] += delta;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = pageId;
+        values[slot] = delta;
+        if (++size * 2 > keys.length) {
+            rehash();
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public float get(int pageId) {
+        int slot = slot(pageId);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == pageId) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return 0f;
+    }
+
+    /** Обходит все пары (страница, оценка) без выделения памяти. */
+    public void forEach(Visitor visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                visitor.visit(keys[i], values[i]);
+            }
+        }
+    }
+
+    private int slot(int pageId) {
+        return (pageId * 0x9E3779B9) >>> 1 & mask;
+    }
+
+    private void rehash() {
+        int[] oldKeys = keys;
+        float[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new float[oldValues.length * 2];
+        mask = keys.length - 1;
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                add(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface Visitor {
+        void visit(int pageId, float score);
+    }
+}
@@ -0,0 +1,89 @@
+package searchengine.search;
+
+import searchengine.service.MorphologyService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Фраза из запроса в кавычках: леммы и их смещения относительно первого слова.
+ * Смещения считаются по всем словам, так что пропущенные служебные слова
+ * («дом <i>на</i> набережной») остаются промежутком нужной длины.
+ */
+public final class PhraseQuery {
+
+    private static final Pattern QUOTED = Pattern.compile("[\"«“]([^\"»”]+)[\"»”]");
+
+    private final String[] lemmas;
+    private final int[] offsets;
+
+    private PhraseQuery(String[] lemmas, int[] offsets) {
+        this.lemmas = lemmas;
+        this.offsets = offsets;
+    }
+
+    /** Фразы из двух и более значимых слов; одиночные слова в кавычках — обычные термы. */
+    public static List<PhraseQuery> parse(String query, MorphologyService morphologyService) {
+        if (query == null || query.indexOf('"') < 0 && query.indexOf('«') < 0 && query.indexOf('“') < 0) {
+            return List.of();
+        }
+        List<PhraseQuery> phrases = new ArrayList<>(2);
+        Matcher m = QUOTED.matcher(query);
+        while (m.find()) {
+            List<String> lemmas = new ArrayList<>();
+            List<Integer> positions = new ArrayList<>();
+            morphologyService.forEachLemma(m.group(1), (lemma, position) -> {
+                lemmas.add(lemma.toLowerCase(Locale.ROOT));
+                positions.add(position);
+            });
+            if (lemmas.size() < 2) {
+                continue;
+            }
+            int[] offsets = new int[positions.size()];
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = positions.get(i) - positions.get(0);
+            }
+            phrases.add(new PhraseQuery(lemmas.toArray(String[]::new), offsets));
+        }
+        return phrases;
+    }
+
+    public String[] lemmas() {
+        return lemmas;
+    }
+
+    /**
+     * Есть ли на странице вхождение фразы. {@code positions} — позиции лемм страницы;
+     * вызывающий проверяет, что позиции есть у всех лемм фразы.
+     */
+    public boolean matches(Map<String, int[]> positions) {
+        int[] first = positions.get(lemmas[0]);
+        for (int start : first) {
+            boolean found = true;
+            for (int i = 1; i < lemmas.length && found; i++) {
+                found = Arrays.binarySearch(positions.get(lemmas[i]), start + offsets[i]) >= 0;
+            }
+            if (found) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Ключ фразы для кэша результатов: отличает «"а б"» от «а б». */
+    public String key() {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < lemmas.length; i++) {
+            if (i > 0) {
+                sb.append(' ').append(offsets[i]).append(':');
+            }
+            sb.append(lemmas[i]);
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,58 @@
+package searchengine.search;
+
+import java.util.Arrays;
+
+/**
+ * Позиции леммы на странице: возрастающие номера токенов, записанные разностями
+ * в varint (7 бит на байт, старший бит — продолжение). Соседние вхождения обычно
+ * ближе 128 токенов, так что позиция занимает один байт.
+ */
+public final class PositionCodec {
+
+    private static final int[] EMPTY = new int[0];
+
+    private PositionCodec() {
+    }
+
+    public static byte[] encode(int[] positions, int count) {
+        byte[] out = new byte[count * 2 + 4];
+        int length = 0;
+        int previous = 0;
+        for (int i = 0; i < count; i++) {
+            int delta = positions[i] - previous;
+            previous = positions[i];
+            if (length + 5 > out.length) {
+                out = Arrays.copyOf(out, out.length * 2);
+            }
+            while ((delta & ~0x7F) != 0) {
+                out[length++] = (byte) ((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            out[length++] = (byte) delta;
+        }
+        return Arrays.copyOf(out, length);
+    }
+
+    public static int[] decode(byte[] data) {
+        if (data == null || data.length == 0) {
+            return EMPTY;
+        }
+        int[] positions = new int[data.length];
+        int count = 0;
+        int previous = 0;
+        int i = 0;
+        while (i < data.length) {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[i++];
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0 && i < data.length);
+            previous += delta;
+            positions[count++] = previous;
+        }
+        return count == positions.length ? positions : Arrays.copyOf(positions, count);
+    }
+}
@@ -0,0 +1,110 @@
+package searchengine.search;
+
+import java.util.Arrays;
+
+/**
+ * Список вхождений леммы: id страниц по возрастанию и rank для каждой страницы.
+ * Хранит наибольший rank списка — верхнюю границу вклада леммы для MaxScore.
+ */
+final class PostingList {
+
+    private int[] pageIds = new int[4];
+    private float[] ranks = new float[4];
+    private int size;
+    private float maxRank;
+
+    void put(int pageId, float rank) {
+        maxRank = Math.max(maxRank, rank);
+        if (size == 0 || pageIds[size - 1] < pageId) {
+            ensureCapacity(size + 1);
+            pageIds[size] = pageId;
+            ranks[size] = rank;
+            size++;
+            return;
+        }
+        int pos = Arrays.binarySearch(pageIds, 0, size, pageId);
+        if (pos >= 0) {
+            float old = ranks[pos];
+            ranks[pos] = rank;
+            if (old == maxRank && rank < old) {
+                recomputeMaxRank();
+            }
+            return;
+        }
+        int insertAt = -pos - 1;
+        ensureCapacity(size + 1);
+        System.arraycopy(pageIds, insertAt, pageIds, insertAt + 1, size - insertAt);
+        System.arraycopy(ranks, insertAt, ranks, insertAt + 1, size - insertAt);
+        pageIds[insertAt] = pageId;
+        ranks[insertAt] = rank;
+        size++;
+    }
+
+    boolean remove(int pageId) {
+        int pos = Arrays.binarySearch(pageIds, 0, size, pageId);
+        if (pos < 0) {
+            return false;
+        }
+        System.arraycopy(pageIds, pos + 1, pageIds, pos, size - pos - 1);
+        float removed = ranks[pos];
+        System.arraycopy(ranks, pos + 1, ranks, pos, size - pos - 1);
+        size--;
+        if (removed == maxRank) {
+            recomputeMaxRank();
+        }
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int pageId(int i) {
+        return pageIds[i];
+    }
+
+    float rank(int i) {
+        return ranks[i];
+    }
+
+    float maxRank() {
+        return maxRank;
+    }
+
+    /**
+     * Первая позиция не раньше {@code from}, где id страницы не меньше {@code pageId}:
+     * экспоненциальный шаг вперёд, затем двоичный поиск. При пропуске редких совпадений
+     * длинного списка стоит O(log расстояния), а не O(расстояния).
+     */
+    int advance(int from, int pageId) {
+        if (from >= size || pageIds[from] >= pageId) {
+            return from;
+        }
+        int step = 1;
+        int low = from;
+        int high = from + 1;
+        while (high < size && pageIds[high] < pageId) {
+            low = high;
+            step <<= 1;
+            high = from + step;
+        }
+        int pos = Arrays.binarySearch(pageIds, low + 1, Math.min(high, size - 1) + 1, pageId);
+        return pos >= 0 ? pos : -pos - 1;
+    }
+
+    private void recomputeMaxRank() {
+        float max = 0f;
+        for (int i = 0; i < size; i++) {
+            max = Math.max(max, ranks[i]);
+        }
+        maxRank = max;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required > pageIds.length) {
+            int newLength = Math.max(required, pageIds.length + (pageIds.length >> 1));
+            pageIds = Arrays.copyOf(pageIds, newLength);
+            ranks = Arrays.copyOf(ranks, newLength);
+        }
+    }
+}
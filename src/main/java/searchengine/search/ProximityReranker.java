@@ -0,0 +1,200 @@
+package searchengine.search;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import searchengine.config.SearchSettings;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Фразовый запрос и второй проход ранжирования по позициям лемм.
+ * Фразы из кавычек проверяются у всех страниц, где есть все леммы фраз, — пересечения
+ * списков вхождений, а не только у лучших кандидатов первого прохода; страница без
+ * сохранённых позиций фразу не проходит.
+ * Лучшие кандидаты поднимаются по близости слов запроса с множителем
+ * {@code 1 + weight * (n - 1) / (span - 1)}, где span — длина наименьшего окна со всеми
+ * n найденными леммами: слова подряд дают 1 + weight. Страницы без позиций остаются
+ * с исходной оценкой.
+ * Позиции берутся из {@link InMemoryIndex}, когда он включён и загружен, иначе из search_index.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProximityReranker {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SearchSettings searchSettings;
+    private final InMemoryIndex inMemoryIndex;
+
+    public boolean isEnabled() {
+        return searchSettings.getProximity().isEnabled();
+    }
+
+    /** Сколько кандидатов отбирать первым проходом, чтобы после переранжирования хватило на {@code k}. */
+    public int candidates(int k) {
+        return Math.max(k, searchSettings.getProximity().getRerankDepth());
+    }
+
+    /** Во сколько раз {@link #rerank} может поднять оценку страницы: слова подряд дают 1 + weight. */
+    public float maxBoost() {
+        return Math.max(1f, 1f + (float) searchSettings.getProximity().getWeight());
+    }
+
+    /**
+     * Страницы, содержащие все фразы {@code phrases}, по возрастанию id. Позиции читаются
+     * порциями по {@code rerank-depth}, чтобы не строить огромный IN (...).
+     *
+     * @param site url сайта или null; индекс в памяти сайт не фильтрует — это делает оценка
+     */
+    public int[] matchPhrases(List<PhraseQuery> phrases, String site) {
+        Set<String> terms = new LinkedHashSet<>();
+        phrases.forEach(p -> Collections.addAll(terms, p.lemmas()));
+        int[] candidates = inMemoryIndex.isEnabled() && inMemoryIndex.isReady()
+                ? inMemoryIndex.intersect(terms)
+                : intersect(terms, site == null || site.isBlank() ? null : site);
+        int chunk = Math.max(1, searchSettings.getProximity().getRerankDepth());
+        int[] matched = new int[candidates.length];
+        int found = 0;
+        for (int from = 0; from < candidates.length; from += chunk) {
+            int to = Math.min(candidates.length, from + chunk);
+            List<Integer> ids = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                ids.add(candidates[i]);
+            }
+            Map<Integer, Map<String, int[]>> positions = positions(ids, terms);
+            for (int i = from; i < to; i++) {
+                Map<String, int[]> page = positions.get(candidates[i]);
+                if (page != null && matchesPhrases(page, phrases)) {
+                    matched[found++] = candidates[i];
+                }
+            }
+        }
+        return Arrays.copyOf(matched, found);
+    }
+
+    /**
+     * Переранжирует первые {@code rerank-depth} страниц {@code top} по близости лемм;
+     * остальные переносятся с исходной оценкой, общее число совпадений не меняется.
+     */
+    public TopKCollector rerank(TopKCollector top, List<String> lemmas, int k) {
+        SearchSettings.Proximity settings = searchSettings.getProximity();
+        int depth = Math.min(top.size(), Math.max(1, settings.getRerankDepth()));
+        TopKCollector result = new TopKCollector(k);
+        float weight = (float) settings.getWeight();
+        if (depth > 0) {
+            List<Integer> ids = new ArrayList<>(depth);
+            for (int rank = 0; rank < depth; rank++) {
+                ids.add(top.pageId(rank));
+            }
+            Map<Integer, Map<String, int[]>> positions = positions(ids, new LinkedHashSet<>(lemmas));
+            for (int rank = 0; rank < depth; rank++) {
+                Map<String, int[]> page = positions.get(top.pageId(rank));
+                float boost = page == null ? 1f : boost(page, weight);
+                result.offer(top.pageId(rank), top.score(rank) * boost);
+            }
+        }
+        for (int rank = depth; rank < top.size(); rank++) {
+            result.offer(top.pageId(rank), top.score(rank));
+        }
+        result.addToTotal(top.total() - top.size());
+        return result;
+    }
+
+    private Map<Integer, Map<String, int[]>> positions(List<Integer> pageIds, Set<String> lemmas) {
+        if (inMemoryIndex.isEnabled() && inMemoryIndex.isReady()) {
+            return inMemoryIndex.positions(pageIds, lemmas);
+        }
+        return loadPositions(pageIds, lemmas);
+    }
+
+    private static boolean matchesPhrases(Map<String, int[]> page, List<PhraseQuery> phrases) {
+        for (PhraseQuery phrase : phrases) {
+            for (String lemma : phrase.lemmas()) {
+                if (!page.containsKey(lemma)) {
+                    return false;
+                }
+            }
+            if (!phrase.matches(page)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static float boost(Map<String, int[]> page, float weight) {
+        int n = page.size();
+        if (n < 2 || weight == 0f) {
+            return 1f;
+        }
+        int span = minimalSpan(page.values().toArray(int[][]::new));
+        return 1f + weight * (n - 1) / Math.max(n - 1, span - 1);
+    }
+
+    /** Длина наименьшего окна, содержащего хотя бы одну позицию из каждого списка. */
+    static int minimalSpan(int[][] lists) {
+        int[] cursor = new int[lists.length];
+        int best = Integer.MAX_VALUE;
+        while (true) {
+            int min = 0;
+            int max = Integer.MIN_VALUE;
+            for (int i = 0; i < lists.length; i++) {
+                int value = lists[i][cursor[i]];
+                if (value < lists[min][cursor[min]]) {
+                    min = i;
+                }
+                max = Math.max(max, value);
+            }
+            best = Math.min(best, max - lists[min][cursor[min]] + 1);
+            if (++cursor[min] == lists[min].length) {
+                return best;
+            }
+        }
+    }
+
+    /** Страницы, где есть все леммы {@code lemmas}, по возрастанию id. */
+    private int[] intersect(Set<String> lemmas, String site) {
+        List<Object> args = new ArrayList<>(lemmas);
+        StringBuilder sql = new StringBuilder("SELECT i.page_id FROM search_index i JOIN lemma l ON l.id = i.lemma_id");
+        if (site != null) {
+            sql.append(" JOIN site s ON s.id = l.site_id");
+        }
+        sql.append(" WHERE l.lemma IN (").append(String.join(", ", Collections.nCopies(lemmas.size(), "?"))).append(")");
+        if (site != null) {
+            sql.append(" AND s.url = ?");
+            args.add(site);
+        }
+        sql.append(" GROUP BY i.page_id HAVING COUNT(DISTINCT l.lemma) = ? ORDER BY i.page_id");
+        args.add(lemmas.size());
+        return jdbcTemplate.queryForList(sql.toString(), Integer.class, args.toArray()).stream()
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    /**
+     * @return pageId -> лемма -> позиции; страниц без сохранённых позиций в результате нет
+     */
+    private Map<Integer, Map<String, int[]>> loadPositions(List<Integer> pageIds, Set<String> lemmas) {
+        Map<Integer, Map<String, int[]>> result = new HashMap<>(pageIds.size() * 2);
+        List<Object> args = new ArrayList<>(pageIds.size() + lemmas.size());
+        args.addAll(pageIds);
+        args.addAll(lemmas);
+        String sql = "SELECT i.page_id, l.lemma, i.positions FROM search_index i JOIN lemma l ON l.id = i.lemma_id"
+                + " WHERE i.page_id IN (" + String.join(", ", Collections.nCopies(pageIds.size(), "?")) + ")"
+                + " AND l.lemma IN (" + String.join(", ", Collections.nCopies(lemmas.size(), "?")) + ")"
+                + " AND i.positions IS NOT NULL";
+        jdbcTemplate.query(sql, rs -> {
+            int[] decoded = PositionCodec.decode(rs.getBytes(3));
+            if (decoded.length > 0) {
+                result.computeIfAbsent(rs.getInt(1), id -> new HashMap<>()).put(rs.getString(2), decoded);
+            }
+        }, args.toArray());
+        return result;
+    }
+}
@@ -0,0 +1,53 @@
+package searchengine.search;
+
+/**
+ * Неизменяемый отранжированный список страниц запроса (лучшие первыми) и общее число совпадений.
+ */
+public final class RankedPages {
+
+    private final int[] pageIds;
+    private final float[] scores;
+    private final long total;
+
+    private RankedPages(int[] pageIds, float[] scores, long total) {
+        this.pageIds = pageIds;
+        this.scores = scores;
+        this.total = total;
+    }
+
+    public static RankedPages from(TopKCollector top) {
+        int size = top.size();
+        int[] ids = new int[size];
+        float[] scores = new float[size];
+        for (int rank = 0; rank < size; rank++) {
+            ids[rank] = top.pageId(rank);
+            scores[rank] = top.score(rank);
+        }
+        return new RankedPages(ids, scores, top.total());
+    }
+
+    public int size() {
+        return pageIds.length;
+    }
+
+    public long total() {
+        return total;
+    }
+
+    public int pageId(int rank) {
+        return pageIds[rank];
+    }
+
+    public float score(int rank) {
+        return scores[rank];
+    }
+
+    /** Отвечает ли список на запрос страницы, заканчивающейся на позиции {@code end}. */
+    public boolean covers(int end) {
+        return end <= pageIds.length || pageIds.length >= total;
+    }
+
+    long estimatedBytes() {
+        return 48L + pageIds.length * 8L;
+    }
+}
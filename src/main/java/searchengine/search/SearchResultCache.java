@@ -0,0 +1,117 @@
+package searchengine.search;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import searchengine.config.SearchSettings;
+import searchengine.dto.metrics.SearchCacheMetricsResponse;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LRU-кэш отранжированных результатов поиска по ключу (набор лемм, сайт)
+ * с ограничением по числу записей и по памяти. Запись действительна, пока
+ * версия индекса сайта не изменилась.
+ */
+@Component
+@RequiredArgsConstructor
+public class SearchResultCache {
+
+    private final SearchSettings searchSettings;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public boolean isEnabled() {
+        return searchSettings.getCache().isEnabled();
+    }
+
+    public RankedPages get(List<String> lemmas, String site, long version, int end) {
+        String key = key(lemmas, site);
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.version != version) {
+                remove(key);
+                invalidations.incrementAndGet();
+                entry = null;
+            }
+            if (entry != null && entry.ranking.covers(end)) {
+                hits.incrementAndGet();
+                return entry.ranking;
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public void put(List<String> lemmas, String site, long version, RankedPages ranking) {
+        SearchSettings.Cache settings = searchSettings.getCache();
+        long budget = settings.getMemoryBudgetMb() * 1024L * 1024L;
+        String key = key(lemmas, site);
+        long size = ranking.estimatedBytes() + key.length() * 2L;
+        if (size > budget) {
+            return;
+        }
+        synchronized (this) {
+            remove(key);
+            entries.put(key, new Entry(ranking, version, size));
+            bytes += size;
+            Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+            while ((bytes > budget || entries.size() > settings.getMaxEntries()) && it.hasNext()) {
+                bytes -= it.next().getValue().bytes;
+                it.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    public SearchCacheMetricsResponse metrics() {
+        SearchCacheMetricsResponse m = new SearchCacheMetricsResponse();
+        long h = hits.get();
+        long total = h + misses.get();
+        m.setResult(true);
+        m.setEnabled(isEnabled());
+        m.setHits(h);
+        m.setMisses(total - h);
+        m.setHitRate(total == 0 ? 0.0 : (double) h / total);
+        m.setEvictions(evictions.get());
+        m.setInvalidations(invalidations.get());
+        synchronized (this) {
+            m.setEntries(entries.size());
+            m.setBytes(bytes);
+        }
+        return m;
+    }
+
+    private void remove(String key) {
+        Entry old = entries.remove(key);
+        if (old != null) {
+            bytes -= old.bytes;
+        }
+    }
+
+    private static String key(List<String> lemmas, String site) {
+        return String.join(" ", new TreeSet<>(lemmas)) + '\u0000' + (site == null ? "" : site);
+    }
+
+    private static final class Entry {
+        final RankedPages ranking;
+        final long version;
+        final long bytes;
+
+        Entry(RankedPages ranking, long version, long bytes) {
+            this.ranking = ranking;
+            this.version = version;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package searchengine.search;
+
+/**
+ * Отбор k лучших страниц min-кучей на примитивных массивах вместо сортировки всех результатов.
+ * Общее число кандидатов считается отдельно и точно. При равной оценке выше страница с меньшим id.
+ */
+public final class TopKCollector {
+
+    private final int k;
+    private final int[] pageIds;
+    private final float[] scores;
+    private int size;
+    private long total;
+    private boolean sorted;
+
+    public TopKCollector(int k) {
+        this.k = Math.max(0, k);
+        this.pageIds = new int[this.k];
+        this.scores = new float[this.k];
+    }
+
+    public void offer(int pageId, float score) {
+        total++;
+        if (k == 0) {
+            return;
+        }
+        if (size < k) {
+            pageIds[size] = pageId;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (worse(scores[0], pageIds[0], score, pageId)) {
+            pageIds[0] = pageId;
+            scores[0] = score;
+            siftDown(0, size);
+        }
+    }
+
+    /**
+     * Оценка, которую нужно превзойти, чтобы попасть в k лучших (при равенстве решает id);
+     * пока куча не заполнена — минус бесконечность.
+     */
+    public float threshold() {
+        if (k == 0) {
+            return Float.POSITIVE_INFINITY;
+        }
+        if (size < k) {
+            return Float.NEGATIVE_INFINITY;
+        }
+        return sorted ? scores[size - 1] : scores[0];
+    }
+
+    /** Поднимает общее число совпадений до {@code count}, если насчитано меньше. */
+    public void raiseTotal(long count) {
+        total = Math.max(total, count);
+    }
+
+    /** Учитывает в общем числе совпадений страницы, которые в кучу не предлагались. */
+    public void addToTotal(long count) {
+        total += count;
+    }
+
+    public int capacity() {
+        return k;
+    }
+
+    public long total() {
+        return total;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int pageId(int rank) {
+        sort();
+        return pageIds[rank];
+    }
+
+    public float score(int rank) {
+        sort();
+        return scores[rank];
+    }
+
+    /** Пирамидальная сортировка на месте: после неё индекс 0 — лучшая страница. */
+    private void sort() {
+        if (sorted) {
+            return;
+        }
+        for (int end = size - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+        sorted = true;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!worse(scores[i], pageIds[i], scores[parent], pageIds[parent])) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i, int limit) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= limit) {
+                return;
+            }
+            int right = left + 1;
+            int worst = right < limit && worse(scores[right], pageIds[right], scores[left], pageIds[left])
+                    ? right : left;
+            if (!worse(scores[worst], pageIds[worst], scores[i], pageIds[i])) {
+                return;
+            }
+            swap(i, worst);
+            i = worst;
+        }
+    }
+
+    private static boolean worse(float scoreA, int pageA, float scoreB, int pageB) {
+        return scoreA < scoreB || (scoreA == scoreB && pageA > pageB);
+    }
+
+    private void swap(int a, int b) {
+        int id = pageIds[a];
+        pageIds[a] = pageIds[b];
+        pageIds[b] = id;
+        float score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+}
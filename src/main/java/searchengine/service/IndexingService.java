@@ -1,11 +1,23 @@
 package searchengine.service;
 
 import searchengine.dto.SimpleResponse;
+import searchengine.dto.metrics.IndexingMetricsResponse;
 
 public interface IndexingService {
-    SimpleResponse startIndexing();
+    /**
+     * @param resume продолжить прерванный обход по сохранённому журналу
+     */
+    SimpleResponse startIndexing(boolean resume);
     SimpleResponse stopIndexing();
     SimpleResponse indexPage(String url);
 
     boolean isIndexing();
+
+    IndexingMetricsResponse getMetrics();
+
+    /**
+     * Удаляет старую колонку page.content после переноса текстов в page_body;
+     * отказывает, пока в ней остаётся хотя бы один текст.
+     */
+    SimpleResponse dropLegacyContent();
 }
@@ -1,26 +1,34 @@
 package searchengine.service;
 
 import lombok.RequiredArgsConstructor;
-import org.jsoup.nodes.Document;
-import org.jsoup.select.Elements;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import searchengine.config.CrawlerSettings;
 import searchengine.config.Site;
 import searchengine.config.SitesList;
+import searchengine.crawler.IndexingPipeline;
+import searchengine.crawler.RobotsCache;
+import searchengine.crawler.SitemapReader;
 import searchengine.dto.SimpleResponse;
-import searchengine.model.PageEntity;
+import searchengine.dto.metrics.IndexingMetricsResponse;
 import searchengine.model.SiteEntity;
+import searchengine.repository.PageBodyRepository;
 import searchengine.repository.PageRepository;
 import searchengine.repository.SiteRepository;
+import searchengine.utils.LemmaIdCache;
+import searchengine.utils.PageContent;
 import searchengine.utils.PageIndexingUtils;
+import searchengine.utils.PageWrite;
+import searchengine.utils.UrlCanonicalizer;
 import searchengine.utils.UrlUtils;
 
 import javax.transaction.Transactional;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -32,23 +40,30 @@ public class IndexingServiceImpl implements IndexingService {
     private static final Logger log = LoggerFactory.getLogger(IndexingServiceImpl.class);
 
     private final SitesList sitesList;
+    private final CrawlerSettings crawlerSettings;
     private final SiteRepository siteRepository;
     private final PageRepository pageRepository;
+    private final PageBodyRepository pageBodyRepository;
     private final PageIndexingUtils pageIndexingUtils;
+    private final LemmaIdCache lemmaIdCache;
+    private final RobotsCache robotsCache;
+    private final SitemapReader sitemapReader;
 
     private volatile boolean running = false;
     private ExecutorService executor;
+    private final Map<String, IndexingPipeline> pipelines = new ConcurrentHashMap<>();
 
     @Override
-    public synchronized SimpleResponse startIndexing() {
+    public synchronized SimpleResponse startIndexing(boolean resume) {
         try {
             if (running) {
                 log.warn("Запуск индексации отклонён: уже выполняется.");
                 return new SimpleResponse(false, "Индексация уже запущена");
             }
-            log.info("Запрошен запуск индексации.");
+            log.info("Запрошен запуск индексации{}.", resume ? " с возобновлением" : "");
             running = true;
-            executor = Executors.newFixedThreadPool(4);
+            executor = Executors.newFixedThreadPool(Math.max(1, crawlerSettings.getSiteParallelism()));
+            pipelines.clear();
 
             List<Site> sites = sitesList.getSites();
             if (sites == null || sites.isEmpty()) {
@@ -60,7 +75,7 @@ public class IndexingServiceImpl implements IndexingService {
                 executor.submit(() -> {
                     try {
                         log.info("Запуск индексации для сайта: {}", siteConfig.getUrl());
-                        indexSite(siteConfig);
+                        indexSite(siteConfig, resume);
                         log.info("Индексация для сайта {} завершена.", siteConfig.getUrl());
                     } catch (Exception ex) {
                         log.error("Ошибка при индексации сайта {}: {}", siteConfig.getUrl(), ex.toString(), ex);
@@ -144,11 +159,8 @@ public class IndexingServiceImpl implements IndexingService {
                 return new SimpleResponse(false, "Сайт не найден в базе данных");
             }
             
-            String path = UrlUtils.extractPath(url, siteEntity);
-
-            pageIndexingUtils.deletePageIfExists(siteEntity, path);
-
-            indexSinglePage(url, siteEntity);
+            // существующая страница переписывается вместе с индексом одной транзакцией в savePages
+            indexSinglePage(url, siteEntity, canonicalizerFor(siteConfig));
             
             return new SimpleResponse(true, null);
         } catch (RuntimeException ex) {
@@ -160,6 +172,11 @@ public class IndexingServiceImpl implements IndexingService {
         }
     }
 
+    private UrlCanonicalizer canonicalizerFor(Site siteConfig) {
+        return new UrlCanonicalizer(siteConfig.getCanonical() != null
+                ? siteConfig.getCanonical() : crawlerSettings.getCanonical());
+    }
+
     private Site findSiteConfig(String url) {
         List<Site> sites = sitesList.getSites();
         if (sites == null || sites.isEmpty()) {
@@ -167,7 +184,7 @@ public class IndexingServiceImpl implements IndexingService {
         }
         String normalizedUrl = UrlUtils.normalizeUrl(url);
         return sites.stream()
-                .filter(s -> normalizedUrl.startsWith(UrlUtils.normalizeUrl(s.getUrl())))
+                .filter(s -> UrlUtils.isSameSite(normalizedUrl, UrlUtils.normalizeUrl(s.getUrl())))
                 .findFirst()
                 .orElseThrow(() -> new RuntimeException("Сайт не найден в конфиге: " + url));
     }
@@ -188,31 +205,32 @@ public class IndexingServiceImpl implements IndexingService {
         return allSites.stream()
                 .filter(site -> {
                     String siteUrl = UrlUtils.normalizeUrl(site.getUrl());
-                    return normalizedPageUrl.startsWith(siteUrl);
+                    return UrlUtils.isSameSite(normalizedPageUrl, siteUrl);
                 })
                 .findFirst()
                 .orElse(null);
     }
 
-    private void indexSinglePage(String url, SiteEntity siteEntity) throws IOException {
-        String path = UrlUtils.extractPath(url, siteEntity);
+    private void indexSinglePage(String url, SiteEntity siteEntity, UrlCanonicalizer canonicalizer) throws IOException {
+        String path = UrlUtils.extractPath(url, siteEntity, canonicalizer);
         log.info("Индексация одной страницы: {} (путь: {})", url, path);
         
-        Document doc = pageIndexingUtils.fetchDocument(url);
-        String text = pageIndexingUtils.extractText(doc);
-        PageEntity page = pageIndexingUtils.saveOrUpdatePage(siteEntity, path, text);
-        pageIndexingUtils.indexPageContent(page, siteEntity, text);
+        PageContent content = PageContent.extract(pageIndexingUtils.fetchDocument(url));
+        String text = content.getText();
+        pageIndexingUtils.savePages(siteEntity,
+                List.of(PageWrite.page(path, text, null, null, null, pageIndexingUtils.analyze(text))));
 
-        Elements links = doc.select("a[href]");
-        log.info("На странице найдено {} ссылок (не индексируются)", links.size());
+        log.info("На странице найдено {} ссылок (не индексируются)", content.getLinks().size());
     }
 
 
     @Transactional
-    protected void indexSite(Site siteConfig) {
+    protected void indexSite(Site siteConfig, boolean resume) {
         SiteEntity siteEntity = getOrCreateSiteEntity(siteConfig);
         siteEntity = saveSiteEntityWithRetry(siteEntity, siteConfig.getUrl());
-        performSiteCrawling(siteConfig, siteEntity);
+        lemmaIdCache.invalidate(siteEntity.getId());
+        lemmaIdCache.warmUp(siteEntity.getId());
+        performSiteCrawling(siteConfig, siteEntity, resume);
     }
 
     private SiteEntity getOrCreateSiteEntity(Site siteConfig) {
@@ -251,9 +269,9 @@ public class IndexingServiceImpl implements IndexingService {
         }
     }
 
-    private void performSiteCrawling(Site siteConfig, SiteEntity siteEntity) {
+    private void performSiteCrawling(Site siteConfig, SiteEntity siteEntity, boolean resume) {
         try {
-            crawlSite(siteConfig.getUrl(), siteEntity);
+            crawlSite(siteConfig.getUrl(), siteEntity, canonicalizerFor(siteConfig), resume);
             updateSiteStatusAfterCrawling(siteEntity);
         } catch (Exception e) {
             log.error("Ошибка при индексации сайта {}: {}", siteConfig.getUrl(), e.toString(), e);
@@ -284,34 +302,17 @@ public class IndexingServiceImpl implements IndexingService {
     }
 
 
-    private void crawlSite(String startUrl, SiteEntity site) {
-        Set<String> visitedUrls = new HashSet<>();
-        Queue<String> urlQueue = new LinkedList<>();
-        String normalizedStartUrl = UrlUtils.normalizeUrl(startUrl);
-        urlQueue.offer(normalizedStartUrl);
-        visitedUrls.add(normalizedStartUrl);
+    private void crawlSite(String startUrl, SiteEntity site, UrlCanonicalizer canonicalizer, boolean resume) {
+        String normalizedStartUrl = canonicalizer.canonicalize(startUrl);
         log.info("=== НАЧАЛО ИНДЕКСАЦИИ САЙТА: {} ===", site.getUrl());
-        log.info("Стартовый URL: {} (нормализованный: {})", startUrl, normalizedStartUrl);
-
-        int processedCount = 0;
-        while (!urlQueue.isEmpty() && running) {
-            String url = urlQueue.poll();
-            if (url == null) {
-                log.warn("Получен null из очереди, пропускаем");
-                continue;
-            }
+        log.info("Стартовый URL: {} (нормализованный: {}), потоков загрузки: {}",
+                startUrl, normalizedStartUrl, crawlerSettings.getParallelism());
 
-            processedCount++;
-            log.info(">>> Обработка страницы #{}, URL: {}, в очереди осталось: {}", processedCount, url, urlQueue.size());
+        IndexingPipeline pipeline = new IndexingPipeline(site, crawlerSettings, canonicalizer, pageIndexingUtils,
+                robotsCache, sitemapReader, () -> running, (url, e) -> handleCrawlError(site, url, e));
+        pipelines.put(site.getUrl(), pipeline);
+        long processedCount = pipeline.run(normalizedStartUrl, resume);
 
-            try {
-                crawlAndIndex(url, site, visitedUrls, urlQueue);
-                log.info("<<< Страница #{} обработана, размер очереди: {}", processedCount, urlQueue.size());
-            } catch (Exception e) {
-                log.error("ОШИБКА при обработке URL {}: {}", url, e.getMessage(), e);
-            }
-        }
-        
         if (!running) {
             log.warn("Индексация остановлена пользователем. Обработано страниц: {}", processedCount);
         } else {
@@ -319,42 +320,49 @@ public class IndexingServiceImpl implements IndexingService {
         }
     }
 
-    private void crawlAndIndex(String url, SiteEntity site, Set<String> visitedUrls, Queue<String> urlQueue) {
-        if (!running) {
-            log.debug("Индексация остановлена — пропускаю: {}", url);
-            return;
-        }
-
-        String path = UrlUtils.extractPath(url, site);
-        log.info("Crawling start: {}", url);
-
-        try {
-            Document doc = pageIndexingUtils.fetchDocument(url);
-            String text = pageIndexingUtils.extractText(doc);
-            PageEntity page = pageIndexingUtils.saveOrUpdatePage(site, path, text);
-            pageIndexingUtils.indexPageContent(page, site, text);
-            Elements links = doc.select("a[href]");
-            UrlUtils.crawlLinks(links, site, visitedUrls, urlQueue, running);
-        } catch (IOException e) {
-            handleCrawlError(site, url, "Ошибка чтения " + url + ": " + e.getMessage(), e);
-        } catch (Exception e) {
-            handleCrawlError(site, url, "Unexpected error while crawling " + url + ": " + e.getMessage(), e);
-        }
-    }
-
-
-    private void handleCrawlError(SiteEntity site, String url, String errorMessage, Exception e) {
+    private void handleCrawlError(SiteEntity site, String url, Exception e) {
+        String errorMessage;
         if (e instanceof IOException) {
             log.warn("Ошибка чтения {}: {}", url, e.getMessage());
+            errorMessage = "Ошибка чтения " + url + ": " + e.getMessage();
         } else {
             log.error("Unexpected error while crawling {}: {}", url, e.toString(), e);
+            errorMessage = "Unexpected error while crawling " + url + ": " + e.getMessage();
+        }
+        synchronized (site) {
+            site.setLastError(errorMessage);
+            siteRepository.save(site);
         }
-        site.setLastError(errorMessage);
-        siteRepository.save(site);
+    }
+
+    @Override
+    public IndexingMetricsResponse getMetrics() {
+        List<IndexingMetricsResponse.SiteMetrics> sites = new ArrayList<>();
+        for (IndexingPipeline pipeline : pipelines.values()) {
+            sites.add(pipeline.metrics());
+        }
+        return new IndexingMetricsResponse(true, sites);
     }
 
     @Override
     public boolean isIndexing() {
         return running;
     }
+
+    @Override
+    public synchronized SimpleResponse dropLegacyContent() {
+        if (running) {
+            return new SimpleResponse(false, "Индексация уже запущена");
+        }
+        if (!pageBodyRepository.hasLegacyContentColumn()) {
+            return new SimpleResponse(false, "Колонки page.content нет");
+        }
+        try {
+            pageBodyRepository.dropLegacyContentColumn();
+            return new SimpleResponse(true, null);
+        } catch (RuntimeException ex) {
+            log.error("Колонка page.content не удалена: {}", ex.getMessage(), ex);
+            return new SimpleResponse(false, ex.getMessage());
+        }
+    }
 }
@@ -1,7 +1,48 @@
 package searchengine.service;
 
+import searchengine.utils.TermFrequencyMap;
+
 import java.util.List;
 
 public interface MorphologyService {
     List<String> lemmatize(String text);
+
+    /**
+     * Потоково разбирает текст и добавляет каждую лемму в {@code target}
+     * без промежуточного списка и без копии строки на каждое вхождение.
+     * Служебные слова пропускаются, но занимают позицию: если {@code target} хранит
+     * позиции, у слов по обе стороны служебного они отличаются на 2.
+     */
+    void countLemmas(CharSequence text, TermFrequencyMap target);
+
+    /**
+     * Обходит леммы текста с номерами их токенов; служебные слова пропускаются.
+     */
+    void forEachLemma(CharSequence text, LemmaConsumer consumer);
+
+    /**
+     * Как {@link #forEachLemma}, но вместо номера токена — границы слова в тексте {@code [start, end)}.
+     */
+    void forEachLemmaSpan(CharSequence text, LemmaSpanConsumer consumer);
+
+    /**
+     * Обходит слова текста в нижнем регистре, без лемматизации. Буфер переиспользуется между вызовами:
+     * если слово нужно сохранить, его надо скопировать.
+     */
+    void forEachToken(CharSequence text, TokenConsumer consumer);
+
+    @FunctionalInterface
+    interface TokenConsumer {
+        void accept(char[] buffer, int length, int position);
+    }
+
+    @FunctionalInterface
+    interface LemmaConsumer {
+        void accept(String lemma, int position);
+    }
+
+    @FunctionalInterface
+    interface LemmaSpanConsumer {
+        void accept(String lemma, int start, int end);
+    }
 }
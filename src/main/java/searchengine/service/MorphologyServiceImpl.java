@@ -1,21 +1,117 @@
 package searchengine.service;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import searchengine.config.MorphologySettings;
+import searchengine.morphology.Lemmatizer;
+import searchengine.utils.TermFrequencyMap;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 public class MorphologyServiceImpl implements MorphologyService {
 
+    private static final Logger log = LoggerFactory.getLogger(MorphologyServiceImpl.class);
+    private static final int INITIAL_TOKEN_CAPACITY = 32;
+
+    private final Lemmatizer lemmatizer;
+
+    public MorphologyServiceImpl(MorphologySettings settings) {
+        this.lemmatizer = new Lemmatizer(settings.getMemoCacheSize(), settings.isStopWords());
+        log.info("Словари морфологии загружены: ru, en");
+    }
+
     @Override
     public List<String> lemmatize(String text) {
         if (text == null || text.isBlank()) {
             return List.of();
         }
-        return Arrays.stream(text.toLowerCase().split("\\P{L}+"))
-                .filter(s -> !s.isBlank())
-                .collect(Collectors.toList());
+        List<String> result = new ArrayList<>();
+        forEachToken(text, (buffer, length, position) -> {
+            String lemma = lemmatizer.lemma(buffer, length);
+            if (lemma != null) {
+                result.add(lemma);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public void countLemmas(CharSequence text, TermFrequencyMap target) {
+        forEachLemma(text, target::add);
+    }
+
+    @Override
+    public void forEachLemma(CharSequence text, LemmaConsumer consumer) {
+        forEachToken(text, (buffer, length, position) -> {
+            String lemma = lemmatizer.lemma(buffer, length);
+            if (lemma != null) {
+                consumer.accept(lemma, position);
+            }
+        });
+    }
+
+    @Override
+    public void forEachLemmaSpan(CharSequence text, LemmaSpanConsumer consumer) {
+        tokenize(text, (buffer, length, position, start, end) -> {
+            String lemma = lemmatizer.lemma(buffer, length);
+            if (lemma != null) {
+                consumer.accept(lemma, start, end);
+            }
+        });
+    }
+
+    @Override
+    public void forEachToken(CharSequence text, TokenConsumer consumer) {
+        tokenize(text, (buffer, length, position, start, end) -> consumer.accept(buffer, length, position));
+    }
+
+    /**
+     * Слово — непрерывная последовательность букв (\p{L}); всё остальное разделители.
+     * Регистр приводится по кодовым точкам прямо в буфер.
+     */
+    private void tokenize(CharSequence text, SpanConsumer consumer) {
+        if (text == null) {
+            return;
+        }
+        char[] buffer = new char[INITIAL_TOKEN_CAPACITY];
+        int length = 0;
+        int position = 0;
+        int start = 0;
+        int i = 0;
+        int end = text.length();
+        while (i < end) {
+            char c = text.charAt(i);
+            int codePoint = c;
+            int width = 1;
+            if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(text.charAt(i + 1))) {
+                codePoint = Character.toCodePoint(c, text.charAt(i + 1));
+                width = 2;
+            }
+            if (Character.isLetter(codePoint)) {
+                if (length == 0) {
+                    start = i;
+                }
+                if (length + 2 > buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                length += Character.toChars(Character.toLowerCase(codePoint), buffer, length);
+            } else if (length > 0) {
+                consumer.accept(buffer, length, position++, start, i);
+                length = 0;
+            }
+            i += width;
+        }
+        if (length > 0) {
+            consumer.accept(buffer, length, position, start, end);
+        }
+    }
+
+    @FunctionalInterface
+    private interface SpanConsumer {
+        void accept(char[] buffer, int length, int position, int start, int end);
     }
 }
@@ -1,7 +1,10 @@
 package searchengine.service;
 
+import searchengine.dto.metrics.SearchCacheMetricsResponse;
 import searchengine.dto.search.SearchResponse;
 
 public interface SearchService {
     SearchResponse search(String query, String site, int offset, int limit);
+
+    SearchCacheMetricsResponse getCacheMetrics();
 }
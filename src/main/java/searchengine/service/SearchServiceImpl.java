@@ -3,13 +3,30 @@ package searchengine.service;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import searchengine.config.SearchSettings;
+import searchengine.dto.metrics.SearchCacheMetricsResponse;
 import searchengine.dto.search.SearchItem;
 import searchengine.dto.search.SearchResponse;
 import searchengine.model.PageEntity;
+import searchengine.model.SiteEntity;
 import searchengine.repository.IndexRepository;
+import searchengine.repository.PageBodyRepository;
 import searchengine.repository.PageRepository;
+import searchengine.repository.SiteRepository;
+import searchengine.search.Bm25;
+import searchengine.search.CorpusStatistics;
+import searchengine.search.InMemoryIndex;
+import searchengine.search.IndexVersion;
+import searchengine.search.PageScoreAccumulator;
+import searchengine.search.MaxScoreSqlEvaluator;
+import searchengine.search.PhraseQuery;
+import searchengine.search.ProximityReranker;
+import searchengine.search.RankedPages;
+import searchengine.search.SearchResultCache;
+import searchengine.search.TopKCollector;
 
 import java.util.*;
+import java.util.function.IntPredicate;
 import java.util.stream.Collectors;
 import java.util.Arrays;
 
@@ -20,7 +37,16 @@ public class SearchServiceImpl implements SearchService {
     private final MorphologyService morphologyService;
     private final IndexRepository indexRepository;
     private final PageRepository pageRepository;
+    private final PageBodyRepository pageBodyRepository;
     private final SnippetService snippetService;
+    private final SiteRepository siteRepository;
+    private final InMemoryIndex inMemoryIndex;
+    private final CorpusStatistics corpusStatistics;
+    private final SearchResultCache searchResultCache;
+    private final IndexVersion indexVersion;
+    private final SearchSettings searchSettings;
+    private final ProximityReranker proximityReranker;
+    private final MaxScoreSqlEvaluator maxScoreSqlEvaluator;
 
     @Override
     @Transactional(readOnly = true)
@@ -35,28 +61,21 @@ public class SearchServiceImpl implements SearchService {
                 return new SearchResponse(true, 0, Collections.emptyList());
             }
 
-            Map<String, Long> dfMap = buildDfMap(lemmas, site);
-            long totalPages = countTotalPages(site);
-            if (totalPages <= 0) {
-                return new SearchResponse(true, 0, Collections.emptyList());
-            }
-
-            Map<Integer, Map<String, Double>> pageLemmaTf = buildPageLemmaTfMap(lemmas, site);
-            if (pageLemmaTf.isEmpty()) {
-                return new SearchResponse(true, 0, Collections.emptyList());
-            }
+            int from = Math.max(0, offset);
+            int end = (int) Math.min(Integer.MAX_VALUE, (long) from + Math.max(1, limit));
+            List<PhraseQuery> phrases = PhraseQuery.parse(query, morphologyService);
+            RankedPages ranking = rank(lemmas, phrases, site, end);
 
-            Map<String, Double> idfMap = calculateIdfMap(lemmas, dfMap, totalPages);
-            List<PageScore> pageScores = calculatePageScores(pageLemmaTf, idfMap);
-            pageScores.sort((a, b) -> Float.compare(b.score, a.score));
-
-            int total = pageScores.size();
+            int total = (int) ranking.total();
             if (total == 0) {
                 return new SearchResponse(true, 0, Collections.emptyList());
             }
 
-            List<PageScore> pageScoresPage = getPageScoresPage(pageScores, offset, limit);
-            List<SearchItem> items = buildSearchItems(pageScoresPage, query, lemmas);
+            List<PageScore> pageScoresPage = getPageScoresPage(ranking, from, end);
+            if (pageScoresPage.isEmpty()) {
+                return new SearchResponse(true, total, Collections.emptyList());
+            }
+            List<SearchItem> items = buildSearchItems(pageScoresPage, lemmas);
 
             items.forEach(item -> {
                 if (item != null) {
@@ -70,6 +89,150 @@ public class SearchServiceImpl implements SearchService {
         }
     }
 
+    @Override
+    public SearchCacheMetricsResponse getCacheMetrics() {
+        return searchResultCache.metrics();
+    }
+
+    private RankedPages rank(List<String> lemmas, List<PhraseQuery> phrases, String site, int end) {
+        if (!searchResultCache.isEnabled()) {
+            return RankedPages.from(score(lemmas, phrases, site, end));
+        }
+        List<String> cacheKey = lemmas;
+        if (!phrases.isEmpty()) {
+            cacheKey = new ArrayList<>(lemmas);
+            for (PhraseQuery phrase : phrases) {
+                cacheKey.add(phrase.key());
+            }
+        }
+        long version = indexVersion.current(site);
+        RankedPages cached = searchResultCache.get(cacheKey, site, version, end);
+        if (cached != null) {
+            return cached;
+        }
+        int depth = Math.max(end, searchSettings.getCache().getDepth());
+        RankedPages ranking = RankedPages.from(score(lemmas, phrases, site, depth));
+        searchResultCache.put(cacheKey, site, version, ranking);
+        return ranking;
+    }
+
+    private TopKCollector score(List<String> lemmas, List<PhraseQuery> phrases, String site, int topK) {
+        IntPredicate filter = null;
+        if (!phrases.isEmpty()) {
+            // фразы проверяются у всех страниц со всеми их леммами, и в выдачу и в total идут только они
+            int[] matched = proximityReranker.matchPhrases(phrases, site);
+            if (matched.length == 0) {
+                return new TopKCollector(topK);
+            }
+            filter = pageId -> Arrays.binarySearch(matched, pageId) >= 0;
+        }
+        boolean rerank = proximityReranker.isEnabled() && lemmas.size() > 1;
+        TopKCollector top = score(lemmas, site, topK, rerank, filter);
+        return rerank ? proximityReranker.rerank(top, lemmas, topK) : top;
+    }
+
+    /**
+     * @param rerank собрать кандидатов для второго прохода ProximityReranker: их больше
+     *               {@code topK}, а порог отсечения MaxScore учитывает его наибольший множитель
+     * @param filter какие страницы допускаются в выдачу, или null — все; с фильтром отсечение
+     *               MaxScore не применяется, чтобы total оставался точным
+     */
+    private TopKCollector score(List<String> lemmas, String site, int topK, boolean rerank, IntPredicate filter) {
+        TopKCollector top = new TopKCollector(rerank ? proximityReranker.candidates(topK) : topK);
+        float maxBoost = rerank ? proximityReranker.maxBoost() : 1f;
+        long totalPages = countTotalPages(site);
+        if (totalPages <= 0) {
+            return top;
+        }
+        Map<String, Long> dfMap = buildDfMap(lemmas, site);
+        Bm25 bm25 = bm25(site);
+        Map<String, Double> idfMap = calculateIdfMap(lemmas, dfMap, totalPages, bm25 != null);
+        boolean pruned = filter == null && searchSettings.isPruning() && lemmas.size() > 1;
+        PageScoreAccumulator.Visitor sink = filter == null ? top::offer : (pageId, score) -> {
+            if (filter.test(pageId)) {
+                top.offer(pageId, score);
+            }
+        };
+        if (inMemoryIndex.isEnabled() && inMemoryIndex.isReady()) {
+            scoreInMemory(lemmas, idfMap, site, bm25, top, pruned, topK, maxBoost, sink);
+        } else if (pruned) {
+            maxScoreSqlEvaluator.score(lemmas, weights(lemmas, idfMap), site, bm25, top, topK, maxBoost);
+        } else {
+            scoreWithSql(lemmas, idfMap, site, bm25, sink);
+        }
+        if (pruned) {
+            // страниц не меньше, чем у самой частой леммы запроса
+            dfMap.values().stream().mapToLong(Long::longValue).max().ifPresent(top::raiseTotal);
+        }
+        return top;
+    }
+
+    /** Параметры BM25 для запроса или null, если выбрана модель tf-idf. */
+    private Bm25 bm25(String site) {
+        SearchSettings.Ranking ranking = searchSettings.getRanking();
+        if (ranking.getModel() != SearchSettings.Model.BM25) {
+            return null;
+        }
+        double avgLength = corpusStatistics.isReady()
+                ? corpusStatistics.averageLength(site)
+                : site == null || site.isBlank() ? pageRepository.averageTermCount()
+                : pageRepository.averageTermCountBySite(site);
+        return new Bm25(ranking.getK1(), ranking.getB(), avgLength);
+    }
+
+    private static float[] weights(List<String> lemmas, Map<String, Double> idfMap) {
+        float[] weights = new float[lemmas.size()];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = idfMap.getOrDefault(lemmas.get(i), 0.0).floatValue();
+        }
+        return weights;
+    }
+
+    private void scoreWithSql(List<String> lemmas, Map<String, Double> idfMap, String site, Bm25 bm25,
+                              PageScoreAccumulator.Visitor sink) {
+        List<Object[]> tfRows;
+        if (site == null || site.isBlank()) {
+            tfRows = indexRepository.findPageLemmaTfByLemmas(lemmas);
+        } else {
+            tfRows = indexRepository.findPageLemmaTfByLemmasAndSite(lemmas, site);
+        }
+        if (tfRows.isEmpty()) {
+            return;
+        }
+        PageScoreAccumulator acc = new PageScoreAccumulator(tfRows.size());
+        for (Object[] r : tfRows) {
+            int pageId = (Integer) r[0];
+            float idf = idfMap.getOrDefault((String) r[1], 0.0).floatValue();
+            float tf = r[2] == null ? 0f : ((Number) r[2]).floatValue();
+            if (bm25 == null) {
+                acc.add(pageId, tf * idf);
+            } else {
+                int length = r[3] == null ? 0 : ((Number) r[3]).intValue();
+                acc.add(pageId, bm25.score(tf, idf, bm25.norm(length)));
+            }
+        }
+        acc.forEach(sink);
+    }
+
+    private void scoreInMemory(List<String> lemmas, Map<String, Double> idfMap, String site, Bm25 bm25,
+                               TopKCollector top, boolean pruned, int k, float maxBoost,
+                               PageScoreAccumulator.Visitor sink) {
+        Integer siteId = null;
+        if (site != null && !site.isBlank()) {
+            Optional<SiteEntity> siteEntity = siteRepository.findByUrl(site);
+            if (siteEntity.isEmpty()) {
+                return;
+            }
+            siteId = siteEntity.get().getId();
+        }
+        float[] weights = weights(lemmas, idfMap);
+        if (pruned) {
+            inMemoryIndex.scoreTopK(lemmas, weights, siteId, bm25, top, k, maxBoost);
+        } else {
+            inMemoryIndex.score(lemmas, weights, siteId, bm25).forEach(sink);
+        }
+    }
+
     private List<String> extractLemmas(String query) {
         return morphologyService.lemmatize(query).stream()
                 .filter(s -> s != null && !s.isBlank())
@@ -79,6 +242,9 @@ public class SearchServiceImpl implements SearchService {
     }
 
     private Map<String, Long> buildDfMap(List<String> lemmas, String site) {
+        if (corpusStatistics.isReady()) {
+            return corpusStatistics.documentFrequencies(lemmas, site);
+        }
         Map<String, Long> dfMap = new HashMap<>();
         List<Object[]> dfRows;
         
@@ -98,6 +264,9 @@ public class SearchServiceImpl implements SearchService {
     }
 
     private long countTotalPages(String site) {
+        if (corpusStatistics.isReady()) {
+            return corpusStatistics.totalPages(site);
+        }
         if (site == null || site.isBlank()) {
             return indexRepository.countDistinctPages();
         } else {
@@ -105,102 +274,54 @@ public class SearchServiceImpl implements SearchService {
         }
     }
 
-    private Map<Integer, Map<String, Double>> buildPageLemmaTfMap(List<String> lemmas, String site) {
-        List<Object[]> tfRows;
-        if (site == null || site.isBlank()) {
-            tfRows = indexRepository.findPageLemmaTfByLemmas(lemmas);
-        } else {
-            tfRows = indexRepository.findPageLemmaTfByLemmasAndSite(lemmas, site);
-        }
-
-        Map<Integer, Map<String, Double>> pageLemmaTf = new HashMap<>();
-        for (Object[] r : tfRows) {
-            Integer pageId = (Integer) r[0];
-            String lemma = (String) r[1];
-            Number tfNum = (Number) r[2];
-            double tf = tfNum == null ? 0.0 : tfNum.doubleValue();
-
-            pageLemmaTf.computeIfAbsent(pageId, k -> new HashMap<>()).put(lemma, tf);
-        }
-        
-        return pageLemmaTf;
-    }
-
-    private Map<String, Double> calculateIdfMap(List<String> lemmas, Map<String, Long> dfMap, long totalPages) {
+    private Map<String, Double> calculateIdfMap(List<String> lemmas, Map<String, Long> dfMap, long totalPages,
+                                                boolean bm25) {
         Map<String, Double> idfMap = new HashMap<>();
         for (String lemma : lemmas) {
             long df = dfMap.getOrDefault(lemma, 0L);
-            double idf = Math.log((double)(totalPages + 1) / (double)(df + 1));
+            double idf = bm25 ? Bm25.idf(totalPages, df) : Math.log((double)(totalPages + 1) / (double)(df + 1));
             idfMap.put(lemma, idf);
         }
         return idfMap;
     }
 
-    private List<PageScore> calculatePageScores(Map<Integer, Map<String, Double>> pageLemmaTf, Map<String, Double> idfMap) {
-        List<PageScore> pageScores = new ArrayList<>();
-        for (Map.Entry<Integer, Map<String, Double>> entry : pageLemmaTf.entrySet()) {
-            Integer pageId = entry.getKey();
-            Map<String, Double> lemmaTfMap = entry.getValue();
-
-            double score = calculateScore(lemmaTfMap, idfMap);
-            pageScores.add(new PageScore(pageId, (float) score));
+    private List<PageScore> getPageScoresPage(RankedPages ranking, int from, int end) {
+        int to = Math.min(ranking.size(), end);
+        List<PageScore> page = new ArrayList<>(Math.max(0, to - from));
+        for (int rank = from; rank < to; rank++) {
+            page.add(new PageScore(ranking.pageId(rank), ranking.score(rank)));
         }
-        return pageScores;
+        return page;
     }
 
-    private double calculateScore(Map<String, Double> lemmaTfMap, Map<String, Double> idfMap) {
-        double score = 0.0;
-        for (Map.Entry<String, Double> lt : lemmaTfMap.entrySet()) {
-            String lemma = lt.getKey();
-            double tf = lt.getValue();
-            double idf = idfMap.getOrDefault(lemma, 0.0);
-            score += tf * idf;
-        }
-        return score;
-    }
-
-    private List<PageScore> getPageScoresPage(List<PageScore> pageScores, int offset, int limit) {
-        int from = Math.max(0, offset);
-        int to = Math.min(pageScores.size(), offset + Math.max(1, limit));
-        return pageScores.subList(from, to);
-    }
-
-    private List<SearchItem> buildSearchItems(List<PageScore> pageScoresPage, String query, List<String> lemmas) {
+    private List<SearchItem> buildSearchItems(List<PageScore> pageScoresPage, List<String> lemmas) {
         List<Integer> ids = pageScoresPage.stream().map(ps -> ps.pageId).collect(Collectors.toList());
         List<PageEntity> pages = pageRepository.findAllWithSiteByIdIn(ids);
         Map<Integer, PageEntity> pageById = pages.stream().collect(Collectors.toMap(PageEntity::getId, p -> p));
+        // тексты нужны только для заголовков и сниппетов этой страницы выдачи
+        Map<Integer, String> texts = pageBodyRepository.findTexts(ids);
 
-        List<String> queryTokens = extractQueryTokens(query);
         List<SearchItem> items = new ArrayList<>();
         
         for (PageScore ps : pageScoresPage) {
             PageEntity page = pageById.get(ps.pageId);
             if (page == null) continue;
 
-            SearchItem item = createSearchItem(page, ps, queryTokens, lemmas);
+            SearchItem item = createSearchItem(page, texts.get(ps.pageId), ps, lemmas);
             items.add(item);
         }
         
         return items;
     }
 
-    private List<String> extractQueryTokens(String query) {
-        return Arrays.stream(query.split("\\s+"))
-                .map(s -> s.replaceAll("[^\\p{L}\\p{Nd}]", ""))
-                .map(String::trim)
-                .filter(s -> !s.isEmpty())
-                .collect(Collectors.toList());
-    }
-
-    private SearchItem createSearchItem(PageEntity page, PageScore ps, List<String> queryTokens, List<String> lemmas) {
+    private SearchItem createSearchItem(PageEntity page, String text, PageScore ps, List<String> lemmas) {
         SearchItem item = new SearchItem();
         item.setSite(page.getSite().getUrl());
         item.setSiteName(page.getSite().getName());
         item.setUri(buildFullUrl(page));
-        item.setTitle(extractTitle(page));
+        item.setTitle(extractTitle(page, text));
 
-        List<String> snippetWords = !queryTokens.isEmpty() ? queryTokens : lemmas;
-        item.setSnippet(snippetService.generateSnippet(page.getContent(), snippetWords));
+        item.setSnippet(snippetService.generateSnippet(text, lemmas));
 
         item.setRelevance(ps.score);
         return item;
@@ -237,8 +358,7 @@ public class SearchServiceImpl implements SearchService {
     }
 
 
-    private String extractTitle(PageEntity page) {
-        String content = page.getContent();
+    private String extractTitle(PageEntity page, String content) {
         if (content == null || content.isBlank()) return page.getPath();
         String trimmed = content.trim();
         int end = Math.min(trimmed.length(), 120);
@@ -1,87 +1,182 @@
 package searchengine.service;
 
-import org.jsoup.Jsoup;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
-import java.util.*;
-import java.util.stream.Collectors;
-import java.util.regex.Pattern;
-import java.util.regex.Matcher;
-
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Сниппет по сохранённому тексту страницы (он уже без разметки): один проход лемматизатора
+ * собирает границы слов, чьи леммы есть в запросе, затем двумя указателями выбирается окно
+ * с наибольшим числом разных лемм запроса, а при равенстве — с наибольшим числом совпадений.
+ * Подсветка расставляется по найденным границам, без регулярных выражений.
+ */
 @Service
+@RequiredArgsConstructor
 public class SnippetService {
 
-    private static final int WINDOW = 60;
     private static final int MAX_SNIPPET_LENGTH = 300;
+    // ширина окна, в котором ищутся совпадения; остаток длины уходит на контекст вокруг
+    private static final int WINDOW = 200;
+    // насколько можно сдвинуть начало сниппета назад, чтобы начать его с предложения
+    private static final int SENTENCE_LOOKBACK = 60;
 
-    public String generateSnippet(String content, List<String> queryWords) {
-        if (content == null || content.isBlank()) return "";
-
-        String text = Jsoup.parse(content).text();
-        text = text.replaceAll("\\s+", " ").trim();
-        String lower = text.toLowerCase(Locale.ROOT);
-
-        Set<String> words = queryWords == null ? Collections.emptySet()
-                : queryWords.stream()
-                .filter(Objects::nonNull)
-                .map(String::trim)
-                .filter(s -> !s.isEmpty())
-                .map(s -> s.toLowerCase(Locale.ROOT))
-                .collect(Collectors.toCollection(LinkedHashSet::new));
+    private final MorphologyService morphologyService;
 
-        List<String> segments = new ArrayList<>();
+    /**
+     * @param lemmas леммы запроса
+     */
+    public String generateSnippet(String content, List<String> lemmas) {
+        if (content == null || content.isBlank()) return "";
 
-        for (String w : words) {
-            if (w.isBlank()) continue;
-            int idx = lower.indexOf(w);
-            if (idx >= 0) {
-                String seg = extractSegment(text, idx, w.length());
-                seg = highlightSegment(seg, w);
-                segments.add(seg);
-                if (segments.size() >= 2) break;
+        Map<String, Integer> termIds = new HashMap<>(lemmas.size() * 2);
+        for (String lemma : lemmas) {
+            termIds.putIfAbsent(lemma, termIds.size());
+        }
+        Matches matches = new Matches();
+        morphologyService.forEachLemmaSpan(content, (lemma, start, end) -> {
+            Integer term = termIds.get(lemma);
+            if (term != null) {
+                matches.add(start, end, term);
             }
+        });
+        if (matches.size == 0) {
+            int end = Math.min(content.length(), MAX_SNIPPET_LENGTH);
+            return fragment(content, 0, end, matches, end / 2);
         }
 
-        if (segments.isEmpty()) {
-            String fallback = text.length() <= MAX_SNIPPET_LENGTH ? text
-                    : text.substring(0, MAX_SNIPPET_LENGTH).trim() + "...";
-            return fallback;
+        int[] counts = new int[termIds.size()];
+        int distinct = 0;
+        int bestFrom = 0;
+        int bestTo = 0;
+        int bestDistinct = 0;
+        int bestCount = 0;
+        int from = 0;
+        for (int to = 0; to < matches.size; to++) {
+            if (counts[matches.terms[to]]++ == 0) {
+                distinct++;
+            }
+            while (matches.ends[to] - matches.starts[from] > WINDOW) {
+                if (--counts[matches.terms[from]] == 0) {
+                    distinct--;
+                }
+                from++;
+            }
+            int count = to - from + 1;
+            if (distinct > bestDistinct || distinct == bestDistinct && count > bestCount) {
+                bestDistinct = distinct;
+                bestCount = count;
+                bestFrom = from;
+                bestTo = to;
+            }
         }
 
-        String snippet = String.join(" ... ", segments);
-        if (snippet.length() > MAX_SNIPPET_LENGTH) {
-            snippet = snippet.substring(0, MAX_SNIPPET_LENGTH).trim();
-            int lastSpace = snippet.lastIndexOf(' ');
-            if (lastSpace > snippet.length() / 2) snippet = snippet.substring(0, lastSpace);
-            snippet = snippet + "...";
+        int matchStart = matches.starts[bestFrom];
+        int matchEnd = matches.ends[bestTo];
+        int slack = Math.max(0, MAX_SNIPPET_LENGTH - (matchEnd - matchStart));
+        int start = sentenceStart(content, Math.max(0, matchStart - slack / 2), matchStart);
+        int end = Math.min(content.length(), start + MAX_SNIPPET_LENGTH);
+        if (end < matchEnd) {
+            end = matchEnd;
         }
-        return snippet;
+        return fragment(content, start, end, matches, matchEnd);
     }
 
-    private String extractSegment(String text, int matchIndex, int matchLen) {
-        int start = Math.max(0, matchIndex - WINDOW);
-        int end = Math.min(text.length(), matchIndex + matchLen + WINDOW);
-        String seg = text.substring(start, end).trim();
+    /** Начало предложения незадолго до {@code from}, иначе начало слова, на которое попал {@code from}. */
+    private static int sentenceStart(String text, int from, int matchStart) {
+        for (int i = from; i > Math.max(0, from - SENTENCE_LOOKBACK); i--) {
+            char c = text.charAt(i - 1);
+            if ((c == '.' || c == '!' || c == '?') && i < text.length() && Character.isWhitespace(text.charAt(i))) {
+                return skipSpaces(text, i, matchStart);
+            }
+        }
+        if (from == 0) {
+            return 0;
+        }
+        while (from < matchStart && !Character.isWhitespace(text.charAt(from - 1))) {
+            from++;
+        }
+        return skipSpaces(text, from, matchStart);
+    }
 
-        if (start > 0) seg = "..." + seg;
-        if (end < text.length()) seg = seg + "...";
-        return seg;
+    private static int skipSpaces(String text, int i, int limit) {
+        while (i < limit && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return i;
     }
 
-    private String highlightSegment(String seg, String wordLower) {
-        if (seg == null || seg.isEmpty() || wordLower == null || wordLower.isBlank()) return seg;
+    /**
+     * Собирает текст {@code [start, end)}, обрезанный по границе слова не раньше {@code minEnd},
+     * экранирует HTML и выделяет попавшие в диапазон совпадения.
+     */
+    private static String fragment(String text, int start, int end, Matches matches, int minEnd) {
+        if (end < text.length()) {
+            int space = text.lastIndexOf(' ', end);
+            if (space >= minEnd) {
+                end = space;
+            }
+        }
+        StringBuilder sb = new StringBuilder(end - start + 32);
+        if (start > 0) {
+            sb.append("...");
+        }
+        int i = start;
+        for (int m = 0; m < matches.size && matches.starts[m] < end; m++) {
+            if (matches.starts[m] < i || matches.ends[m] > end) {
+                continue;
+            }
+            appendEscaped(sb, text, i, matches.starts[m]);
+            sb.append("<b>");
+            appendEscaped(sb, text, matches.starts[m], matches.ends[m]);
+            sb.append("</b>");
+            i = matches.ends[m];
+        }
+        appendEscaped(sb, text, i, end);
+        if (end < text.length()) {
+            sb.append("...");
+        }
+        return sb.toString().trim();
+    }
 
-        String patternStr = "\\b" + Pattern.quote(wordLower) + "\\b";
-        Pattern p = Pattern.compile(patternStr, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
-        Matcher m = p.matcher(seg);
+    private static void appendEscaped(StringBuilder sb, String text, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<':
+                    sb.append("&lt;");
+                    break;
+                case '>':
+                    sb.append("&gt;");
+                    break;
+                case '&':
+                    sb.append("&amp;");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+    }
 
-        StringBuffer sb = new StringBuffer();
-        while (m.find()) {
-            String match = m.group();
-            String replacement = "<b>" + Matcher.quoteReplacement(match) + "</b>";
-            m.appendReplacement(sb, replacement);
+    /** Совпадения в порядке появления в тексте: границы слова и номер леммы запроса. */
+    private static final class Matches {
+        int[] starts = new int[16];
+        int[] ends = new int[16];
+        int[] terms = new int[16];
+        int size;
+
+        void add(int start, int end, int term) {
+            if (size == starts.length) {
+                starts = Arrays.copyOf(starts, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+                terms = Arrays.copyOf(terms, size * 2);
+            }
+            starts[size] = start;
+            ends[size] = end;
+            terms[size++] = term;
         }
-        m.appendTail(sb);
-        return sb.toString();
     }
 }
@@ -0,0 +1,157 @@
+package searchengine.utils;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import searchengine.config.IndexerSettings;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Кэш «лемма -> id» по сайтам для горячего пути индексации. Хранит только
+ * идентификаторы строк lemma: frequency меняется атомарными UPDATE и в кэш не попадает,
+ * поэтому уменьшение частот при удалении страницы кэш не портит. Строки lemma не удаляются,
+ * id теряет силу только при откате транзакции, которая создала строку, — такие записи
+ * вычищаются через {@link #evict}.
+ * Размер ограничен на сайт. Чтение идёт без блокировок; при заполнении вытеснение по схеме
+ * CLOCK: запись, к которой обращались после прошлого обхода, получает второй шанс.
+ * При прогреве загружаются самые частые леммы.
+ */
+@Component
+@RequiredArgsConstructor
+public class LemmaIdCache {
+
+    private static final Logger log = LoggerFactory.getLogger(LemmaIdCache.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final IndexerSettings indexerSettings;
+    private final Map<Integer, SiteCache> sites = new ConcurrentHashMap<>();
+
+    public Integer get(int siteId, String lemma) {
+        SiteCache ids = sites.get(siteId);
+        return ids == null ? null : ids.get(lemma);
+    }
+
+    public void put(int siteId, String lemma, int id) {
+        if (capacity() == 0) {
+            return;
+        }
+        siteCache(siteId).put(lemma, id);
+    }
+
+    public void warmUp(int siteId) {
+        List<Object[]> rows = new ArrayList<>();
+        jdbcTemplate.query("SELECT id, lemma FROM lemma WHERE site_id = ? ORDER BY frequency DESC LIMIT ?",
+                rs -> {
+                    rows.add(new Object[]{rs.getInt(1), rs.getString(2)});
+                }, siteId, capacity());
+        SiteCache ids = siteCache(siteId);
+        // самые частые леммы вставляются последними и стрелка доходит до них последними
+        for (int i = rows.size() - 1; i >= 0; i--) {
+            ids.put((String) rows.get(i)[1], (Integer) rows.get(i)[0]);
+        }
+        log.info("Кэш лемм сайта id={} прогрет: {} записей", siteId, ids.size());
+    }
+
+    public void invalidate(int siteId) {
+        sites.remove(siteId);
+    }
+
+    public void evict(int siteId, String lemma) {
+        SiteCache ids = sites.get(siteId);
+        if (ids != null) {
+            ids.remove(lemma);
+        }
+    }
+
+    private SiteCache siteCache(int siteId) {
+        return sites.computeIfAbsent(siteId, id -> new SiteCache(capacity()));
+    }
+
+    private int capacity() {
+        return Math.max(0, indexerSettings.getLemmaCacheSize());
+    }
+
+    /**
+     * Записи в ConcurrentHashMap и кольцо CLOCK в порядке вставки. Чтение только ставит
+     * бит обращения; блокировка берётся лишь на вытеснение при переполнении.
+     */
+    private static final class SiteCache {
+        private final int capacity;
+        private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+        // узлы удалённых и заменённых записей остаются в кольце и пропускаются стрелкой
+        private final Queue<Entry> clock = new ConcurrentLinkedQueue<>();
+
+        SiteCache(int capacity) {
+            this.capacity = capacity;
+        }
+
+        Integer get(String lemma) {
+            Entry entry = entries.get(lemma);
+            if (entry == null) {
+                return null;
+            }
+            if (!entry.referenced) {
+                entry.referenced = true;
+            }
+            return entry.id;
+        }
+
+        void put(String lemma, int id) {
+            Entry existing = entries.get(lemma);
+            if (existing != null && existing.id == id) {
+                return;
+            }
+            Entry entry = new Entry(lemma, id);
+            entries.put(lemma, entry);
+            clock.add(entry);
+            if (entries.size() > capacity) {
+                evictOverflow();
+            }
+        }
+
+        void remove(String lemma) {
+            entries.remove(lemma);
+        }
+
+        int size() {
+            return entries.size();
+        }
+
+        private synchronized void evictOverflow() {
+            while (entries.size() > capacity) {
+                Entry hand = clock.poll();
+                if (hand == null) {
+                    return;
+                }
+                if (entries.get(hand.lemma) != hand) {
+                    continue;
+                }
+                if (hand.referenced) {
+                    hand.referenced = false;
+                    clock.add(hand);
+                } else {
+                    entries.remove(hand.lemma, hand);
+                }
+            }
+        }
+    }
+
+    private static final class Entry {
+        final String lemma;
+        final int id;
+        volatile boolean referenced;
+
+        Entry(String lemma, int id) {
+            this.lemma = lemma;
+            this.id = id;
+        }
+    }
+}
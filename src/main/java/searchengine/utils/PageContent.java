@@ -0,0 +1,116 @@
+package searchengine.utils;
+
+import lombok.Getter;
+import org.jsoup.internal.StringUtil;
+import org.jsoup.nodes.CDataNode;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.select.NodeTraversor;
+import org.jsoup.select.NodeVisitor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Текст и ссылки страницы, собранные за один обход тела документа. После извлечения
+ * DOM больше не нужен: в очередях конвейера держится только этот результат.
+ */
+@Getter
+public class PageContent {
+    private final String text;
+    // абсолютные URL из a[href], без javascript:, mailto: и пустых якорей
+    private final List<String> links;
+    // абсолютный URL из <link rel="canonical">, если есть
+    private final String canonicalUrl;
+
+    private PageContent(String text, List<String> links, String canonicalUrl) {
+        this.text = text;
+        this.links = links;
+        this.canonicalUrl = canonicalUrl;
+    }
+
+    public static PageContent extract(Document doc) {
+        Element canonical = doc.head() != null ? doc.head().selectFirst("link[rel=canonical][href]") : null;
+        String canonicalUrl = canonical != null ? canonical.absUrl("href") : null;
+        if (doc.body() == null) {
+            return new PageContent("", List.of(), canonicalUrl);
+        }
+        Collector collector = new Collector();
+        NodeTraversor.traverse(collector, doc.body());
+        return new PageContent(collector.text.toString().trim(), collector.links, canonicalUrl);
+    }
+
+    /**
+     * Складывает текст так же, как {@link Element#text()} в jsoup 1.15: пробелы нормализуются,
+     * кроме текста внутри pre/textarea/title и CDATA; блочные элементы и br отделяются пробелом.
+     */
+    private static final class Collector implements NodeVisitor {
+        final StringBuilder text = new StringBuilder(4096);
+        final List<String> links = new ArrayList<>();
+
+        @Override
+        public void head(Node node, int depth) {
+            if (node instanceof TextNode) {
+                String wholeText = ((TextNode) node).getWholeText();
+                if (node instanceof CDataNode || preservesWhitespace(node.parent())) {
+                    text.append(wholeText);
+                } else {
+                    StringUtil.appendNormalisedWhitespace(text, wholeText, endsWithSpace());
+                }
+                return;
+            }
+            if (!(node instanceof Element)) {
+                return;
+            }
+            Element element = (Element) node;
+            if (text.length() > 0 && (element.isBlock() || element.normalName().equals("br")) && !endsWithSpace()) {
+                text.append(' ');
+            }
+            if (element.normalName().equals("a") && element.hasAttr("href")) {
+                addLink(element);
+            }
+        }
+
+        @Override
+        public void tail(Node node, int depth) {
+            if (!(node instanceof Element) || !((Element) node).isBlock()) {
+                return;
+            }
+            if (node.nextSibling() instanceof TextNode && !endsWithSpace()) {
+                text.append(' ');
+            }
+        }
+
+        /** Как в jsoup: смотрит на сам элемент и пять его предков. */
+        private static boolean preservesWhitespace(Node node) {
+            if (!(node instanceof Element)) {
+                return false;
+            }
+            Element element = (Element) node;
+            for (int i = 0; i < 6 && element != null; i++) {
+                if (element.tag().preserveWhitespace()) {
+                    return true;
+                }
+                element = element.parent();
+            }
+            return false;
+        }
+
+        private void addLink(Element a) {
+            String href = a.attr("href");
+            if (href.isEmpty() || href.startsWith("javascript:") || href.startsWith("mailto:") || href.equals("#")) {
+                return;
+            }
+            String absUrl = a.absUrl("href");
+            if (!absUrl.isEmpty()) {
+                links.add(absUrl);
+            }
+        }
+
+        private boolean endsWithSpace() {
+            return text.length() != 0 && text.charAt(text.length() - 1) == ' ';
+        }
+    }
+}
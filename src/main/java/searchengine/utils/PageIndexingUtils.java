@@ -1,26 +1,51 @@
 package searchengine.utils;
 
 import lombok.RequiredArgsConstructor;
+import org.jsoup.Connection;
+import org.jsoup.HttpStatusException;
 import org.jsoup.Jsoup;
+import org.jsoup.UnsupportedMimeTypeException;
 import org.jsoup.nodes.Document;
 import org.jsoup.select.Elements;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import searchengine.config.CrawlerSettings;
+import searchengine.config.IndexerSettings;
+import searchengine.crawler.HostScheduler;
+import searchengine.crawler.SimHashIndex;
 import searchengine.model.IndexEntity;
 import searchengine.model.LemmaEntity;
 import searchengine.model.PageEntity;
 import searchengine.model.SiteEntity;
+import searchengine.repository.IndexBatchRepository;
 import searchengine.repository.IndexRepository;
 import searchengine.repository.LemmaRepository;
+import searchengine.repository.PageBodyRepository;
 import searchengine.repository.PageRepository;
+import searchengine.repository.SiteRepository;
+import searchengine.search.CorpusStatistics;
+import searchengine.search.InMemoryIndex;
+import searchengine.search.PositionCodec;
+import searchengine.search.IndexVersion;
 import searchengine.service.MorphologyService;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.TreeMap;
 
 @Component
 @RequiredArgsConstructor
@@ -28,134 +53,521 @@ public class PageIndexingUtils {
     private static final Logger log = LoggerFactory.getLogger(PageIndexingUtils.class);
 
     private final PageRepository pageRepository;
+    private final PageBodyRepository pageBodyRepository;
     private final LemmaRepository lemmaRepository;
     private final IndexRepository indexRepository;
+    private final SiteRepository siteRepository;
     private final MorphologyService morphologyService;
+    private final HostScheduler hostScheduler;
+    private final CrawlerSettings crawlerSettings;
+    private final IndexerSettings indexerSettings;
+    private final IndexBatchRepository indexBatchRepository;
+    private final LemmaIdCache lemmaIdCache;
+    private final InMemoryIndex inMemoryIndex;
+    private final IndexVersion indexVersion;
+    private final CorpusStatistics corpusStatistics;
+    private final TransactionTemplate transactionTemplate;
 
     public Document fetchDocument(String url) throws IOException {
-        return Jsoup.connect(url)
-                .userAgent("Mozilla/5.0 (compatible; SearchEngineBot/1.0)")
-                .timeout(10_000)
-                .get();
+        return fetchDocument(url, null).parse();
     }
 
-    public String extractText(Document doc) {
-        return doc.body() != null ? doc.body().text() : "";
+    /**
+     * Загружает страницу; если {@code previous} хранит ETag/Last-Modified, запрос условный,
+     * и на 304 возвращается результат без тела. Тип содержимого проверяется по заголовкам
+     * до чтения тела, тело читается не больше {@code crawler-settings.fetch.max-body-size} байт
+     * и разбирается позже, на стадии разбора.
+     *
+     * @throws UnsupportedMimeTypeException если Content-Type не из списка разрешённых
+     */
+    public FetchResult fetchDocument(String url, PageEntity previous) throws IOException {
+        int maxRetries = crawlerSettings.getPoliteness().getMaxRetries();
+        CrawlerSettings.Fetch fetch = crawlerSettings.getFetch();
+        for (int attempt = 0; ; attempt++) {
+            HostScheduler.Permit permit = hostScheduler.acquire(url);
+            int status = -1;
+            Long retryAfter = null;
+            try {
+                Connection connection = Jsoup.connect(url)
+                        .userAgent("Mozilla/5.0 (compatible; SearchEngineBot/1.0)")
+                        .timeout(fetch.getTimeoutMs())
+                        .maxBodySize(fetch.getMaxBodySize())
+                        .ignoreContentType(true)
+                        .ignoreHttpErrors(true);
+                if (previous != null && previous.getEtag() != null) {
+                    connection.header("If-None-Match", previous.getEtag());
+                }
+                if (previous != null && previous.getLastModified() != null) {
+                    connection.header("If-Modified-Since", previous.getLastModified());
+                }
+                Connection.Response response = connection.execute();
+                status = response.statusCode();
+                if (status == 429 || status == 503) {
+                    retryAfter = HostScheduler.parseRetryAfter(response.header("Retry-After"));
+                    if (attempt < maxRetries) {
+                        log.info("{} ответил {}, повтор {}/{}", url, status, attempt + 1, maxRetries);
+                        continue;
+                    }
+                }
+                if (status == 304 && previous != null) {
+                    return new FetchResult(null, null, url, previous.getEtag(), previous.getLastModified());
+                }
+                if (status >= 400) {
+                    throw new HttpStatusException("HTTP error fetching URL", status, url);
+                }
+                if (!isAllowedContentType(response.contentType(), fetch.getContentTypes())) {
+                    // тело не читается: соединение закрывается сразу после заголовков
+                    response.bodyStream().close();
+                    throw new UnsupportedMimeTypeException("Неподдерживаемый тип содержимого",
+                            response.contentType(), url);
+                }
+                return new FetchResult(response.bodyAsBytes(), response.charset(), response.url().toExternalForm(),
+                        response.header("ETag"), response.header("Last-Modified"));
+            } finally {
+                permit.release(status, retryAfter);
+            }
+        }
     }
 
-    public void deletePageIfExists(SiteEntity site, String path) {
-        Optional<PageEntity> existingOpt = pageRepository.findBySiteAndPath(site, path);
-        if (existingOpt.isPresent()) {
-            PageEntity page = existingOpt.get();
-            decreaseLemmaFrequencies(page);
-            deleteOldIndices(page);
-            pageRepository.delete(page);
-            log.info("Удалена существующая страница: site={}, path={}", site.getUrl(), path);
+    /** Content-Type начинается с одного из разрешённых типов; пустой список разрешает всё. */
+    private static boolean isAllowedContentType(String contentType, List<String> allowed) {
+        if (contentType == null || allowed.isEmpty()) {
+            return true;
+        }
+        for (String type : allowed) {
+            if (contentType.regionMatches(true, 0, type, 0, type.length())) {
+                return true;
+            }
         }
+        return false;
     }
 
-    private void decreaseLemmaFrequencies(PageEntity page) {
-        try {
-            List<IndexEntity> indices = indexRepository.findByPage(page);
-            
-            for (IndexEntity idx : indices) {
-                LemmaEntity lemma = idx.getLemma();
-                int rank = (int) idx.getRank();
-                lemma.setFrequency(Math.max(0, lemma.getFrequency() - rank));
-                lemmaRepository.save(lemma);
-            }
-            log.debug("Уменьшены частоты лемм для страницы id={}", page.getId());
-        } catch (Exception ex) {
-            log.warn("Не удалось уменьшить частоты лемм для страницы id={}: {}", page.getId(), ex.getMessage());
+    /**
+     * Известные страницы сайта с валидаторами, без содержимого: path -> страница.
+     */
+    public Map<String, PageEntity> loadKnownPages(SiteEntity site) {
+        Map<String, PageEntity> pages = new HashMap<>();
+        for (Object[] row : pageRepository.findValidatorsBySite(site)) {
+            PageEntity page = new PageEntity();
+            page.setId((Integer) row[0]);
+            page.setPath((String) row[1]);
+            page.setEtag((String) row[2]);
+            page.setLastModified((String) row[3]);
+            page.setContentHash((String) row[4]);
+            pages.put(page.getPath(), page);
         }
+        return pages;
     }
 
-    public PageEntity saveOrUpdatePage(SiteEntity site, String path, String text) {
-        Optional<PageEntity> existingOpt = pageRepository.findBySiteAndPath(site, path);
-        
-        if (existingOpt.isPresent()) {
-            return updateExistingPage(existingOpt.get(), text, site, path);
-        } else {
-            return createNewPage(site, path, text);
+    /**
+     * Страница не изменилась: обновляются только валидаторы, если сервер прислал новые.
+     */
+    public void touchPage(PageEntity known, String etag, String lastModified) {
+        if (!Objects.equals(known.getEtag(), etag) || !Objects.equals(known.getLastModified(), lastModified)) {
+            pageRepository.updateValidators(known.getId(), etag, lastModified);
         }
     }
 
-    private PageEntity updateExistingPage(PageEntity page, String text, SiteEntity site, String path) {
-        page.setCode(200);
-        page.setContent(text);
-        page = pageRepository.save(page);
-        log.info("Updated page id={} site={} path={}", page.getId(), site.getUrl(), page.getPath());
-        
-        deleteOldIndices(page);
-        return page;
+    /**
+     * Индекс отпечатков страниц сайта из прошлых обходов; почти дубликаты в него не входят.
+     */
+    public SimHashIndex loadFingerprints(SiteEntity site, int maxDistance) {
+        SimHashIndex index = new SimHashIndex(maxDistance);
+        for (Object[] row : pageRepository.findFingerprintsBySite(site)) {
+            index.add((String) row[0], (Long) row[1]);
+        }
+        return index;
     }
 
-    private void deleteOldIndices(PageEntity page) {
+    public SimHash simhash(String text) {
+        SimHash simHash = new SimHash();
+        morphologyService.forEachToken(text, simHash);
+        return simHash;
+    }
+
+    public static String contentHash(String text) {
         try {
-            indexRepository.deleteByPage(page);
-            log.debug("Deleted old indices for page id={}", page.getId());
-        } catch (Exception ex) {
-            log.warn("Не удалось удалить старые индексы для page id={}: {}", page.getId(), ex.getMessage());
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
         }
     }
 
-    private PageEntity createNewPage(SiteEntity site, String path, String text) {
-        PageEntity page = new PageEntity();
+    /**
+     * Удаляет страницу вместе с текстом и индексом одной транзакцией.
+     */
+    public void deletePageIfExists(SiteEntity site, String path) {
+        corpusStatistics.update(() -> {
+            RemovedIndex removed = transactionTemplate.execute(status -> {
+                Optional<PageEntity> existingOpt = pageRepository.findBySiteAndPath(site, path);
+                if (existingOpt.isEmpty()) {
+                    return null;
+                }
+                PageEntity page = existingOpt.get();
+                RemovedIndex index = removePageIndex(page, site);
+                pageBodyRepository.delete(page.getId());
+                pageRepository.delete(page);
+                return index;
+            });
+            if (removed != null) {
+                removed.apply(site);
+                log.info("Удалена существующая страница: site={}, path={}", site.getUrl(), path);
+            }
+        });
+        indexVersion.bump(site.getUrl());
+    }
+
+    /**
+     * Записывает пачку страниц одного сайта одной транзакцией: строки page и page_body,
+     * удаление старого индекса переиндексируемых страниц и вставку нового индекса. Поиск
+     * никогда не видит страницу с новым текстом без индекса или без старого индекса и без
+     * нового. Статистика корпуса и индекс в памяти обновляются только после фиксации.
+     */
+    public List<PageEntity> savePages(SiteEntity site, List<PageWrite> writes) {
+        List<PageTerms> allTerms = new ArrayList<>(writes.size());
+        for (PageWrite write : writes) {
+            if (!write.isAlias()) {
+                allTerms.add(write.getTerms());
+            }
+        }
+        List<PageEntity> saved = new ArrayList<>(writes.size());
+        List<PageEntity> pages = new ArrayList<>(writes.size());
+        List<PageTerms> terms = new ArrayList<>(writes.size());
+        List<RemovedIndex> removed = new ArrayList<>();
+        corpusStatistics.update(() -> {
+            writeInTransaction(site, allTerms, () -> {
+                // при повторе после отката всё собирается заново
+                saved.clear();
+                pages.clear();
+                terms.clear();
+                removed.clear();
+                for (PageWrite write : writes) {
+                    PageEntity page = savePage(site, write, removed);
+                    saved.add(page);
+                    if (!write.isAlias()) {
+                        pages.add(page);
+                        terms.add(write.getTerms());
+                    }
+                }
+                saveIndex(site, pages, terms);
+            });
+            removed.forEach(index -> index.apply(site));
+            for (int i = 0; i < pages.size(); i++) {
+                PageTerms pageTerms = terms.get(i);
+                if (pageTerms.isEmpty()) {
+                    continue;
+                }
+                PageEntity page = pages.get(i);
+                page.setTermCount(pageTerms.getLength());
+                corpusStatistics.onPageIndexed(site.getUrl(), pageTerms.getFrequencies().keySet(),
+                        pageTerms.getLength());
+                inMemoryIndex.putPage(page.getId(), site.getId(), pageTerms.getFrequencies(),
+                        pageTerms.getPositions());
+            }
+        });
+        indexVersion.bump(site.getUrl());
+        return saved;
+    }
+
+    /**
+     * Сохраняет строку page и текст страницы; почти дубликат — ссылкой на
+     * {@code canonicalPath} без текста. Старый индекс существующей страницы удаляется.
+     */
+    private PageEntity savePage(SiteEntity site, PageWrite write, List<RemovedIndex> removed) {
+        Optional<PageEntity> existingOpt = pageRepository.findBySiteAndPath(site, write.getPath());
+        PageEntity page = existingOpt.orElseGet(PageEntity::new);
         page.setSite(site);
-        page.setPath(path);
+        page.setPath(write.getPath());
         page.setCode(200);
-        page.setContent(text);
+        page.setContentHash(contentHash(write.getText()));
+        page.setEtag(write.getEtag());
+        page.setLastModified(write.getLastModified());
+        page.setSimhash(write.getSimhash());
+        page.setCanonicalPath(write.getCanonicalPath());
         page = pageRepository.save(page);
-        log.info("Saved page id={} site={} path={}", page.getId(), site.getUrl(), page.getPath());
+        if (write.isAlias()) {
+            if (existingOpt.isPresent()) {
+                pageBodyRepository.delete(page.getId());
+            }
+            log.info("Почти дубликат site={} path={} сохранён ссылкой на {}", site.getUrl(), write.getPath(),
+                    write.getCanonicalPath());
+        } else {
+            pageBodyRepository.save(page.getId(), write.getText());
+            log.info("{} page id={} site={} path={}", existingOpt.isPresent() ? "Updated" : "Saved",
+                    page.getId(), site.getUrl(), page.getPath());
+        }
+        if (existingOpt.isPresent()) {
+            RemovedIndex index = removePageIndex(page, site);
+            if (index != null) {
+                removed.add(index);
+            }
+        }
         return page;
     }
 
-    public void indexPageContent(PageEntity page, SiteEntity site, String text) {
-        List<String> lemmas = morphologyService.lemmatize(text);
-        Map<String, Integer> freq = countLemmaFrequency(lemmas);
-        saveIndices(page, site, freq);
+    /**
+     * Удаляет строки индекса страницы и откатывает посчитанное при их записи: frequency
+     * и doc_frequency лемм и page_count сайта. Вызывается внутри транзакции записи;
+     * статистику в памяти откатывает {@link RemovedIndex#apply} после её фиксации.
+     *
+     * @return удалённый индекс или null, если страница не была проиндексирована
+     */
+    private RemovedIndex removePageIndex(PageEntity page, SiteEntity site) {
+        List<String> lemmas = new ArrayList<>();
+        int length = 0;
+        for (Object[] row : indexRepository.findLemmaRanksByPage(page)) {
+            int rank = ((Number) row[2]).intValue();
+            lemmaRepository.removePageOccurrences((Integer) row[0], rank);
+            lemmas.add((String) row[1]);
+            length += rank;
+        }
+        if (lemmas.isEmpty()) {
+            return null;
+        }
+        indexRepository.deleteByPage(page);
+        siteRepository.addPageCount(site.getId(), -1, -length);
+        return new RemovedIndex(page.getId(), lemmas, length);
     }
 
-    private Map<String, Integer> countLemmaFrequency(List<String> lemmas) {
-        Map<String, Integer> freq = new HashMap<>();
+    /**
+     * Частоты лемм текста и, если {@code indexer-settings.positions}, их позиции.
+     */
+    public PageTerms analyze(String text) {
+        boolean positions = indexerSettings.isPositions();
+        TermFrequencyMap freq = new TermFrequencyMap(Math.max(16, text.length() / 64), positions);
+        morphologyService.countLemmas(text, freq);
+        if (!positions) {
+            return new PageTerms(freq.toMap(), Map.of());
+        }
+        Map<String, byte[]> encoded = new HashMap<>(freq.size() * 2);
+        freq.forEachPositions((lemma, list, count) -> encoded.put(lemma, PositionCodec.encode(list, count)));
+        return new PageTerms(freq.toMap(), encoded);
+    }
+
+    /**
+     * Пишет леммы и индекс нескольких страниц одного сайта в текущей транзакции;
+     * {@code terms.get(i)} относится к {@code pages.get(i)}. Вместе со строками индекса
+     * обновляются счётчики лемм, term_count страниц и page_count сайта.
+     */
+    private void saveIndex(SiteEntity site, List<PageEntity> pages, List<PageTerms> terms) {
+        List<Integer> pageIds = new ArrayList<>(pages.size());
+        List<Integer> lengths = new ArrayList<>(pages.size());
+        long indexedTerms = 0;
+        for (int i = 0; i < pages.size(); i++) {
+            PageTerms pageTerms = terms.get(i);
+            if (!pageTerms.isEmpty()) {
+                pageIds.add(pages.get(i).getId());
+                lengths.add(pageTerms.getLength());
+                indexedTerms += pageTerms.getLength();
+            }
+        }
+        if (indexerSettings.isBatchWrites()) {
+            saveIndicesBatch(site, pages, terms);
+        } else {
+            for (int i = 0; i < pages.size(); i++) {
+                saveIndices(pages.get(i), site, terms.get(i));
+            }
+        }
+        if (!pageIds.isEmpty()) {
+            indexBatchRepository.updateTermCounts(pageIds, lengths);
+            siteRepository.addPageCount(site.getId(), pageIds.size(), indexedTerms);
+        }
+    }
+
+    /**
+     * Выполняет запись индекса в транзакции. После отката id лемм, созданных в ней, в кэше
+     * больше не действительны. Если лемму параллельно создал другой поток обхода этого же
+     * сайта, запись повторяется один раз: после отката лемма уже есть в базе.
+     */
+    private void writeInTransaction(SiteEntity site, List<PageTerms> terms, Runnable writes) {
+        boolean canRetry = !TransactionSynchronizationManager.isActualTransactionActive();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> writes.run());
+                return;
+            } catch (RuntimeException ex) {
+                for (PageTerms pageTerms : terms) {
+                    pageTerms.getFrequencies().keySet().forEach(lemma -> lemmaIdCache.evict(site.getId(), lemma));
+                }
+                if (!canRetry || attempt > 1 || !(ex instanceof DataIntegrityViolationException)) {
+                    throw ex;
+                }
+                log.debug("Повтор записи индекса site={} после конфликта: {}", site.getUrl(), ex.getMessage());
+            }
+        }
+    }
+
+    private void saveIndicesBatch(SiteEntity site, List<PageEntity> pages, List<PageTerms> terms) {
+        Map<String, int[]> total = new TreeMap<>();
+        for (PageTerms pageTerms : terms) {
+            pageTerms.getFrequencies().forEach((lemma, count) -> {
+                int[] acc = total.computeIfAbsent(lemma, k -> new int[3]);
+                acc[0] += count;
+                acc[1]++;
+                acc[2] = Math.max(acc[2], count);
+            });
+        }
+        if (total.isEmpty()) {
+            return;
+        }
+        List<String> lemmas = new ArrayList<>(total.keySet());
+        List<Integer> counts = new ArrayList<>(lemmas.size());
+        List<Integer> docCounts = new ArrayList<>(lemmas.size());
+        List<Integer> maxRanks = new ArrayList<>(lemmas.size());
+        for (int[] acc : total.values()) {
+            counts.add(acc[0]);
+            docCounts.add(acc[1]);
+            maxRanks.add(acc[2]);
+        }
+        indexBatchRepository.upsertLemmas(site.getId(), lemmas, counts, docCounts, maxRanks);
+        Map<String, Integer> lemmaIds = resolveLemmaIds(site.getId(), lemmas);
+
+        List<Integer> pageIds = new ArrayList<>();
+        List<Integer> ids = new ArrayList<>();
+        List<Integer> ranks = new ArrayList<>();
+        List<byte[]> positions = new ArrayList<>();
+        for (int i = 0; i < pages.size(); i++) {
+            Integer pageId = pages.get(i).getId();
+            Map<String, byte[]> pagePositions = terms.get(i).getPositions();
+            for (var entry : terms.get(i).getFrequencies().entrySet()) {
+                Integer lemmaId = lemmaIds.get(entry.getKey());
+                if (lemmaId == null) {
+                    log.warn("Не найден id леммы '{}' после вставки, site={}", entry.getKey(), site.getUrl());
+                    continue;
+                }
+                pageIds.add(pageId);
+                ids.add(lemmaId);
+                ranks.add(entry.getValue());
+                positions.add(pagePositions.get(entry.getKey()));
+            }
+        }
+        indexBatchRepository.insertIndices(pageIds, ids, ranks, positions);
+    }
+
+    private Map<String, Integer> resolveLemmaIds(int siteId, List<String> lemmas) {
+        Map<String, Integer> ids = new HashMap<>(lemmas.size() * 2);
+        List<String> misses = new ArrayList<>();
         for (String lemma : lemmas) {
-            if (lemma == null || lemma.isBlank()) continue;
-            freq.merge(lemma, 1, Integer::sum);
+            Integer id = lemmaIdCache.get(siteId, lemma);
+            if (id != null) {
+                ids.put(lemma, id);
+            } else {
+                misses.add(lemma);
+            }
         }
-        return freq;
+        if (!misses.isEmpty()) {
+            Map<String, Integer> loaded = indexBatchRepository.findLemmaIds(siteId, misses);
+            loaded.forEach((lemma, id) -> lemmaIdCache.put(siteId, lemma, id));
+            ids.putAll(loaded);
+        }
+        return ids;
     }
 
-    private void saveIndices(PageEntity page, SiteEntity site, Map<String, Integer> freq) {
-        for (var entry : freq.entrySet()) {
+    private void saveIndices(PageEntity page, SiteEntity site, PageTerms terms) {
+        for (var entry : terms.getFrequencies().entrySet()) {
             String lemma = entry.getKey();
             int count = entry.getValue();
-            
-            LemmaEntity lemmaEntity = getOrCreateLemma(site, lemma);
-            lemmaEntity.setFrequency(lemmaEntity.getFrequency() + count);
-            lemmaEntity = lemmaRepository.save(lemmaEntity);
-            
-            createIndexEntry(page, lemmaEntity, count);
+
+            LemmaEntity lemmaEntity = getOrCreateLemma(site, lemma, count);
+            createIndexEntry(page, lemmaEntity, count, terms.getPositions().get(lemma));
         }
     }
 
-    private LemmaEntity getOrCreateLemma(SiteEntity site, String lemma) {
-        return lemmaRepository
-                .findBySiteAndLemma(site, lemma)
-                .orElseGet(() -> {
-                    LemmaEntity e = new LemmaEntity();
-                    e.setSite(site);
-                    e.setLemma(lemma);
-                    e.setFrequency(0);
-                    return e;
-                });
+    private LemmaEntity getOrCreateLemma(SiteEntity site, String lemma, int count) {
+        Integer cachedId = lemmaIdCache.get(site.getId(), lemma);
+        if (cachedId != null) {
+            lemmaRepository.addPageOccurrences(cachedId, count);
+            return lemmaRepository.getReferenceById(cachedId);
+        }
+
+        Optional<LemmaEntity> existing = lemmaRepository.findBySiteAndLemma(site, lemma);
+        if (existing.isPresent()) {
+            lemmaRepository.addPageOccurrences(existing.get().getId(), count);
+            lemmaIdCache.put(site.getId(), lemma, existing.get().getId());
+            return existing.get();
+        }
+
+        LemmaEntity e = new LemmaEntity();
+        e.setSite(site);
+        e.setLemma(lemma);
+        e.setFrequency(count);
+        e.setDocFrequency(1);
+        e.setMaxRank(count);
+        // конфликт с параллельно созданной леммой откатывает транзакцию, см. writeInTransaction
+        e = lemmaRepository.save(e);
+        lemmaIdCache.put(site.getId(), lemma, e.getId());
+        return e;
     }
 
-    private void createIndexEntry(PageEntity page, LemmaEntity lemmaEntity, int rank) {
+    private void createIndexEntry(PageEntity page, LemmaEntity lemmaEntity, int rank, byte[] positions) {
         IndexEntity idx = new IndexEntity();
         idx.setPage(page);
         idx.setLemma(lemmaEntity);
         idx.setRank(rank);
+        idx.setPositions(positions);
         indexRepository.save(idx);
     }
-}
 
+    /** Удалённый индекс страницы: что откатить в памяти после фиксации транзакции. */
+    private final class RemovedIndex {
+        final int pageId;
+        final List<String> lemmas;
+        final int length;
+
+        RemovedIndex(int pageId, List<String> lemmas, int length) {
+            this.pageId = pageId;
+            this.lemmas = lemmas;
+            this.length = length;
+        }
+
+        void apply(SiteEntity site) {
+            corpusStatistics.onPageRemoved(site.getUrl(), lemmas, length);
+            inMemoryIndex.removePage(pageId);
+            log.debug("Deleted old indices for page id={}", pageId);
+        }
+    }
+
+    public static final class FetchResult {
+        // null, если сервер ответил 304 Not Modified
+        private final byte[] body;
+        private final String charset;
+        private final String url;
+        private final String etag;
+        private final String lastModified;
+
+        FetchResult(byte[] body, String charset, String url, String etag, String lastModified) {
+            this.body = body;
+            this.charset = charset;
+            this.url = url;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        public boolean isNotModified() {
+            return body == null;
+        }
+
+        /**
+         * Разбирает тело в документ; кодировка берётся из Content-Type или из meta страницы.
+         */
+        public Document parse() throws IOException {
+            if (body == null) {
+                return null;
+            }
+            return Jsoup.parse(new ByteArrayInputStream(body), charset, url);
+        }
+
+        public int getBodySize() {
+            return body == null ? 0 : body.length;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+    }
+}
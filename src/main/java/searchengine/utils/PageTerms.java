@@ -0,0 +1,32 @@
+package searchengine.utils;
+
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * Леммы страницы, подготовленные к записи в индекс: частоты и, если индекс
+ * позиционный, закодированные {@link searchengine.search.PositionCodec} позиции.
+ */
+@Getter
+public class PageTerms {
+    private final Map<String, Integer> frequencies;
+    // пустая, если позиции не хранятся
+    private final Map<String, byte[]> positions;
+    // число лемм на странице с повторами — длина документа для BM25
+    private final int length;
+
+    public PageTerms(Map<String, Integer> frequencies, Map<String, byte[]> positions) {
+        this.frequencies = frequencies;
+        this.positions = positions;
+        int sum = 0;
+        for (int count : frequencies.values()) {
+            sum += count;
+        }
+        this.length = sum;
+    }
+
+    public boolean isEmpty() {
+        return frequencies.isEmpty();
+    }
+}
@@ -0,0 +1,45 @@
+package searchengine.utils;
+
+import lombok.Getter;
+
+/**
+ * Страница для записи пачкой через {@link PageIndexingUtils#savePages}: текст с леммами
+ * или, если задан {@code canonicalPath}, ссылка на оригинал без текста и индекса.
+ */
+@Getter
+public class PageWrite {
+    private final String path;
+    private final String text;
+    private final String etag;
+    private final String lastModified;
+    private final Long simhash;
+    // путь оригинала, если страница — почти дубликат
+    private final String canonicalPath;
+    // null для почти дубликата
+    private final PageTerms terms;
+
+    private PageWrite(String path, String text, String etag, String lastModified, Long simhash,
+                      String canonicalPath, PageTerms terms) {
+        this.path = path;
+        this.text = text;
+        this.etag = etag;
+        this.lastModified = lastModified;
+        this.simhash = simhash;
+        this.canonicalPath = canonicalPath;
+        this.terms = terms;
+    }
+
+    public static PageWrite page(String path, String text, String etag, String lastModified, Long simhash,
+                                 PageTerms terms) {
+        return new PageWrite(path, text, etag, lastModified, simhash, null, terms);
+    }
+
+    public static PageWrite alias(String path, String text, String etag, String lastModified, Long simhash,
+                                  String canonicalPath) {
+        return new PageWrite(path, text, etag, lastModified, simhash, canonicalPath, null);
+    }
+
+    public boolean isAlias() {
+        return canonicalPath != null;
+    }
+}
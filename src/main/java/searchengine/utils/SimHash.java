@@ -0,0 +1,64 @@
+package searchengine.utils;
+
+import searchengine.service.MorphologyService;
+
+/**
+ * 64-битный SimHash текста по шинглам из трёх соседних слов. У почти одинаковых текстов
+ * отпечатки отличаются в нескольких битах, поэтому близость страниц проверяется
+ * расстоянием Хэмминга между двумя long, без сравнения самих текстов.
+ */
+public final class SimHash implements MorphologyService.TokenConsumer {
+
+    public static final int SHINGLE = 3;
+
+    private final int[] weights = new int[64];
+    private long prev1;
+    private long prev2;
+    private int tokens;
+
+    @Override
+    public void accept(char[] buffer, int length, int position) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < length; i++) {
+            h ^= buffer[i];
+            h *= 0x100000001b3L;
+        }
+        tokens++;
+        if (tokens >= SHINGLE) {
+            // порядок слов в шингле учитывается сдвигом, иначе "a b c" и "c b a" совпали бы
+            long shingle = mix(Long.rotateLeft(prev2, 2) ^ Long.rotateLeft(prev1, 1) ^ h);
+            for (int bit = 0; bit < 64; bit++) {
+                weights[bit] += (int) ((shingle >>> bit) & 1L) * 2 - 1;
+            }
+        }
+        prev2 = prev1;
+        prev1 = h;
+    }
+
+    public long value() {
+        long result = 0;
+        for (int bit = 0; bit < 64; bit++) {
+            if (weights[bit] > 0) {
+                result |= 1L << bit;
+            }
+        }
+        return result;
+    }
+
+    public int tokens() {
+        return tokens;
+    }
+
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
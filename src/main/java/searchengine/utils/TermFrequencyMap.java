@@ -0,0 +1,217 @@
+package searchengine.utils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Счётчик частот слов с открытой адресацией. Ключ ищется прямо по символам буфера токенизатора,
+ * строка создаётся только при первом появлении слова, счётчики хранятся в int[].
+ * При {@code trackPositions} для каждого слова дополнительно запоминаются номера его токенов.
+ */
+public final class TermFrequencyMap {
+
+    private String[] keys;
+    private int[] hashes;
+    private int[] counts;
+    // позиции вхождений слова; заполнены позиции [0, counts[slot])
+    private int[][] positions;
+    private int size;
+    private int mask;
+
+    public TermFrequencyMap() {
+        this(256);
+    }
+
+    public TermFrequencyMap(int expectedTerms) {
+        this(expectedTerms, false);
+    }
+
+    public TermFrequencyMap(int expectedTerms, boolean trackPositions) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedTerms * 2) - 1) << 1;
+        keys = new String[capacity];
+        hashes = new int[capacity];
+        counts = new int[capacity];
+        positions = trackPositions ? new int[capacity][] : null;
+        mask = capacity - 1;
+    }
+
+    public boolean isTrackingPositions() {
+        return positions != null;
+    }
+
+    public void add(char[] buffer, int length) {
+        add(buffer, length, 1);
+    }
+
+    public void add(char[] buffer, int length, int delta) {
+        int hash = hash(buffer, length);
+        int slot = hash & mask;
+        while (keys[slot] != null) {
+            if (hashes[slot] == hash && equals(keys[slot], buffer, length)) {
+                counts[slot] += delta;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = new String(buffer, 0, length);
+        hashes[slot] = hash;
+        counts[slot] = delta;
+        if (++size * 2 > keys.length) {
+            rehash();
+        }
+    }
+
+    public void add(String term) {
+        add(term, -1);
+    }
+
+    /**
+     * @param position номер токена в тексте; запоминается, если карта хранит позиции
+     */
+    public void add(String term, int position) {
+        int hash = hash(term);
+        int slot = hash & mask;
+        while (keys[slot] != null) {
+            if (hashes[slot] == hash && keys[slot].equals(term)) {
+                addPosition(slot, counts[slot], position);
+                counts[slot]++;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = term;
+        hashes[slot] = hash;
+        counts[slot] = 1;
+        addPosition(slot, 0, position);
+        if (++size * 2 > keys.length) {
+            rehash();
+        }
+    }
+
+    private void addPosition(int slot, int index, int position) {
+        if (positions == null) {
+            return;
+        }
+        int[] list = positions[slot];
+        if (list == null) {
+            list = positions[slot] = new int[4];
+        } else if (index == list.length) {
+            list = positions[slot] = Arrays.copyOf(list, list.length * 2);
+        }
+        list[index] = position;
+    }
+
+    public int get(String term) {
+        int hash = hash(term);
+        int slot = hash & mask;
+        while (keys[slot] != null) {
+            if (hashes[slot] == hash && keys[slot].equals(term)) {
+                return counts[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void forEach(Visitor visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                visitor.visit(keys[i], counts[i]);
+            }
+        }
+    }
+
+    /**
+     * Обходит слова вместе с позициями; массив позиций заполнен на {@code count} элементов.
+     * Позиции пишет только {@link #add(String, int)}, добавления из буфера их не учитывают.
+     */
+    public void forEachPositions(PositionsVisitor visitor) {
+        if (positions == null) {
+            return;
+        }
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                visitor.visit(keys[i], positions[i], counts[i]);
+            }
+        }
+    }
+
+    public Map<String, Integer> toMap() {
+        Map<String, Integer> map = new HashMap<>(size * 2);
+        forEach(map::put);
+        return map;
+    }
+
+    private static int hash(char[] buffer, int length) {
+        int h = 0;
+        for (int i = 0; i < length; i++) {
+            h = 31 * h + buffer[i];
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static int hash(String term) {
+        int h = 0;
+        for (int i = 0; i < term.length(); i++) {
+            h = 31 * h + term.charAt(i);
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean equals(String key, char[] buffer, int length) {
+        if (key.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (key.charAt(i) != buffer[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash() {
+        String[] oldKeys = keys;
+        int[] oldHashes = hashes;
+        int[] oldCounts = counts;
+        int[][] oldPositions = positions;
+        keys = new String[oldKeys.length * 2];
+        hashes = new int[oldKeys.length * 2];
+        counts = new int[oldKeys.length * 2];
+        positions = oldPositions != null ? new int[oldKeys.length * 2][] : null;
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = oldHashes[i] & mask;
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                hashes[slot] = oldHashes[i];
+                counts[slot] = oldCounts[i];
+                if (oldPositions != null) {
+                    positions[slot] = oldPositions[i];
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface Visitor {
+        void visit(String term, int count);
+    }
+
+    @FunctionalInterface
+    public interface PositionsVisitor {
+        void visit(String term, int[] positions, int count);
+    }
+}
@@ -0,0 +1,319 @@
+package searchengine.utils;
+
+import searchengine.config.CanonicalRules;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Приводит URL к каноническому виду по {@link CanonicalRules}: схема и хост в нижнем регистре,
+ * без www и порта по умолчанию, без фрагмента, сегментов «.» и «..» и имени индексного файла, с отфильтрованными
+ * и упорядоченными параметрами запроса и заданной политикой завершающего слэша.
+ * <p>
+ * Правила разбираются один раз в конструкторе. URL собирается за один проход в буфер
+ * потока без регулярных выражений; если он уже канонический, возвращается тот же объект.
+ */
+public final class UrlCanonicalizer {
+
+    public static final UrlCanonicalizer DEFAULT = new UrlCanonicalizer(new CanonicalRules());
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+    private static final ThreadLocal<int[]> PARAMS = ThreadLocal.withInitial(() -> new int[32]);
+
+    private final boolean stripWww;
+    private final boolean removeDefaultPort;
+    private final boolean sortParams;
+    private final boolean relCanonical;
+    private final CanonicalRules.TrailingSlash trailingSlash;
+    private final String[] indexFiles;
+    private final String[] allowExact;
+    private final String[] allowPrefix;
+    private final String[] denyExact;
+    private final String[] denyPrefix;
+
+    public UrlCanonicalizer(CanonicalRules rules) {
+        stripWww = rules.isStripWww();
+        removeDefaultPort = rules.isRemoveDefaultPort();
+        sortParams = rules.isSortParams();
+        relCanonical = rules.isRelCanonical();
+        trailingSlash = rules.getTrailingSlash();
+        indexFiles = rules.getIndexFiles().stream().map(s -> s.toLowerCase(Locale.ROOT)).toArray(String[]::new);
+        allowExact = exact(rules.getAllowParams());
+        allowPrefix = prefixes(rules.getAllowParams());
+        denyExact = exact(rules.getDenyParams());
+        denyPrefix = prefixes(rules.getDenyParams());
+    }
+
+    public boolean isRelCanonical() {
+        return relCanonical;
+    }
+
+    public String canonicalize(String url) {
+        if (url == null || url.isEmpty()) {
+            return url;
+        }
+        int end = url.indexOf('#');
+        if (end < 0) {
+            end = url.length();
+        }
+        int schemeEnd = url.indexOf("://");
+        if (schemeEnd <= 0 || schemeEnd > end) {
+            return end == url.length() ? url : url.substring(0, end);
+        }
+        StringBuilder sb = BUFFER.get();
+        sb.setLength(0);
+        for (int i = 0; i < schemeEnd; i++) {
+            sb.append(Character.toLowerCase(url.charAt(i)));
+        }
+        sb.append("://");
+
+        int hostFrom = schemeEnd + 3;
+        int authorityEnd = hostFrom;
+        while (authorityEnd < end && url.charAt(authorityEnd) != '/' && url.charAt(authorityEnd) != '?') {
+            authorityEnd++;
+        }
+        int at = url.lastIndexOf('@', authorityEnd - 1);
+        if (at >= hostFrom) {
+            sb.append(url, hostFrom, at + 1);
+            hostFrom = at + 1;
+        }
+        int portSep = -1;
+        for (int i = authorityEnd - 1; i >= hostFrom; i--) {
+            char c = url.charAt(i);
+            if (c == ':') {
+                portSep = i;
+                break;
+            }
+            if (c < '0' || c > '9') {
+                break;
+            }
+        }
+        int hostEnd = portSep < 0 ? authorityEnd : portSep;
+        if (stripWww && hostEnd - hostFrom > 4 && url.regionMatches(true, hostFrom, "www.", 0, 4)) {
+            hostFrom += 4;
+        }
+        for (int i = hostFrom; i < hostEnd; i++) {
+            sb.append(Character.toLowerCase(url.charAt(i)));
+        }
+        if (portSep >= 0 && portSep + 1 < authorityEnd && !isDefaultPort(sb, schemeEnd, url, portSep + 1, authorityEnd)) {
+            sb.append(url, portSep, authorityEnd);
+        }
+
+        int queryStart = url.indexOf('?', authorityEnd);
+        if (queryStart < 0 || queryStart > end) {
+            queryStart = end;
+        }
+        int pathStart = sb.length();
+        sb.append(url, authorityEnd, queryStart);
+        removeDotSegments(sb, pathStart);
+        dropIndexFile(sb, pathStart);
+        int queryFrom = sb.length();
+        if (queryStart + 1 < end) {
+            sb.append('?');
+            if (!appendParams(url, queryStart + 1, end, sb)) {
+                sb.setLength(queryFrom);
+            }
+        }
+        applyTrailingSlash(sb, pathStart, queryFrom);
+        return url.contentEquals(sb) ? url : sb.toString();
+    }
+
+    private boolean isDefaultPort(StringBuilder sb, int schemeLength, String url, int from, int to) {
+        if (!removeDefaultPort) {
+            return false;
+        }
+        if (schemeLength == 4 && sb.indexOf("http") == 0) {
+            return url.regionMatches(from, "80", 0, 2) && to - from == 2;
+        }
+        if (schemeLength == 5 && sb.indexOf("https") == 0) {
+            return url.regionMatches(from, "443", 0, 3) && to - from == 3;
+        }
+        return false;
+    }
+
+    /** Разрешает «.» и «..» в пути по RFC 3986 (5.2.4); «..» выше корня отбрасывается. */
+    private static void removeDotSegments(StringBuilder sb, int pathStart) {
+        if (sb.indexOf("/.", pathStart) < 0) {
+            return;
+        }
+        String path = sb.substring(pathStart);
+        String[] segments = path.split("/", -1);
+        List<String> out = new ArrayList<>(segments.length);
+        boolean trailingSlash = false;
+        for (int i = 1; i < segments.length; i++) {
+            String segment = segments[i];
+            trailingSlash = segment.equals(".") || segment.equals("..");
+            if (segment.equals("..")) {
+                if (!out.isEmpty()) {
+                    out.remove(out.size() - 1);
+                }
+            } else if (!segment.equals(".")) {
+                out.add(segment);
+            }
+        }
+        sb.setLength(pathStart);
+        for (String segment : out) {
+            sb.append('/').append(segment);
+        }
+        if (trailingSlash || out.isEmpty()) {
+            sb.append('/');
+        }
+    }
+
+    private void dropIndexFile(StringBuilder sb, int pathStart) {
+        int slash = sb.lastIndexOf("/");
+        if (slash < pathStart) {
+            return;
+        }
+        int length = sb.length() - slash - 1;
+        for (String name : indexFiles) {
+            if (name.length() == length && regionEqualsIgnoreCase(sb, slash + 1, name)) {
+                sb.setLength(slash + 1);
+                return;
+            }
+        }
+    }
+
+    private void applyTrailingSlash(StringBuilder sb, int pathStart, int pathEnd) {
+        int pathLength = pathEnd - pathStart;
+        boolean hasQuery = sb.length() > pathEnd;
+        switch (trailingSlash) {
+            case STRIP:
+                // корень перед запросом остаётся: https://a.ru/?p=1, а не https://a.ru?p=1
+                if (pathLength == 0 && hasQuery) {
+                    sb.insert(pathEnd, '/');
+                } else if (pathLength > 0 && sb.charAt(pathEnd - 1) == '/' && (pathLength > 1 || !hasQuery)) {
+                    sb.deleteCharAt(pathEnd - 1);
+                }
+                break;
+            case ADD:
+                if (pathLength == 0 || sb.charAt(pathEnd - 1) != '/' && !lastSegmentHasDot(sb, pathStart, pathEnd)) {
+                    sb.insert(pathEnd, '/');
+                }
+                break;
+            default:
+                if (pathLength == 0) {
+                    sb.insert(pathEnd, '/');
+                }
+        }
+    }
+
+    private static boolean lastSegmentHasDot(StringBuilder sb, int pathStart, int pathEnd) {
+        for (int i = pathEnd - 1; i >= pathStart; i--) {
+            char c = sb.charAt(i);
+            if (c == '/') {
+                return false;
+            }
+            if (c == '.') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Дописывает в {@code sb} параметры запроса из {@code url[from, to)}, прошедшие фильтры.
+     * Параметры хранятся как пары смещений в буфере потока и при необходимости
+     * сортируются вставками: в URL их обычно единицы.
+     *
+     * @return false, если не осталось ни одного параметра
+     */
+    private boolean appendParams(String url, int from, int to, StringBuilder sb) {
+        int[] params = PARAMS.get();
+        int count = 0;
+        int start = from;
+        while (start < to) {
+            int amp = url.indexOf('&', start);
+            int stop = amp < 0 || amp > to ? to : amp;
+            if (stop > start && keepParam(url, start, nameEnd(url, start, stop))) {
+                if (count * 2 + 2 > params.length) {
+                    params = Arrays.copyOf(params, params.length * 2);
+                    PARAMS.set(params);
+                }
+                params[count * 2] = start;
+                params[count * 2 + 1] = stop;
+                count++;
+            }
+            start = stop + 1;
+        }
+        if (sortParams) {
+            for (int i = 1; i < count; i++) {
+                int s = params[i * 2];
+                int e = params[i * 2 + 1];
+                int j = i - 1;
+                while (j >= 0 && compare(url, params[j * 2], params[j * 2 + 1], s, e) > 0) {
+                    params[(j + 1) * 2] = params[j * 2];
+                    params[(j + 1) * 2 + 1] = params[j * 2 + 1];
+                    j--;
+                }
+                params[(j + 1) * 2] = s;
+                params[(j + 1) * 2 + 1] = e;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append('&');
+            }
+            sb.append(url, params[i * 2], params[i * 2 + 1]);
+        }
+        return count > 0;
+    }
+
+    private boolean keepParam(String url, int from, int to) {
+        if ((allowExact.length > 0 || allowPrefix.length > 0) && !matches(url, from, to, allowExact, allowPrefix)) {
+            return false;
+        }
+        return !matches(url, from, to, denyExact, denyPrefix);
+    }
+
+    private static boolean matches(String url, int from, int to, String[] exact, String[] prefixes) {
+        int length = to - from;
+        for (String name : exact) {
+            if (name.length() == length && url.regionMatches(true, from, name, 0, length)) {
+                return true;
+            }
+        }
+        for (String prefix : prefixes) {
+            if (prefix.length() <= length && url.regionMatches(true, from, prefix, 0, prefix.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int nameEnd(String url, int from, int to) {
+        int eq = url.indexOf('=', from);
+        return eq < 0 || eq > to ? to : eq;
+    }
+
+    private static int compare(String s, int aFrom, int aTo, int bFrom, int bTo) {
+        int n = Math.min(aTo - aFrom, bTo - bFrom);
+        for (int i = 0; i < n; i++) {
+            int d = s.charAt(aFrom + i) - s.charAt(bFrom + i);
+            if (d != 0) {
+                return d;
+            }
+        }
+        return (aTo - aFrom) - (bTo - bFrom);
+    }
+
+    private static boolean regionEqualsIgnoreCase(StringBuilder sb, int from, String lower) {
+        for (int i = 0; i < lower.length(); i++) {
+            if (Character.toLowerCase(sb.charAt(from + i)) != lower.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String[] exact(List<String> names) {
+        return names.stream().filter(n -> !n.endsWith("*")).toArray(String[]::new);
+    }
+
+    private static String[] prefixes(List<String> names) {
+        return names.stream().filter(n -> n.endsWith("*"))
+                .map(n -> n.substring(0, n.length() - 1)).toArray(String[]::new);
+    }
+}
@@ -1,43 +1,54 @@
 package searchengine.utils;
 
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import searchengine.crawler.CrawlFrontier;
+import searchengine.crawler.QueuedUrl;
+import searchengine.crawler.RobotsRules;
 import searchengine.model.SiteEntity;
 
-import java.util.Queue;
-import java.util.Set;
-import java.util.regex.Pattern;
+import java.util.List;
+import java.util.function.BooleanSupplier;
 
 public class UrlUtils {
     private static final Logger log = LoggerFactory.getLogger(UrlUtils.class);
 
     public static String normalizeUrl(String url) {
-        if (url == null || url.isEmpty()) {
-            return url;
-        }
-        
-        int anchorIndex = url.indexOf('#');
-        if (anchorIndex != -1) {
-            url = url.substring(0, anchorIndex);
-        }
-        
-        url = url.replaceFirst("^https://www\\.", "https://");
-        url = url.replaceFirst("^http://www\\.", "http://");
-        
-        if (url.endsWith("/") && url.length() > 1) {
-            url = url.substring(0, url.length() - 1);
-        }
-        
-        return url;
+        return UrlCanonicalizer.DEFAULT.canonicalize(url);
     }
 
     public static String extractPath(String url, SiteEntity site) {
-        String normalizedSiteUrl = normalizeUrl(site.getUrl());
-        String normalizedUrl = normalizeUrl(url);
-        String path = normalizedUrl.replaceFirst("^" + Pattern.quote(normalizedSiteUrl), "");
-        return path.isEmpty() ? "/" : path;
+        return extractPath(url, site, UrlCanonicalizer.DEFAULT);
+    }
+
+    public static String extractPath(String url, SiteEntity site, UrlCanonicalizer canonicalizer) {
+        String siteBase = siteBase(site.getUrl(), canonicalizer);
+        String canonicalUrl = canonicalizer.canonicalize(url);
+        String path = canonicalUrl.startsWith(siteBase) ? canonicalUrl.substring(siteBase.length()) : canonicalUrl;
+        return path.isEmpty() || path.charAt(0) == '?' ? "/" + path : path;
+    }
+
+    /**
+     * Канонический URL сайта без завершающего слэша: к нему дописываются пути страниц.
+     */
+    public static String siteBase(String siteUrl, UrlCanonicalizer canonicalizer) {
+        String base = canonicalizer.canonicalize(siteUrl);
+        return base.endsWith("/") ? base.substring(0, base.length() - 1) : base;
+    }
+
+    /**
+     * URL относится к сайту, если начинается с его адреса на границе сегмента:
+     * https://a.ru/x — да, https://a.ruby.com — нет.
+     */
+    public static boolean isSameSite(String url, String siteBase) {
+        if (!url.startsWith(siteBase)) {
+            return false;
+        }
+        if (url.length() == siteBase.length()) {
+            return true;
+        }
+        char next = url.charAt(siteBase.length());
+        return next == '/' || next == '?';
     }
 
     public static String extractSiteName(String baseUrl) {
@@ -59,42 +70,37 @@ public class UrlUtils {
         }
     }
 
-    public static void crawlLinks(Elements links, SiteEntity site, Set<String> visitedUrls, 
-                                  Queue<String> urlQueue, boolean running) {
+    /**
+     * @param links абсолютные URL ссылок страницы, см. {@link PageContent#getLinks()}
+     */
+    public static void crawlLinks(List<String> links, SiteEntity site, UrlCanonicalizer canonicalizer,
+                                  CrawlFrontier frontier, RobotsRules robots, int depth, BooleanSupplier running) {
         int linksFound = 0;
         int linksAdded = 0;
         
         String siteUrlOriginal = site.getUrl();
-        String siteUrlNormalized = normalizeUrl(siteUrlOriginal);
+        String siteUrlNormalized = siteBase(siteUrlOriginal, canonicalizer);
         
         log.info("Поиск ссылок на странице. Базовый URL сайта: {}", siteUrlOriginal);
         
-        for (Element link : links) {
-            if (!running) break;
-            
-            String href = link.attr("href");
-            if (href.isEmpty() || href.startsWith("javascript:") || 
-                href.startsWith("mailto:") || href.equals("#")) {
-                continue;
-            }
-            
-            String absUrl = link.absUrl("href");
-            if (absUrl.isEmpty() || absUrl.equals("#")) {
-                continue;
-            }
+        for (String absUrl : links) {
+            if (!running.getAsBoolean()) break;
             
             linksFound++;
             
-            String normalizedUrl = normalizeUrl(absUrl);
+            String normalizedUrl = canonicalizer.canonicalize(absUrl);
             
-            if (!normalizedUrl.startsWith(siteUrlNormalized)) {
+            if (!isSameSite(normalizedUrl, siteUrlNormalized)) {
                 log.debug("Пропущена внешняя ссылка: {} (базовый URL: {})", normalizedUrl, siteUrlNormalized);
                 continue;
             }
+
+            if (!robots.isAllowed(normalizedUrl)) {
+                log.debug("Пропущена ссылка, запрещённая robots.txt: {}", normalizedUrl);
+                continue;
+            }
             
-            if (!visitedUrls.contains(normalizedUrl)) {
-                visitedUrls.add(normalizedUrl);
-                urlQueue.offer(normalizedUrl);
+            if (frontier.offer(new QueuedUrl(normalizedUrl, depth))) {
                 linksAdded++;
                 log.info("✓ Добавлен в очередь: {} (всего найдено: {}, добавлено: {})", 
                         normalizedUrl, linksFound, linksAdded);
@@ -103,7 +109,7 @@ public class UrlUtils {
             }
         }
         log.info("Итого на странице: найдено ссылок {}, добавлено новых {}, размер очереди: {}", 
-                 linksFound, linksAdded, urlQueue.size());
+                 linksFound, linksAdded, frontier.size());
     }
 }
 
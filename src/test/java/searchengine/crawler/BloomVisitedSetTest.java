@@ -0,0 +1,48 @@
+package searchengine.crawler;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomVisitedSetTest {
+
+    @Test
+    void neverForgetsAddedUrlsAcrossLayers() {
+        BloomVisitedSet set = new BloomVisitedSet(1_000, 0.001);
+        for (int i = 0; i < 20_000; i++) {
+            set.add("https://site.ru/page/" + i);
+        }
+        for (int i = 0; i < 20_000; i++) {
+            assertThat(set.contains("https://site.ru/page/" + i)).isTrue();
+            assertThat(set.add("https://site.ru/page/" + i)).isFalse();
+        }
+    }
+
+    @Test
+    void keepsFalsePositiveRateNearConfiguredBound() {
+        BloomVisitedSet set = new BloomVisitedSet(5_000, 0.01);
+        int added = 0;
+        for (int i = 0; i < 40_000; i++) {
+            if (set.add("https://site.ru/a/" + i)) {
+                added++;
+            }
+        }
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (int i = 0; i < probes; i++) {
+            if (set.contains("https://other.ru/b/" + i)) {
+                falsePositives++;
+            }
+        }
+        // add() вернул false только для ложных срабатываний при вставке
+        assertThat(added).isGreaterThan(39_500);
+        assertThat(set.size()).isEqualTo(added);
+        assertThat((double) falsePositives / probes).isLessThan(0.02);
+    }
+
+    @Test
+    void hash64SpreadsSimilarUrls() {
+        assertThat(VisitedSet.hash64("https://site.ru/a")).isNotEqualTo(VisitedSet.hash64("https://site.ru/b"));
+        assertThat(VisitedSet.hash64("")).isEqualTo(VisitedSet.hash64(""));
+    }
+}
@@ -0,0 +1,64 @@
+package searchengine.crawler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CrawlCheckpointTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void restoresVisitedUrlsAndRequeuesOnlyUnfinishedOnes() throws IOException {
+        Path file = CrawlCheckpoint.fileFor(dir, 1);
+        Files.writeString(file, String.join("\n",
+                "Q https://site.ru/",
+                "Q https://site.ru/a",
+                "D https://site.ru/",
+                "Q https://site.ru/b",
+                "Q https://site.ru/c",
+                "D https://site.ru/b",
+                "Q https://site.ru/a",
+                "Q https://site.ru/d",
+                "D https://si"), StandardCharsets.UTF_8);
+
+        CrawlFrontier frontier = new CrawlFrontier(new ExactVisitedSet(), new FifoFrontierQueue());
+        try (CrawlCheckpoint checkpoint = CrawlCheckpoint.open(file, 1_000, true, frontier)) {
+            assertThat(frontier.visitedCount()).isEqualTo(5);
+            assertThat(frontier.isVisited("https://site.ru/b")).isTrue();
+            assertThat(drain(frontier)).containsExactly("https://site.ru/a", "https://site.ru/c", "https://site.ru/d");
+        }
+    }
+
+    @Test
+    void startsOverWithoutResume() throws IOException {
+        Path file = CrawlCheckpoint.fileFor(dir, 2);
+        Files.writeString(file, "Q https://site.ru/a\n", StandardCharsets.UTF_8);
+
+        CrawlFrontier frontier = new CrawlFrontier(new ExactVisitedSet(), new FifoFrontierQueue());
+        try (CrawlCheckpoint checkpoint = CrawlCheckpoint.open(file, 0, false, frontier)) {
+            frontier.attach(checkpoint);
+            frontier.offer("https://site.ru/b");
+        }
+        assertThat(frontier.visitedCount()).isEqualTo(1);
+        assertThat(Files.readAllLines(file)).containsExactly("Q https://site.ru/b");
+    }
+
+    private static List<String> drain(CrawlFrontier frontier) {
+        List<String> urls = new ArrayList<>();
+        QueuedUrl url;
+        while ((url = frontier.poll()) != null) {
+            urls.add(url.getUrl());
+        }
+        return urls;
+    }
+}
@@ -0,0 +1,137 @@
+package searchengine.crawler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import searchengine.config.CrawlerSettings;
+
+import java.io.InterruptedIOException;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class HostSchedulerTest {
+
+    private static final String URL = "https://site.ru/page";
+
+    private final CrawlerSettings settings = new CrawlerSettings();
+    private final HostScheduler scheduler = new HostScheduler(settings);
+
+    @Test
+    void burstPassesImmediatelyThenBucketLimitsRate() throws InterruptedIOException {
+        politeness().setRequestsPerSecond(10);
+        politeness().setBurst(2);
+        politeness().setMaxInFlightPerHost(10);
+
+        long start = System.nanoTime();
+        scheduler.acquire(URL);
+        scheduler.acquire(URL);
+        long burstMs = (System.nanoTime() - start) / 1_000_000;
+        for (int i = 0; i < 3; i++) {
+            scheduler.acquire(URL);
+        }
+        long totalMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(burstMs).isLessThan(80);
+        // три запроса сверх burst при 10 запр/с — не меньше 300 мс
+        assertThat(totalMs).isGreaterThanOrEqualTo(280);
+    }
+
+    @Test
+    void fastResponsesIncreaseRateAdditivelyUpToMax() throws InterruptedIOException {
+        politeness().setRequestsPerSecond(2);
+        politeness().setMaxRequestsPerSecond(2.5);
+        politeness().setBurst(10);
+
+        scheduler.acquire(URL).release(200, null);
+        assertThat(scheduler.rate(URL)).isCloseTo(2.25, within(1e-9));
+        for (int i = 0; i < 3; i++) {
+            scheduler.acquire(URL).release(200, null);
+        }
+        assertThat(scheduler.rate(URL)).isCloseTo(2.5, within(1e-9));
+    }
+
+    @Test
+    void slowResponsesAndErrorsDecreaseRateMultiplicativelyDownToMin() throws InterruptedIOException {
+        politeness().setRequestsPerSecond(1);
+        politeness().setMinRequestsPerSecond(0.5);
+        politeness().setTargetLatencyMs(-1);
+        politeness().setBurst(10);
+
+        scheduler.acquire(URL).release(200, null);
+        assertThat(scheduler.rate(URL)).isCloseTo(0.8, within(1e-9));
+        scheduler.acquire(URL).release(-1, null);
+        assertThat(scheduler.rate(URL)).isCloseTo(0.64, within(1e-9));
+        for (int i = 0; i < 5; i++) {
+            scheduler.acquire(URL).release(200, null);
+        }
+        assertThat(scheduler.rate(URL)).isCloseTo(0.5, within(1e-9));
+    }
+
+    @Test
+    void throttledResponseHalvesRateAndPausesHostForRetryAfter() throws InterruptedIOException {
+        politeness().setRequestsPerSecond(4);
+        politeness().setBurst(10);
+
+        scheduler.acquire(URL).release(429, 1L);
+        assertThat(scheduler.rate(URL)).isCloseTo(2.0, within(1e-9));
+
+        long start = System.nanoTime();
+        scheduler.acquire(URL).release(200, null);
+        assertThat((System.nanoTime() - start) / 1_000_000).isGreaterThanOrEqualTo(900);
+        // другой хост паузой не задет
+        start = System.nanoTime();
+        scheduler.acquire("https://other.ru/");
+        assertThat((System.nanoTime() - start) / 1_000_000).isLessThan(80);
+    }
+
+    @Test
+    void retryAfterIsCappedBySettings() throws InterruptedIOException {
+        politeness().setMaxRetryAfterSeconds(1);
+        politeness().setBurst(10);
+
+        scheduler.acquire(URL).release(503, 3600L);
+        long start = System.nanoTime();
+        scheduler.acquire(URL);
+        assertThat((System.nanoTime() - start) / 1_000_000).isBetween(900L, 2_000L);
+    }
+
+    @Test
+    void crawlDelayLimitsRateBelowMinimum() throws InterruptedIOException {
+        politeness().setMinRequestsPerSecond(0.5);
+        scheduler.limitRate(URL, 0.2);
+        assertThat(scheduler.rate(URL)).isCloseTo(0.2, within(1e-9));
+
+        politeness().setTargetLatencyMs(-1);
+        scheduler.acquire(URL).release(200, null);
+        assertThat(scheduler.rate(URL)).isCloseTo(0.2, within(1e-9));
+    }
+
+    @ParameterizedTest(name = "\"{0}\" -> {1}")
+    @CsvSource(delimiter = '|', nullValues = "null", value = {
+            "120    | 120",
+            "-5     | 0",
+            "' 7 '  | 7",
+            "soon   | null",
+            "''     | null",
+    })
+    void parsesRetryAfterSeconds(String header, Long expected) {
+        assertThat(HostScheduler.parseRetryAfter(header)).isEqualTo(expected);
+    }
+
+    @Test
+    void parsesRetryAfterHttpDate() {
+        String inOneMinute = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(60));
+        String past = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).minusSeconds(60));
+
+        assertThat(HostScheduler.parseRetryAfter(inOneMinute)).isBetween(58L, 60L);
+        assertThat(HostScheduler.parseRetryAfter(past)).isZero();
+    }
+
+    private CrawlerSettings.Politeness politeness() {
+        return settings.getPoliteness();
+    }
+}
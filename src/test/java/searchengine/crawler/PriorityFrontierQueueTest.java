@@ -0,0 +1,72 @@
+package searchengine.crawler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import searchengine.config.CrawlerSettings;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PriorityFrontierQueueTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void keepsFifoOrderWithinBucketAcrossSpill() {
+        PriorityFrontierQueue queue = queue(2);
+        for (int i = 0; i < 5; i++) {
+            queue.push(new QueuedUrl("https://site.ru/" + i, 3));
+        }
+        // память освободилась, но у корзины ещё есть файл: запись не должна обогнать его
+        assertThat(queue.poll().getUrl()).isEqualTo("https://site.ru/0");
+        queue.push(new QueuedUrl("https://site.ru/5", 3));
+
+        List<String> order = new ArrayList<>();
+        QueuedUrl url;
+        while ((url = queue.poll()) != null) {
+            order.add(url.getUrl());
+        }
+        assertThat(order).containsExactly("https://site.ru/1", "https://site.ru/2", "https://site.ru/3",
+                "https://site.ru/4", "https://site.ru/5");
+        assertThat(queue.spilledCount()).isZero();
+        queue.close();
+    }
+
+    @Test
+    void restoresAllPriorityFeaturesFromSpillFile() {
+        PriorityFrontierQueue queue = queue(1);
+        Instant lastmod = Instant.parse("2024-05-01T10:15:30.123Z");
+        queue.push(new QueuedUrl("https://site.ru/first", 1));
+        queue.push(new QueuedUrl("https://site.ru/a?x=1&y=2", 1, 0.8, lastmod, true, 7));
+        queue.push(new QueuedUrl("https://site.ru/b", 1, null, null, false, 0));
+        assertThat(queue.spilledCount()).isEqualTo(2);
+
+        queue.poll();
+        QueuedUrl a = queue.poll();
+        QueuedUrl b = queue.poll();
+        assertThat(a.getUrl()).isEqualTo("https://site.ru/a?x=1&y=2");
+        assertThat(a.getDepth()).isEqualTo(1);
+        assertThat(a.getSitemapPriority()).isEqualTo(0.8);
+        assertThat(a.getLastModified()).isEqualTo(lastmod);
+        assertThat(a.isChanged()).isTrue();
+        assertThat(a.getInlinks()).isEqualTo(7);
+        assertThat(b.getSitemapPriority()).isNull();
+        assertThat(b.getLastModified()).isNull();
+        assertThat(b.isChanged()).isFalse();
+        queue.close();
+    }
+
+    private PriorityFrontierQueue queue(int maxInMemory) {
+        CrawlerSettings.Frontier settings = new CrawlerSettings.Frontier();
+        settings.setDepthWeight(1);
+        settings.setSitemapWeight(0);
+        settings.setLastmodWeight(0);
+        settings.setInlinkWeight(0);
+        return new PriorityFrontierQueue(new CrawlPriority(settings), maxInMemory, 2, dir, "test");
+    }
+}
@@ -0,0 +1,79 @@
+package searchengine.crawler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RobotsRulesTest {
+
+    private static final String ROBOTS = String.join("\n",
+            "User-agent: *",
+            "Disallow: /private/",
+            "Allow: /private/open",
+            "Disallow: /*.pdf$",
+            "Disallow: /search?",
+            "Crawl-delay: 3",
+            "",
+            "User-agent: OtherBot",
+            "Disallow: /",
+            "",
+            "Sitemap: https://site.ru/sitemap.xml   # основная карта");
+
+    private final RobotsRules rules = RobotsRules.parse(ROBOTS);
+
+    @ParameterizedTest(name = "{0} -> {1}")
+    @CsvSource({
+            "https://site.ru/, true",
+            "https://site.ru/private/, false",
+            "https://site.ru/private/a, false",
+            "https://site.ru/private/open, true",
+            "https://site.ru/private/opener, true",
+            "https://site.ru/doc.pdf, false",
+            "https://site.ru/doc.pdf?x=1, true",
+            "https://site.ru/search?q=1, false",
+            "https://site.ru/search, true",
+            "https://site.ru/privateer, true",
+    })
+    void appliesLongestMatchingRule(String url, boolean allowed) {
+        assertThat(rules.isAllowed(url)).isEqualTo(allowed);
+    }
+
+    @Test
+    void readsCrawlDelayAndSitemapsOfWildcardGroup() {
+        assertThat(rules.getCrawlDelaySeconds()).isEqualTo(3.0);
+        assertThat(rules.getSitemaps()).containsExactly("https://site.ru/sitemap.xml");
+    }
+
+    @Test
+    void prefersOwnGroupOverWildcard() {
+        RobotsRules own = RobotsRules.parse(String.join("\n",
+                "User-agent: *",
+                "Disallow: /",
+                "",
+                "User-agent: " + RobotsRules.AGENT + "/1.0",
+                "Disallow: /tmp",
+                "Crawl-delay: 12.5"));
+        assertThat(own.isAllowed("https://site.ru/page")).isTrue();
+        assertThat(own.isAllowed("https://site.ru/tmp/x")).isFalse();
+        assertThat(own.getCrawlDelaySeconds()).isEqualTo(12.5);
+    }
+
+    @Test
+    void allowWinsOnEqualLengthAndSharedGroupsApplyToAllAgents() {
+        RobotsRules shared = RobotsRules.parse(String.join("\n",
+                "User-agent: a",
+                "User-agent: *",
+                "Disallow: /x",
+                "Allow: /x"));
+        assertThat(shared.isAllowed("https://site.ru/x")).isTrue();
+    }
+
+    @Test
+    void emptyOrMissingRulesAllowEverything() {
+        assertThat(RobotsRules.parse("").isAllowed("https://site.ru/a")).isTrue();
+        assertThat(RobotsRules.parse("User-agent: *\nDisallow:").isAllowed("https://site.ru/a")).isTrue();
+        assertThat(RobotsRules.ALLOW_ALL.getCrawlDelaySeconds()).isNull();
+    }
+}
@@ -0,0 +1,77 @@
+package searchengine.crawler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import searchengine.utils.SimHash;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SimHashIndexTest {
+
+    @Test
+    void findsNearDuplicateWithinDistanceOnly() {
+        SimHashIndex index = new SimHashIndex(3);
+        long original = 0x0123456789abcdefL;
+
+        assertThat(index.findOrAdd("/a", original)).isNull();
+        assertThat(index.findOrAdd("/b", original ^ 0b111)).isEqualTo("/a");
+        assertThat(index.findOrAdd("/c", original ^ 0b1111)).isNull();
+        // дубликат в индекс не попадает, остальные — да
+        assertThat(index.size()).isEqualTo(2);
+    }
+
+    @Test
+    void pageDoesNotMatchItsOwnPreviousFingerprint() {
+        SimHashIndex index = new SimHashIndex(3);
+        index.add("/a", 42L);
+
+        assertThat(index.findOrAdd("/a", 43L)).isNull();
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.findOrAdd("/b", 42L)).isEqualTo("/a");
+        assertThat(index.findOrAdd("/b", ~42L)).isNull();
+    }
+
+    /** Поиск по блокам находит то же, что полный перебор, в том числе при различиях, разбросанных по блокам. */
+    @ParameterizedTest(name = "maxDistance={0}")
+    @ValueSource(ints = {0, 1, 3, 5, 7})
+    void matchesBruteForce(int maxDistance) {
+        Random random = new Random(maxDistance);
+        SimHashIndex index = new SimHashIndex(maxDistance);
+        Map<String, Long> stored = new LinkedHashMap<>();
+        for (int i = 0; i < 2_000; i++) {
+            long fingerprint;
+            if (!stored.isEmpty() && random.nextBoolean()) {
+                long base = stored.values().stream().skip(random.nextInt(stored.size())).findFirst().get();
+                fingerprint = flipBits(base, random.nextInt(maxDistance + 3), random);
+            } else {
+                fingerprint = random.nextLong();
+            }
+            String path = "/p" + i;
+            boolean expectDuplicate = stored.values().stream()
+                    .anyMatch(other -> SimHash.distance(other, fingerprint) <= maxDistance);
+
+            String found = index.findOrAdd(path, fingerprint);
+
+            assertThat(found != null).as("страница %d", i).isEqualTo(expectDuplicate);
+            if (found != null) {
+                assertThat(SimHash.distance(stored.get(found), fingerprint)).isLessThanOrEqualTo(maxDistance);
+            } else {
+                stored.put(path, fingerprint);
+            }
+        }
+        assertThat(index.size()).isEqualTo(stored.size());
+    }
+
+    private static long flipBits(long value, int bits, Random random) {
+        long result = value;
+        while (SimHash.distance(result, value) < bits) {
+            result ^= 1L << random.nextInt(64);
+        }
+        return result;
+    }
+}
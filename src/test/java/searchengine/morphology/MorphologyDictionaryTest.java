@@ -0,0 +1,96 @@
+package searchengine.morphology;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MorphologyDictionaryTest {
+
+    private static final MorphologyDictionary RUSSIAN = MorphologyDictionary.load("ru");
+    private static final MorphologyDictionary ENGLISH = MorphologyDictionary.load("en");
+
+    @ParameterizedTest(name = "{0} -> {1}")
+    @CsvSource(delimiter = '|', value = {
+            // все падежи и числа сводятся к одной лемме
+            "книга             | книга",
+            "книги             | книга",
+            "книгу             | книга",
+            "книгой            | книга",
+            "книгах            | книга",
+            "москва            | москва",
+            "москвы            | москва",
+            "москве            | москва",
+            "дорогу            | дорога",
+            "документации      | документация",
+            "маршрутизаторов   | маршрутизатор",
+            "процессора        | процессор",
+            "разработчика      | разработчик",
+            "программисты      | программист",
+            "библиотеками      | библиотека",
+            "автомобилей       | автомобиль",
+            "лошадей           | лошадь",
+            // прилагательные и глаголы
+            "красными          | красный",
+            "синего            | синий",
+            "новую             | новый",
+            "прочитали         | прочитать",
+            "бежали            | бежать",
+            "скажи             | сказать",
+            // супплетивные формы
+            "людьми            | человек",
+            "люди              | человек",
+            "шла               | идти",
+    })
+    void resolvesRussianInflectedForms(String word, String lemma) {
+        assertThat(RUSSIAN.lemma(word)).isEqualTo(lemma);
+    }
+
+    @ParameterizedTest(name = "{0} -> {1}")
+    @CsvSource(delimiter = '|', value = {
+            // словарь находит формы с ё, записанные через е; в лемме ё заменяется на е
+            "елки     | елка",
+            "шел      | идти",
+            "березами | береза",
+    })
+    void findsFormsWrittenWithoutYo(String word, String lemma) {
+        assertThat(RUSSIAN.lemma(word)).isEqualTo(lemma);
+    }
+
+    @ParameterizedTest(name = "{0} -> {1}")
+    @CsvSource(delimiter = '|', value = {
+            // омонимы: начальная форма, затем существительное
+            "лучше | лучше",
+            "стали | сталь",
+            "мыла  | мыло",
+    })
+    void prefersInitialFormThenNounForHomonyms(String word, String lemma) {
+        assertThat(RUSSIAN.lemma(word)).isEqualTo(lemma);
+    }
+
+    @ParameterizedTest(name = "{0} -> {1}")
+    @CsvSource(delimiter = '|', value = {
+            "books    | book",
+            "routers  | router",
+            "browsers | browser",
+            "updated  | update",
+            "ran      | run",
+            "went     | go",
+            "mice     | mouse",
+            "children | child",
+            "was      | be",
+            "analyses | analysis",
+            "running  | running",
+    })
+    void resolvesEnglishInflectedForms(String word, String lemma) {
+        assertThat(ENGLISH.lemma(word)).isEqualTo(lemma);
+    }
+
+    @Test
+    void keepsUnknownWordsUnchanged() {
+        assertThat(RUSSIAN.lemma("яндексом")).isIn("яндекс", "яндексом");
+        assertThat(RUSSIAN.lemma("щфзщшк")).isEqualTo("щфзщшк");
+        assertThat(ENGLISH.lemma("qwzxkk")).isEqualTo("qwzxkk");
+    }
+}
@@ -0,0 +1,113 @@
+package searchengine.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DeadlockLoserDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import searchengine.config.IndexerSettings;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IndexBatchRepositoryTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final IndexerSettings settings = new IndexerSettings();
+    private final IndexBatchRepository repository = new IndexBatchRepository(jdbcTemplate, settings);
+    private final List<String> statements = new ArrayList<>();
+    private final List<List<Object>> arguments = new ArrayList<>();
+
+    @Test
+    void upsertsLemmasInChunksOfBatchSize() {
+        settings.setBatchSize(2);
+        recordUpdates(0);
+
+        repository.upsertLemmas(7, List.of("а", "б", "в"), List.of(3, 1, 2), List.of(1, 1, 1), List.of(3, 1, 2));
+
+        assertThat(statements).hasSize(2);
+        assertThat(statements.get(0))
+                .startsWith("INSERT INTO lemma (site_id, lemma, frequency, doc_frequency, max_rank) VALUES"
+                        + " (?, ?, ?, ?, ?), (?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE")
+                .contains("frequency = frequency + VALUES(frequency)")
+                .contains("doc_frequency = doc_frequency + VALUES(doc_frequency)")
+                .contains("max_rank = GREATEST(max_rank, VALUES(max_rank))");
+        assertThat(arguments.get(0)).containsExactly(7, "а", 3, 1, 3, 7, "б", 1, 1, 1);
+        assertThat(arguments.get(1)).containsExactly(7, "в", 2, 1, 2);
+    }
+
+    @Test
+    void retriesUpsertLostToDeadlock() {
+        recordUpdates(2);
+
+        repository.upsertLemmas(1, List.of("а"), List.of(1), List.of(1), List.of(1));
+
+        assertThat(statements).hasSize(3).containsOnly(statements.get(0));
+    }
+
+    @Test
+    void givesUpAfterThreeDeadlocks() {
+        recordUpdates(3);
+
+        assertThatThrownBy(() -> repository.upsertLemmas(1, List.of("а"), List.of(1), List.of(1), List.of(1)))
+                .isInstanceOf(DeadlockLoserDataAccessException.class);
+        assertThat(statements).hasSize(3);
+    }
+
+    @Test
+    void insertsIndexRowsInChunksWithPositions() {
+        settings.setBatchSize(2);
+        recordUpdates(0);
+        byte[] positions = {1, 2};
+
+        repository.insertIndices(List.of(5, 5, 5), List.of(10, 11, 12), List.of(2, 1, 4),
+                Arrays.asList(positions, null, null));
+
+        assertThat(statements).containsExactly(
+                "INSERT INTO search_index (page_id, lemma_id, rank_value, positions) VALUES (?, ?, ?, ?), (?, ?, ?, ?)",
+                "INSERT INTO search_index (page_id, lemma_id, rank_value, positions) VALUES (?, ?, ?, ?)");
+        assertThat(arguments.get(0)).containsExactly(5, 10, 2f, positions, 5, 11, 1f, null);
+        assertThat(arguments.get(1)).containsExactly(5, 12, 4f, null);
+    }
+
+    @Test
+    void looksUpLemmasMissedByBatchQueryOneByOne() {
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.getInt(1)).thenReturn(1);
+            when(rs.getString(2)).thenReturn("елка");
+            handler.processRow(rs);
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), (Object[]) any());
+        when(jdbcTemplate.queryForList(anyString(), eq(Integer.class), eq(3), eq("ёлка"))).thenReturn(List.of(1));
+        when(jdbcTemplate.queryForList(anyString(), eq(Integer.class), eq(3), eq("нет"))).thenReturn(List.of());
+
+        assertThat(repository.findLemmaIds(3, List.of("елка", "ёлка", "нет")))
+                .containsOnly(Map.entry("елка", 1), Map.entry("ёлка", 1));
+    }
+
+    /** Записывает выполненные UPDATE; первые {@code deadlocks} вызовов проигрывают взаимоблокировку. */
+    private void recordUpdates(int deadlocks) {
+        doAnswer(invocation -> {
+            statements.add(invocation.getArgument(0));
+            Object[] all = invocation.getArguments();
+            arguments.add(Arrays.asList(Arrays.copyOfRange(all, 1, all.length)));
+            if (statements.size() <= deadlocks) {
+                throw new DeadlockLoserDataAccessException("Deadlock found", null);
+            }
+            return 1;
+        }).when(jdbcTemplate).update(anyString(), (Object[]) any());
+    }
+}
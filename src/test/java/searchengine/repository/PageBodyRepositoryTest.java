@@ -0,0 +1,43 @@
+package searchengine.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import searchengine.config.IndexerSettings;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PageBodyRepositoryTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final PageBodyRepository repository = new PageBodyRepository(jdbcTemplate, new IndexerSettings());
+
+    @Test
+    void backgroundMigrationNeverDropsTheColumn() {
+        repository.migrateLegacyContent();
+
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    void refusesToDropColumnWhileTextsRemain() {
+        when(jdbcTemplate.queryForObject(eq("SELECT COUNT(content) FROM page"), eq(Long.class))).thenReturn(3L);
+
+        assertThatThrownBy(repository::dropLegacyContentColumn).isInstanceOf(IllegalStateException.class);
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    void dropsEmptyColumn() {
+        when(jdbcTemplate.queryForObject(eq("SELECT COUNT(content) FROM page"), eq(Long.class))).thenReturn(0L);
+
+        repository.dropLegacyContentColumn();
+
+        verify(jdbcTemplate).execute("ALTER TABLE page DROP COLUMN content");
+    }
+}
@@ -0,0 +1,78 @@
+package searchengine.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class Bm25Test {
+
+    private final Bm25 bm25 = new Bm25(1.2, 0.75, 100);
+
+    @ParameterizedTest(name = "N={0}, df={1} -> {2}")
+    @CsvSource(delimiter = '|', value = {
+            "10   | 1    | 1.992430164690206",
+            "10   | 10   | 0.04652001563489291",
+            "1000 | 0    | 7.601901959875166",
+    })
+    void computesLuceneIdf(long totalPages, long df, double idf) {
+        assertThat(Bm25.idf(totalPages, df)).isCloseTo(idf, within(1e-12));
+    }
+
+    @Test
+    void idfIsPositiveAndDecreasingInDocumentFrequency() {
+        double previous = Double.POSITIVE_INFINITY;
+        for (long df = 0; df <= 1000; df++) {
+            double idf = Bm25.idf(1000, df);
+            assertThat(idf).isPositive().isLessThan(previous);
+            previous = idf;
+        }
+    }
+
+    @Test
+    void normalisesByPageLength() {
+        assertThat(bm25.norm(100)).isCloseTo(1.2f, within(1e-6f));
+        assertThat(bm25.norm(0)).isEqualTo(1.2f);
+        assertThat(bm25.norm(200)).isCloseTo(1.2f * 1.75f, within(1e-6f));
+        assertThat(bm25.score(3, 2, bm25.norm(50))).isGreaterThan(bm25.score(3, 2, bm25.norm(500)));
+
+        Bm25 noLengthNorm = new Bm25(1.2, 0, 100);
+        assertThat(noLengthNorm.norm(5)).isEqualTo(noLengthNorm.norm(5000));
+    }
+
+    @Test
+    void termFrequencySaturatesAtIdfTimesK1PlusOne() {
+        float norm = bm25.norm(100);
+        float previous = 0f;
+        for (int tf = 1; tf <= 1000; tf++) {
+            float score = bm25.score(tf, 2f, norm);
+            assertThat(score).isGreaterThan(previous).isLessThan(2f * 2.2f);
+            previous = score;
+        }
+        // tf = k1 на странице средней длины даёт ровно половину предела
+        assertThat(bm25.score(1.2f, 2f, norm)).isCloseTo(2.2f, within(1e-5f));
+    }
+
+    @Test
+    void upperBoundCoversEveryPageLength() {
+        Random random = new Random(24);
+        for (int i = 0; i < 10_000; i++) {
+            float maxTf = 1 + random.nextInt(50);
+            float tf = 1 + random.nextInt((int) maxTf);
+            float idf = random.nextFloat() * 10;
+            int length = random.nextInt(5_000);
+
+            assertThat(bm25.score(tf, idf, bm25.norm(length))).isLessThanOrEqualTo(bm25.upperBound(maxTf, idf));
+        }
+    }
+
+    @Test
+    void averageLengthBelowOneIsClamped() {
+        Bm25 empty = new Bm25(1.2, 0.75, 0);
+        assertThat(empty.norm(1)).isCloseTo(1.2f, within(1e-6f));
+    }
+}
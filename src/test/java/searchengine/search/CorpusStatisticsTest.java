@@ -0,0 +1,169 @@
+package searchengine.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import searchengine.config.SearchSettings;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CorpusStatisticsTest {
+
+    private static final String SITE_A = "https://a.ru";
+    private static final String SITE_B = "https://b.ru";
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final SearchSettings settings = new SearchSettings();
+    private final CorpusStatistics statistics = new CorpusStatistics(jdbcTemplate, settings);
+    // lemma.doc_frequency по сайтам: url -> лемма -> df
+    private final Map<String, Map<String, Long>> lemmaTable = new HashMap<>();
+    private Runnable duringDfQuery = () -> {
+    };
+
+    @BeforeEach
+    void loadCounters() throws SQLException {
+        when(jdbcTemplate.queryForObject(eq("SELECT COALESCE(SUM(page_count), 0) FROM site"), eq(Long.class)))
+                .thenReturn(3L);
+        when(jdbcTemplate.queryForObject(eq("SELECT COUNT(DISTINCT page_id) FROM search_index"), eq(Long.class)))
+                .thenReturn(3L);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class))).thenReturn(0);
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            handler.processRow(row(SITE_A, 2L, 100L));
+            handler.processRow(row(SITE_B, 1L, 20L));
+            return null;
+        }).when(jdbcTemplate).query(eq("SELECT url, page_count, term_count FROM site"), any(RowCallbackHandler.class));
+        doAnswer(invocation -> {
+            duringDfQuery.run();
+            String sql = invocation.getArgument(0);
+            RowCallbackHandler handler = invocation.getArgument(1);
+            Object[] args = Arrays.copyOfRange(invocation.getArguments(), 2, invocation.getArguments().length);
+            boolean bySite = sql.contains("s.url = ?");
+            int lemmas = bySite ? args.length - 1 : args.length;
+            for (int i = 0; i < lemmas; i++) {
+                for (Map.Entry<String, Map<String, Long>> site : lemmaTable.entrySet()) {
+                    Long df = site.getValue().get((String) args[i]);
+                    if (df != null && (!bySite || site.getKey().equals(args[args.length - 1]))) {
+                        handler.processRow(row(args[i], df));
+                    }
+                }
+            }
+            return null;
+        }).when(jdbcTemplate).query(startsWith("SELECT l.lemma, SUM(l.doc_frequency)"), any(RowCallbackHandler.class),
+                (Object[]) any());
+        lemmaTable.put(SITE_A, new HashMap<>(Map.of("кот", 2L, "пес", 1L)));
+        lemmaTable.put(SITE_B, new HashMap<>(Map.of("кот", 1L)));
+
+        statistics.load();
+    }
+
+    @Test
+    void loadsPageCountsAndLengths() {
+        assertThat(statistics.isReady()).isTrue();
+        assertThat(statistics.totalPages(null)).isEqualTo(3);
+        assertThat(statistics.totalPages(SITE_A)).isEqualTo(2);
+        assertThat(statistics.totalPages("https://none.ru")).isZero();
+        assertThat(statistics.averageLength(null)).isCloseTo(40.0, within(1e-9));
+        assertThat(statistics.averageLength(SITE_B)).isCloseTo(20.0, within(1e-9));
+    }
+
+    @Test
+    void updatesPageCountsIncrementally() {
+        statistics.update(() -> statistics.onPageIndexed(SITE_B, List.of("кот"), 40));
+        assertThat(statistics.totalPages(null)).isEqualTo(4);
+        assertThat(statistics.averageLength(SITE_B)).isCloseTo(30.0, within(1e-9));
+
+        statistics.update(() -> statistics.onPageRemoved(SITE_B, List.of("кот"), 40));
+        statistics.update(() -> statistics.onPageRemoved(SITE_B, List.of("кот"), 20));
+        statistics.update(() -> statistics.onPageRemoved(SITE_B, List.of("кот"), 20));
+        assertThat(statistics.totalPages(SITE_B)).isZero();
+        assertThat(statistics.averageLength(SITE_B)).isZero();
+        assertThat(statistics.totalPages(null)).isEqualTo(1);
+    }
+
+    @Test
+    void readsDocumentFrequencyOnceAndSumsItOverSites() {
+        assertThat(statistics.documentFrequencies(List.of("кот", "пес", "нет"), null))
+                .containsOnly(Map.entry("кот", 3L), Map.entry("пес", 1L));
+        assertThat(statistics.documentFrequencies(List.of("кот", "пес", "нет"), null))
+                .containsOnly(Map.entry("кот", 3L), Map.entry("пес", 1L));
+        assertThat(statistics.documentFrequencies(List.of("кот"), SITE_B)).containsOnly(Map.entry("кот", 1L));
+
+        verify(jdbcTemplate, times(2)).query(startsWith("SELECT l.lemma, SUM(l.doc_frequency)"),
+                any(RowCallbackHandler.class), (Object[]) any());
+    }
+
+    @Test
+    void shiftsCachedDocumentFrequencyWhenPagesChange() {
+        statistics.documentFrequencies(List.of("кот", "пес"), null);
+        statistics.documentFrequencies(List.of("кот"), SITE_A);
+
+        statistics.update(() -> statistics.onPageIndexed(SITE_A, List.of("кот", "пес"), 10));
+        statistics.update(() -> statistics.onPageRemoved(SITE_A, List.of("пес"), 5));
+        statistics.update(() -> statistics.onPageIndexed(SITE_B, List.of("кот"), 10));
+
+        assertThat(statistics.documentFrequencies(List.of("кот", "пес"), null))
+                .containsOnly(Map.entry("кот", 5L), Map.entry("пес", 1L));
+        assertThat(statistics.documentFrequencies(List.of("кот"), SITE_A)).containsOnly(Map.entry("кот", 3L));
+        verify(jdbcTemplate, times(2)).query(startsWith("SELECT l.lemma, SUM(l.doc_frequency)"),
+                any(RowCallbackHandler.class), (Object[]) any());
+    }
+
+    @Test
+    void doesNotCacheValueReadWhileIndexChanged() {
+        duringDfQuery = () -> {
+            duringDfQuery = () -> {
+            };
+            statistics.update(() -> {
+                lemmaTable.get(SITE_A).merge("кот", 1L, Long::sum);
+                statistics.onPageIndexed(SITE_A, List.of("кот"), 10);
+            });
+        };
+        statistics.documentFrequencies(List.of("кот"), null);
+
+        assertThat(statistics.documentFrequencies(List.of("кот"), null)).containsOnly(Map.entry("кот", 4L));
+        verify(jdbcTemplate, times(2)).query(startsWith("SELECT l.lemma, SUM(l.doc_frequency)"),
+                any(RowCallbackHandler.class), (Object[]) any());
+    }
+
+    @Test
+    void keepsCacheWithinLimit() {
+        settings.getRanking().setDfCacheSize(1);
+
+        statistics.documentFrequencies(List.of("кот", "пес"), null);
+        statistics.documentFrequencies(List.of("кот", "пес"), null);
+
+        verify(jdbcTemplate, times(2)).query(startsWith("SELECT l.lemma, SUM(l.doc_frequency)"),
+                any(RowCallbackHandler.class), (Object[]) any());
+    }
+
+    private static ResultSet row(Object... values) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] instanceof String) {
+                when(rs.getString(i + 1)).thenReturn((String) values[i]);
+            } else {
+                when(rs.getLong(i + 1)).thenReturn((Long) values[i]);
+            }
+        }
+        return rs;
+    }
+}
@@ -0,0 +1,178 @@
+package searchengine.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import searchengine.config.SearchSettings;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class InMemoryIndexTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final InMemoryIndex index = new InMemoryIndex(jdbcTemplate, memorySettings());
+
+    /**
+     * Снимок search_index читается потоково; пока загрузчик дошёл только до первой страницы,
+     * вторую переиндексировали, а третью удалили. Их строки из снимка устарели.
+     */
+    @Test
+    void skipsSnapshotRowsOfPagesChangedDuringLoad() {
+        Object[][] snapshot = {
+                {1, 1, "a", 2f},
+                {2, 1, "a", 1f},
+                {2, 1, "b", 1f},
+                {3, 1, "b", 3f},
+        };
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (Object[] row : snapshot) {
+                if ((int) row[0] == 2 && row[2].equals("a")) {
+                    index.putPage(2, 1, Map.of("c", 5), Map.of());
+                    index.removePage(3);
+                }
+                handler.processRow(row(row));
+            }
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+
+        index.load();
+
+        assertThat(index.isReady()).isTrue();
+        assertThat(pages("a")).containsExactly(1);
+        assertThat(pages("b")).isEmpty();
+        assertThat(pages("c")).containsExactly(2);
+        assertThat(index.score(List.of("c"), new float[]{1f}, null, null).get(2)).isEqualTo(5f);
+    }
+
+    @Test
+    void appliesUpdatesNormallyAfterLoad() {
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            handler.processRow(row(new Object[]{7, 1, "a", 1f}));
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+
+        index.load();
+        index.putPage(7, 1, Map.of("b", 2), Map.of());
+        index.putPage(8, 2, Map.of("a", 1), Map.of());
+
+        assertThat(pages("a")).containsExactly(8);
+        assertThat(pages("b")).containsExactly(7);
+        index.removePage(8);
+        assertThat(pages("a")).isEmpty();
+    }
+
+    @Test
+    void keepsPositionsOfLoadedAndUpdatedPages() {
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            handler.processRow(row(new Object[]{1, 1, "a", 2f, PositionCodec.encode(new int[]{3, 9}, 2)}));
+            handler.processRow(row(new Object[]{1, 1, "b", 1f, PositionCodec.encode(new int[]{4}, 1)}));
+            handler.processRow(row(new Object[]{2, 1, "a", 1f}));
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+
+        index.load();
+        index.putPage(3, 1, Map.of("a", 1, "c", 1),
+                Map.of("a", PositionCodec.encode(new int[]{0}, 1), "c", PositionCodec.encode(new int[]{1}, 1)));
+
+        Map<Integer, Map<String, int[]>> positions = index.positions(List.of(1, 2, 3, 4), Set.of("a", "b"));
+        assertThat(positions).containsOnlyKeys(1, 3);
+        assertThat(positions.get(1).get("a")).containsExactly(3, 9);
+        assertThat(positions.get(1).get("b")).containsExactly(4);
+        assertThat(positions.get(3)).containsOnlyKeys("a");
+
+        index.removePage(1);
+        assertThat(index.positions(List.of(1), Set.of("a"))).isEmpty();
+    }
+
+    @Test
+    void intersectsPostingListsOfAllLemmas() {
+        index.load();
+        index.putPage(1, 1, Map.of("a", 1, "b", 1), Map.of());
+        index.putPage(2, 1, Map.of("a", 1), Map.of());
+        index.putPage(5, 2, Map.of("a", 1, "b", 2, "c", 1), Map.of());
+        index.putPage(9, 1, Map.of("b", 1, "c", 1), Map.of());
+
+        assertThat(index.intersect(List.of("a", "b"))).containsExactly(1, 5);
+        assertThat(index.intersect(List.of("c", "a", "b"))).containsExactly(5);
+        assertThat(index.intersect(List.of("a", "missing"))).isEmpty();
+    }
+
+    /** Ранги целые, веса — двоичные дроби: суммы точны при любом порядке сложения. */
+    @ParameterizedTest(name = "k={0}, вместимость={1}, maxBoost={2}")
+    @CsvSource({
+            "10, 10, 1.0",
+            "10, 500, 1.0",
+            "10, 500, 1.5",
+            "1, 50, 1.0",
+    })
+    void prunedTopKEqualsExhaustiveTopK(int k, int capacity, float maxBoost) {
+        index.load();
+        Random random = new Random(k * 31L + capacity);
+        for (int pageId = 1; pageId <= 2000; pageId++) {
+            Map<String, Integer> frequencies = new HashMap<>();
+            if (random.nextInt(20) == 0) {
+                frequencies.put("редкий", 1 + random.nextInt(10));
+            }
+            if (random.nextInt(4) == 0) {
+                frequencies.put("средний", 1 + random.nextInt(5));
+            }
+            frequencies.put("частый", 1 + random.nextInt(3));
+            index.putPage(pageId, 1, frequencies, Map.of());
+        }
+        List<String> lemmas = List.of("частый", "редкий", "средний");
+        float[] weights = {0.25f, 2f, 1.5f};
+
+        TopKCollector pruned = new TopKCollector(capacity);
+        index.scoreTopK(lemmas, weights, null, null, pruned, k, maxBoost);
+        TopKCollector exhaustive = new TopKCollector(k);
+        index.score(lemmas, weights, null, null).forEach(exhaustive::offer);
+
+        for (int rank = 0; rank < k; rank++) {
+            assertThat(pruned.pageId(rank)).as("страница на месте %d", rank).isEqualTo(exhaustive.pageId(rank));
+            assertThat(pruned.score(rank)).as("оценка на месте %d", rank).isEqualTo(exhaustive.score(rank));
+        }
+    }
+
+    private List<Integer> pages(String lemma) {
+        PageScoreAccumulator acc = index.score(List.of(lemma), new float[]{1f}, null, null);
+        List<Integer> pages = new ArrayList<>();
+        acc.forEach((pageId, score) -> pages.add(pageId));
+        pages.sort(null);
+        return pages;
+    }
+
+    private static ResultSet row(Object[] values) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getInt(1)).thenReturn((Integer) values[0]);
+        when(rs.getInt(2)).thenReturn((Integer) values[1]);
+        when(rs.getString(3)).thenReturn((String) values[2]);
+        when(rs.getFloat(4)).thenReturn((Float) values[3]);
+        when(rs.getBytes(5)).thenReturn(values.length > 4 ? (byte[]) values[4] : null);
+        return rs;
+    }
+
+    private static SearchSettings memorySettings() {
+        SearchSettings settings = new SearchSettings();
+        settings.setEngine(SearchSettings.Engine.MEMORY);
+        return settings;
+    }
+}
@@ -0,0 +1,52 @@
+package searchengine.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KthScoreHeapTest {
+
+    @Test
+    void thresholdIsMinusInfinityUntilFull() {
+        KthScoreHeap heap = new KthScoreHeap(2);
+        heap.update(1, 5f);
+        assertThat(heap.threshold()).isEqualTo(Float.NEGATIVE_INFINITY);
+        heap.update(2, 3f);
+        assertThat(heap.threshold()).isEqualTo(3f);
+    }
+
+    @Test
+    void raisingScoreOfPageInHeapMovesThreshold() {
+        KthScoreHeap heap = new KthScoreHeap(2);
+        heap.update(1, 5f);
+        heap.update(2, 3f);
+        heap.update(2, 7f);
+        assertThat(heap.threshold()).isEqualTo(5f);
+        heap.update(3, 6f);
+        assertThat(heap.threshold()).isEqualTo(6f);
+    }
+
+    @Test
+    void zeroCapacityPrunesEverything() {
+        assertThat(new KthScoreHeap(0).threshold()).isEqualTo(Float.POSITIVE_INFINITY);
+    }
+
+    @Test
+    void matchesKthBestOfGrowingScores() {
+        Random random = new Random(7);
+        KthScoreHeap heap = new KthScoreHeap(5);
+        Map<Integer, Float> scores = new HashMap<>();
+        for (int step = 0; step < 5000; step++) {
+            int pageId = random.nextInt(50);
+            float score = scores.merge(pageId, (float) random.nextInt(4), Float::sum);
+            heap.update(pageId, score);
+            float kth = scores.size() < 5 ? Float.NEGATIVE_INFINITY
+                    : scores.values().stream().sorted((a, b) -> Float.compare(b, a)).skip(4).findFirst().get();
+            assertThat(heap.threshold()).isEqualTo(kth);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package searchengine.search;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Отсечение не меняет k лучших: результат сравнивается с полным перебором. Ранги целые,
+ * веса — двоичные дроби, поэтому суммы точны и сравниваются на равенство.
+ */
+class MaxScoreSqlEvaluatorTest {
+
+    private static final List<String> LEMMAS = List.of("редкий", "средний", "частый");
+    private static final float[] WEIGHTS = {2f, 1.5f, 0.25f};
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final MaxScoreSqlEvaluator evaluator = new MaxScoreSqlEvaluator(jdbcTemplate);
+    // лемма -> pageId -> rank
+    private final Map<String, Map<Integer, Integer>> postings = new LinkedHashMap<>();
+    private final Set<String> fullScans = new HashSet<>();
+
+    @ParameterizedTest(name = "k={0}, вместимость={1}, maxBoost={2}")
+    @CsvSource({
+            "10, 10, 1.0",
+            "10, 500, 1.0",
+            "10, 500, 1.5",
+            "1, 50, 1.0",
+    })
+    void prunedTopKEqualsExhaustiveTopK(int k, int capacity, float maxBoost) {
+        corpus(new Random(k * 31L + capacity));
+        serveFromCorpus();
+
+        TopKCollector pruned = new TopKCollector(capacity);
+        evaluator.score(LEMMAS, WEIGHTS, null, null, pruned, k, maxBoost);
+        TopKCollector exhaustive = exhaustive(k);
+
+        for (int rank = 0; rank < k; rank++) {
+            assertThat(pruned.pageId(rank)).as("страница на месте %d", rank).isEqualTo(exhaustive.pageId(rank));
+            assertThat(pruned.score(rank)).as("оценка на месте %d", rank).isEqualTo(exhaustive.score(rank));
+        }
+        // порог k-й страницы срабатывает и при вместимости больше k: частая лемма целиком не читается
+        assertThat(fullScans).doesNotContain("частый");
+    }
+
+    private void corpus(Random random) {
+        postings.clear();
+        Map<Integer, Integer> rare = new TreeMap<>();
+        Map<Integer, Integer> medium = new TreeMap<>();
+        Map<Integer, Integer> frequent = new TreeMap<>();
+        for (int pageId = 1; pageId <= 2000; pageId++) {
+            if (random.nextInt(20) == 0) {
+                rare.put(pageId, 1 + random.nextInt(10));
+            }
+            if (random.nextInt(4) == 0) {
+                medium.put(pageId, 1 + random.nextInt(5));
+            }
+            frequent.put(pageId, 1 + random.nextInt(3));
+        }
+        postings.put("редкий", rare);
+        postings.put("средний", medium);
+        postings.put("частый", frequent);
+    }
+
+    private TopKCollector exhaustive(int k) {
+        // в том же порядке лемм, что и оценщик (по убыванию границы), чтобы суммы совпадали до бита
+        Map<Integer, Float> scores = new TreeMap<>();
+        for (int t = 0; t < LEMMAS.size(); t++) {
+            float weight = WEIGHTS[t];
+            postings.get(LEMMAS.get(t)).forEach((pageId, rank) -> scores.merge(pageId, rank * weight, Float::sum));
+        }
+        TopKCollector top = new TopKCollector(k);
+        scores.forEach(top::offer);
+        return top;
+    }
+
+    private void serveFromCorpus() {
+        fullScans.clear();
+        doAnswer(invocation -> {
+            String sql = invocation.getArgument(0);
+            RowCallbackHandler handler = invocation.getArgument(1);
+            Object[] args = Arrays.copyOfRange(invocation.getArguments(), 2, invocation.getArguments().length);
+            if (sql.startsWith("SELECT l.lemma, MAX(")) {
+                for (Object lemma : args) {
+                    Map<Integer, Integer> list = postings.get((String) lemma);
+                    int max = list.values().stream().mapToInt(Integer::intValue).max().orElse(0);
+                    handler.processRow(row(lemma, (float) max, 0L));
+                }
+                return null;
+            }
+            String lemma = (String) args[0];
+            Map<Integer, Integer> list = postings.get(lemma);
+            if (sql.contains("i.page_id IN")) {
+                for (int i = 1; i < args.length; i++) {
+                    Integer rank = list.get((Integer) args[i]);
+                    if (rank != null) {
+                        handler.processRow(row(args[i], (float) rank, 0));
+                    }
+                }
+            } else {
+                fullScans.add(lemma);
+                for (Map.Entry<Integer, Integer> e : new ArrayList<>(list.entrySet())) {
+                    handler.processRow(row(e.getKey(), (float) e.getValue(), 0));
+                }
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), (Object[]) any());
+    }
+
+    /** Строка результата: getXxx(i) возвращает i-е значение. */
+    private static ResultSet row(Object... values) {
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, methodArgs) -> {
+                    Object value = values[(Integer) methodArgs[0] - 1];
+                    switch (method.getName()) {
+                        case "getInt":
+                            return ((Number) value).intValue();
+                        case "getLong":
+                            return ((Number) value).longValue();
+                        case "getFloat":
+                            return ((Number) value).floatValue();
+                        case "getString":
+                            return (String) value;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
@@ -0,0 +1,47 @@
+package searchengine.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PositionCodecTest {
+
+    static Stream<Arguments> positions() {
+        return Stream.of(
+                Arguments.of(new int[]{}, 0),
+                Arguments.of(new int[]{0}, 1),
+                Arguments.of(new int[]{0, 1, 2, 3}, 4),
+                Arguments.of(new int[]{127}, 1),
+                Arguments.of(new int[]{128}, 2),
+                Arguments.of(new int[]{5, 133}, 3),
+                Arguments.of(new int[]{16_383, 16_384}, 3),
+                Arguments.of(new int[]{0, 2_000_000, Integer.MAX_VALUE}, 9),
+                Arguments.of(new int[]{3, 10, 200, 201, 70_000}, 8));
+    }
+
+    @ParameterizedTest
+    @MethodSource("positions")
+    void roundTripsDeltaVarints(int[] positions, int expectedBytes) {
+        byte[] encoded = PositionCodec.encode(positions, positions.length);
+        assertThat(encoded).hasSize(expectedBytes);
+        assertThat(PositionCodec.decode(encoded)).containsExactly(positions);
+    }
+
+    @ParameterizedTest
+    @MethodSource("positions")
+    void encodesOnlyFirstCountPositions(int[] positions, int ignored) {
+        int[] padded = new int[positions.length + 3];
+        System.arraycopy(positions, 0, padded, 0, positions.length);
+        assertThat(PositionCodec.decode(PositionCodec.encode(padded, positions.length))).containsExactly(positions);
+    }
+
+    @Test
+    void decodesNullAsEmpty() {
+        assertThat(PositionCodec.decode(null)).isEmpty();
+    }
+}
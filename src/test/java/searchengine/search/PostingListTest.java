@@ -0,0 +1,70 @@
+package searchengine.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PostingListTest {
+
+    /** id страниц 10, 20, ..., 100 в позициях 0..9. */
+    private static PostingList tens() {
+        PostingList list = new PostingList();
+        for (int id = 100; id >= 10; id -= 10) {
+            list.put(id, id / 10f);
+        }
+        return list;
+    }
+
+    @ParameterizedTest(name = "advance({0}, {1}) = {2}")
+    @CsvSource({
+            "0, 5, 0",
+            "0, 10, 0",
+            "0, 11, 1",
+            "0, 100, 9",
+            "0, 101, 10",
+            "3, 10, 3",
+            "3, 45, 4",
+            "3, 90, 8",
+            "9, 100, 9",
+            "10, 200, 10",
+            "0, 65, 6",
+    })
+    void advanceFindsFirstPositionNotBelowTarget(int from, int pageId, int expected) {
+        assertThat(tens().advance(from, pageId)).isEqualTo(expected);
+    }
+
+    @Test
+    void advanceMatchesLinearScan() {
+        PostingList list = new PostingList();
+        for (int id = 1; id < 5_000; id += 7) {
+            list.put(id, 1f);
+        }
+        for (int from = 0; from <= list.size(); from += 13) {
+            for (int target = 0; target < 5_100; target += 11) {
+                int expected = from;
+                while (expected < list.size() && list.pageId(expected) < target) {
+                    expected++;
+                }
+                assertThat(list.advance(from, target)).as("from %d target %d", from, target).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    void keepsPageIdsSortedAndMaxRankAsUpperBound() {
+        PostingList list = tens();
+        assertThat(list.size()).isEqualTo(10);
+        assertThat(list.pageId(0)).isEqualTo(10);
+        assertThat(list.maxRank()).isEqualTo(10f);
+
+        list.put(55, 3f);
+        assertThat(list.pageId(5)).isEqualTo(55);
+        assertThat(list.remove(100)).isTrue();
+        assertThat(list.remove(100)).isFalse();
+        assertThat(list.maxRank()).isEqualTo(9f);
+        list.put(90, 1f);
+        assertThat(list.maxRank()).isEqualTo(8f);
+    }
+}
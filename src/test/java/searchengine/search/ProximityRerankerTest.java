@@ -0,0 +1,93 @@
+package searchengine.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import searchengine.config.SearchSettings;
+import searchengine.service.MorphologyService;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class ProximityRerankerTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final SearchSettings settings = settings();
+    private final InMemoryIndex index = new InMemoryIndex(jdbcTemplate, settings);
+    private final ProximityReranker reranker = new ProximityReranker(jdbcTemplate, settings, index);
+
+    @BeforeEach
+    void loadEmptyIndex() {
+        index.load();
+    }
+
+    /** Фраза проверяется у всех страниц пересечения, а не только в пределах rerank-depth. */
+    @Test
+    void matchesPhraseOnEveryPageWithAllItsLemmas() {
+        for (int pageId = 1; pageId <= 10; pageId++) {
+            boolean adjacent = pageId == 3 || pageId == 9;
+            index.putPage(pageId, 1, Map.of("красный", 1, "дом", 1), Map.of(
+                    "красный", PositionCodec.encode(new int[]{0}, 1),
+                    "дом", PositionCodec.encode(new int[]{adjacent ? 1 : 5}, 1)));
+        }
+        index.putPage(11, 1, Map.of("красный", 1), Map.of("красный", PositionCodec.encode(new int[]{0}, 1)));
+
+        assertThat(reranker.matchPhrases(phrases("\"красный дом\""), null)).containsExactly(3, 9);
+    }
+
+    @Test
+    void rejectsPagesWithoutStoredPositions() {
+        index.putPage(1, 1, Map.of("красный", 1, "дом", 1), Map.of());
+        index.putPage(2, 1, Map.of("красный", 1, "дом", 1), Map.of(
+                "красный", PositionCodec.encode(new int[]{4}, 1),
+                "дом", PositionCodec.encode(new int[]{5}, 1)));
+
+        assertThat(reranker.matchPhrases(phrases("\"красный дом\""), null)).containsExactly(2);
+    }
+
+    @Test
+    void rerankBoostsAdjacentWordsAndKeepsTotal() {
+        index.putPage(1, 1, Map.of("красный", 1, "дом", 1), Map.of(
+                "красный", PositionCodec.encode(new int[]{0}, 1),
+                "дом", PositionCodec.encode(new int[]{9}, 1)));
+        index.putPage(2, 1, Map.of("красный", 1, "дом", 1), Map.of(
+                "красный", PositionCodec.encode(new int[]{0}, 1),
+                "дом", PositionCodec.encode(new int[]{1}, 1)));
+        TopKCollector top = new TopKCollector(2);
+        top.offer(1, 1.1f);
+        top.offer(2, 1.0f);
+        top.addToTotal(5);
+
+        TopKCollector result = reranker.rerank(top, List.of("красный", "дом"), 2);
+
+        assertThat(result.pageId(0)).isEqualTo(2);
+        assertThat(result.score(0)).isEqualTo(1.5f);
+        assertThat(result.total()).isEqualTo(top.total());
+    }
+
+    private static List<PhraseQuery> phrases(String query) {
+        MorphologyService morphology = mock(MorphologyService.class);
+        doAnswer(invocation -> {
+            MorphologyService.LemmaConsumer consumer = invocation.getArgument(1);
+            String[] words = invocation.getArgument(0, CharSequence.class).toString().split(" ");
+            for (int i = 0; i < words.length; i++) {
+                consumer.accept(words[i], i);
+            }
+            return null;
+        }).when(morphology).forEachLemma(any(), any());
+        return PhraseQuery.parse(query, morphology);
+    }
+
+    private static SearchSettings settings() {
+        SearchSettings settings = new SearchSettings();
+        settings.setEngine(SearchSettings.Engine.MEMORY);
+        // порции меньше числа кандидатов: фраза ищется и за пределами первой
+        settings.getProximity().setRerankDepth(2);
+        return settings;
+    }
+}
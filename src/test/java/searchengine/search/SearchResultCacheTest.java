@@ -0,0 +1,99 @@
+package searchengine.search;
+
+import org.junit.jupiter.api.Test;
+import searchengine.config.SearchSettings;
+import searchengine.dto.metrics.SearchCacheMetricsResponse;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SearchResultCacheTest {
+
+    private static final String SITE = "https://site.ru";
+
+    private final SearchSettings settings = new SearchSettings();
+    private final SearchResultCache cache = new SearchResultCache(settings);
+
+    @Test
+    void hitsRegardlessOfLemmaOrderWithinSite() {
+        RankedPages ranking = ranking(10);
+        cache.put(List.of("кот", "пес"), SITE, 1, ranking);
+
+        assertThat(cache.get(List.of("пес", "кот"), SITE, 1, 10)).isSameAs(ranking);
+        assertThat(cache.get(List.of("кот", "пес"), null, 1, 10)).isNull();
+        assertThat(cache.get(List.of("кот"), SITE, 1, 10)).isNull();
+    }
+
+    @Test
+    void dropsEntryWhenIndexVersionChanges() {
+        cache.put(List.of("кот"), SITE, 1, ranking(10));
+
+        assertThat(cache.get(List.of("кот"), SITE, 2, 10)).isNull();
+        assertThat(cache.get(List.of("кот"), SITE, 1, 10)).isNull();
+
+        SearchCacheMetricsResponse metrics = cache.metrics();
+        assertThat(metrics.getInvalidations()).isEqualTo(1);
+        assertThat(metrics.getEntries()).isZero();
+        assertThat(metrics.getBytes()).isZero();
+    }
+
+    @Test
+    void missesWhenRequestedPageGoesPastStoredDepth() {
+        TopKCollector top = new TopKCollector(5);
+        for (int pageId = 1; pageId <= 20; pageId++) {
+            top.offer(pageId, pageId);
+        }
+        cache.put(List.of("кот"), SITE, 1, RankedPages.from(top));
+
+        assertThat(cache.get(List.of("кот"), SITE, 1, 5)).isNotNull();
+        assertThat(cache.get(List.of("кот"), SITE, 1, 10)).isNull();
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedOverMaxEntries() {
+        settings.getCache().setMaxEntries(2);
+        cache.put(List.of("а"), SITE, 1, ranking(1));
+        cache.put(List.of("б"), SITE, 1, ranking(1));
+        cache.get(List.of("а"), SITE, 1, 1);
+        cache.put(List.of("в"), SITE, 1, ranking(1));
+
+        assertThat(cache.get(List.of("а"), SITE, 1, 1)).isNotNull();
+        assertThat(cache.get(List.of("б"), SITE, 1, 1)).isNull();
+        assertThat(cache.get(List.of("в"), SITE, 1, 1)).isNotNull();
+        assertThat(cache.metrics().getEvictions()).isEqualTo(1);
+    }
+
+    @Test
+    void keepsTotalSizeWithinMemoryBudget() {
+        settings.getCache().setMemoryBudgetMb(1);
+        long budget = 1024L * 1024L;
+        // 100 000 страниц — около 800 КБ, вдвоём в бюджет не помещаются
+        cache.put(List.of("а"), SITE, 1, ranking(100_000));
+        cache.put(List.of("б"), SITE, 1, ranking(100_000));
+
+        SearchCacheMetricsResponse metrics = cache.metrics();
+        assertThat(metrics.getEntries()).isEqualTo(1);
+        assertThat(metrics.getBytes()).isPositive().isLessThanOrEqualTo(budget);
+        assertThat(cache.get(List.of("б"), SITE, 1, 10)).isNotNull();
+    }
+
+    @Test
+    void neverStoresRankingLargerThanBudget() {
+        settings.getCache().setMemoryBudgetMb(1);
+        cache.put(List.of("а"), SITE, 1, ranking(10));
+        cache.put(List.of("б"), SITE, 1, ranking(200_000));
+
+        assertThat(cache.get(List.of("б"), SITE, 1, 10)).isNull();
+        assertThat(cache.get(List.of("а"), SITE, 1, 10)).isNotNull();
+        assertThat(cache.metrics().getEvictions()).isZero();
+    }
+
+    private static RankedPages ranking(int size) {
+        TopKCollector top = new TopKCollector(size);
+        for (int pageId = 1; pageId <= size; pageId++) {
+            top.offer(pageId, 1f / pageId);
+        }
+        return RankedPages.from(top);
+    }
+}
@@ -0,0 +1,68 @@
+package searchengine.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TopKCollectorTest {
+
+    @Test
+    void keepsBestKInDescendingOrderWithLowerIdOnTies() {
+        TopKCollector top = new TopKCollector(3);
+        top.offer(5, 1f);
+        top.offer(4, 3f);
+        top.offer(9, 2f);
+        top.offer(2, 2f);
+        top.offer(7, 0.5f);
+
+        assertThat(top.total()).isEqualTo(5);
+        assertThat(top.size()).isEqualTo(3);
+        assertThat(new int[]{top.pageId(0), top.pageId(1), top.pageId(2)}).containsExactly(4, 2, 9);
+        assertThat(top.score(0)).isEqualTo(3f);
+    }
+
+    @Test
+    void matchesFullSortOnRandomInput() {
+        Random random = new Random(1);
+        for (int k : new int[]{1, 10, 100}) {
+            TopKCollector top = new TopKCollector(k);
+            List<float[]> all = new ArrayList<>();
+            for (int id = 1; id <= 2_000; id++) {
+                float score = random.nextInt(200) / 10f;
+                top.offer(id, score);
+                all.add(new float[]{id, score});
+            }
+            all.sort(Comparator.<float[]>comparingDouble(e -> -e[1]).thenComparingDouble(e -> e[0]));
+            for (int rank = 0; rank < k; rank++) {
+                assertThat(top.pageId(rank)).isEqualTo((int) all.get(rank)[0]);
+            }
+        }
+    }
+
+    @Test
+    void thresholdFollowsWorstKeptScore() {
+        TopKCollector top = new TopKCollector(2);
+        assertThat(top.threshold()).isEqualTo(Float.NEGATIVE_INFINITY);
+        top.offer(1, 5f);
+        top.offer(2, 1f);
+        assertThat(top.threshold()).isEqualTo(1f);
+        top.offer(3, 4f);
+        assertThat(top.threshold()).isEqualTo(4f);
+        assertThat(new TopKCollector(0).threshold()).isEqualTo(Float.POSITIVE_INFINITY);
+    }
+
+    @Test
+    void zeroCapacityOnlyCounts() {
+        TopKCollector top = new TopKCollector(0);
+        top.offer(1, 1f);
+        top.addToTotal(4);
+        top.raiseTotal(3);
+        assertThat(top.size()).isZero();
+        assertThat(top.total()).isEqualTo(5);
+    }
+}
@@ -0,0 +1,90 @@
+package searchengine.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import searchengine.config.MorphologySettings;
+import searchengine.utils.TermFrequencyMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MorphologyServiceImplTest {
+
+    private static final Pattern WORD = Pattern.compile("\\p{L}+");
+
+    private static final MorphologyServiceImpl service = new MorphologyServiceImpl(new MorphologySettings());
+
+    @ParameterizedTest(name = "\"{0}\"")
+    @CsvSource(delimiter = '|', value = {
+            "Привет, МИР!               | привет мир",
+            "e-mail2you и т.д.          | e mail you и т д",
+            "ЁЖИК-ёжик                  | ёжик ёжик",
+            "'  '                       | ''",
+            "Straße İstanbul            | straße istanbul",
+    })
+    void splitsOnNonLettersAndLowercases(String text, String tokens) {
+        assertThat(String.join(" ", tokens(text))).isEqualTo(tokens);
+    }
+
+    @Test
+    void lowercasesSupplementaryLettersByCodePoint() {
+        // U+10400 DESERET CAPITAL LONG I -> U+10428; U+1F600 (эмодзи) — не буква
+        String text = "𐐀x😀y";
+        assertThat(tokens(text)).containsExactly("𐐨x", "y");
+    }
+
+    @Test
+    void matchesRegexTokenizationOnRandomText() {
+        Random random = new Random(5);
+        String alphabet = "абвгдеёжАБВЁabcXYZ0123 ,.-\t ́ßİ𐐀😀";
+        int[] codePoints = alphabet.codePoints().toArray();
+        for (int run = 0; run < 200; run++) {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < 60; i++) {
+                text.appendCodePoint(codePoints[random.nextInt(codePoints.length)]);
+            }
+            List<String> expected = new ArrayList<>();
+            Matcher m = WORD.matcher(text);
+            while (m.find()) {
+                StringBuilder token = new StringBuilder();
+                m.group().codePoints().map(Character::toLowerCase).forEach(token::appendCodePoint);
+                expected.add(token.toString());
+            }
+            assertThat(tokens(text.toString())).as(text.toString()).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void reportsPositionsAndSpansOfTokens() {
+        String text = "Кошки, и собаки";
+        List<Integer> positions = new ArrayList<>();
+        service.forEachToken(text, (buffer, length, position) -> positions.add(position));
+        List<String> spans = new ArrayList<>();
+        service.forEachLemmaSpan(text, (lemma, start, end) -> spans.add(lemma + "@" + text.substring(start, end)));
+
+        assertThat(positions).containsExactly(0, 1, 2);
+        assertThat(spans).containsExactly("кошка@Кошки", "собака@собаки");
+    }
+
+    @Test
+    void countsLemmasIntoTermFrequencyMap() {
+        TermFrequencyMap map = new TermFrequencyMap();
+        service.countLemmas("Книга, книги, КНИГУ и книжка", map);
+
+        assertThat(map.get("книга")).isEqualTo(3);
+        assertThat(map.get("книжка")).isEqualTo(1);
+        assertThat(map.get("и")).isZero();
+    }
+
+    private static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        service.forEachToken(text, (buffer, length, position) -> tokens.add(new String(buffer, 0, length)));
+        return tokens;
+    }
+}
@@ -0,0 +1,79 @@
+package searchengine.service;
+
+import org.junit.jupiter.api.Test;
+import searchengine.config.MorphologySettings;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SnippetServiceTest {
+
+    private static final SnippetService service =
+            new SnippetService(new MorphologyServiceImpl(new MorphologySettings()));
+
+    @Test
+    void highlightsInflectedFormsOfQueryLemmas() {
+        assertThat(service.generateSnippet("Мы читали книги. Книгу купили вчера.", List.of("книга")))
+                .isEqualTo("Мы читали <b>книги</b>. <b>Книгу</b> купили вчера.");
+    }
+
+    @Test
+    void escapesHtmlOutsideAndInsideHighlight() {
+        assertThat(service.generateSnippet("a < b && <script>книга</script>", List.of("книга")))
+                .isEqualTo("a &lt; b &amp;&amp; &lt;script&gt;<b>книга</b>&lt;/script&gt;");
+    }
+
+    @Test
+    void prefersWindowWithMoreDistinctLemmas() {
+        String content = "Кошка гуляла одна. " + filler(400)
+                + "Потом кошка и собака играли вместе. " + filler(400) + "Кошка кошка кошка спала.";
+
+        String snippet = service.generateSnippet(content, List.of("кошка", "собака"));
+
+        assertThat(snippet).contains("<b>кошка</b> и <b>собака</b>").startsWith("...").endsWith("...");
+    }
+
+    @Test
+    void prefersMoreMatchesAmongEquallyDistinctWindows() {
+        String content = "Кошка спала. " + filler(400) + "Кошка, кошка и снова кошка. " + filler(400);
+
+        assertThat(service.generateSnippet(content, List.of("кошка")))
+                .contains("<b>Кошка</b>, <b>кошка</b> и снова <b>кошка</b>");
+    }
+
+    @Test
+    void startsSnippetAtSentenceAndKeepsLengthBounded() {
+        String content = filler(400) + "Здесь встречается собака в тексте. " + filler(400);
+
+        String snippet = service.generateSnippet(content, List.of("собака"));
+
+        // сниппет начинается с ближайшего предложения филлера, а не с середины слова
+        assertThat(snippet).startsWith("...Текст без совпадений.").contains("встречается <b>собака</b>");
+        assertThat(snippet.replace("<b>", "").replace("</b>", "").length()).isLessThanOrEqualTo(306);
+    }
+
+    @Test
+    void fallsBackToBeginningWithoutMatches() {
+        String content = "Первое слово. " + filler(600);
+
+        String snippet = service.generateSnippet(content, List.of("отсутствует"));
+
+        assertThat(snippet).startsWith("Первое слово.").endsWith("...").doesNotContain("<b>");
+        assertThat(snippet.length()).isLessThanOrEqualTo(303);
+    }
+
+    @Test
+    void returnsEmptySnippetForEmptyContent() {
+        assertThat(service.generateSnippet("", List.of("книга"))).isEmpty();
+        assertThat(service.generateSnippet(null, List.of("книга"))).isEmpty();
+    }
+
+    private static String filler(int length) {
+        StringBuilder sb = new StringBuilder(length + 16);
+        while (sb.length() < length) {
+            sb.append("Текст без совпадений. ");
+        }
+        return sb.toString();
+    }
+}
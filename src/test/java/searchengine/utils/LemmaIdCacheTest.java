@@ -0,0 +1,112 @@
+package searchengine.utils;
+
+import org.junit.jupiter.api.Test;
+import searchengine.config.IndexerSettings;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LemmaIdCacheTest {
+
+    @Test
+    void givesRecentlyReadLemmaSecondChanceWhenSiteIsFull() {
+        LemmaIdCache cache = cache(2);
+        cache.put(1, "a", 10);
+        cache.put(1, "b", 20);
+        assertThat(cache.get(1, "a")).isEqualTo(10);
+        cache.put(1, "c", 30);
+
+        assertThat(cache.get(1, "b")).isNull();
+        assertThat(cache.get(1, "a")).isEqualTo(10);
+        assertThat(cache.get(1, "c")).isEqualTo(30);
+    }
+
+    @Test
+    void limitsEachSiteSeparately() {
+        LemmaIdCache cache = cache(1);
+        cache.put(1, "a", 10);
+        cache.put(2, "a", 11);
+        assertThat(cache.get(1, "a")).isEqualTo(10);
+        assertThat(cache.get(2, "a")).isEqualTo(11);
+    }
+
+    @Test
+    void evictAndInvalidateDropEntries() {
+        LemmaIdCache cache = cache(10);
+        cache.put(1, "a", 10);
+        cache.put(1, "b", 20);
+        cache.evict(1, "a");
+        assertThat(cache.get(1, "a")).isNull();
+        assertThat(cache.get(1, "b")).isEqualTo(20);
+        cache.invalidate(1);
+        assertThat(cache.get(1, "b")).isNull();
+    }
+
+    @Test
+    void evictsInInsertionOrderWhenNothingWasRead() {
+        LemmaIdCache cache = cache(2);
+        cache.put(1, "a", 10);
+        cache.put(1, "b", 20);
+        cache.put(1, "c", 30);
+        cache.put(1, "d", 40);
+
+        assertThat(cache.get(1, "a")).isNull();
+        assertThat(cache.get(1, "b")).isNull();
+        assertThat(cache.get(1, "c")).isEqualTo(30);
+        assertThat(cache.get(1, "d")).isEqualTo(40);
+    }
+
+    @Test
+    void concurrentReadersAndWritersSeeOnlyCorrectIdsWithinCapacity() throws Exception {
+        LemmaIdCache cache = cache(100);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int seed = t;
+            tasks.add(pool.submit(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < 50_000; i++) {
+                    int n = random.nextInt(500);
+                    Integer id = cache.get(1, "l" + n);
+                    if (id == null) {
+                        cache.put(1, "l" + n, n);
+                    } else {
+                        assertThat(id).isEqualTo(n);
+                    }
+                }
+            }));
+        }
+        for (Future<?> task : tasks) {
+            task.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        int cached = 0;
+        for (int n = 0; n < 500; n++) {
+            if (cache.get(1, "l" + n) != null) {
+                cached++;
+            }
+        }
+        assertThat(cached).isLessThanOrEqualTo(100);
+    }
+
+    @Test
+    void zeroSizeDisablesCache() {
+        LemmaIdCache cache = cache(0);
+        cache.put(1, "a", 10);
+        assertThat(cache.get(1, "a")).isNull();
+    }
+
+    private static LemmaIdCache cache(int size) {
+        IndexerSettings settings = new IndexerSettings();
+        settings.setLemmaCacheSize(size);
+        return new LemmaIdCache(null, settings);
+    }
+}
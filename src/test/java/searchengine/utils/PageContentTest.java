@@ -0,0 +1,106 @@
+package searchengine.utils;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PageContentTest {
+
+    private static final String BASE = "https://site.ru/dir/page.html";
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "<p>Один</p><p>два</p>три",
+            "<div>а<br>б<br/>в</div>",
+            "<ul><li>раз</li><li>два</li></ul>после",
+            "<span>слитно</span><b>тоже</b> <i>через пробел</i>",
+            "<pre>  много\n\n   пробелов\tи\tтабуляций  </pre>",
+            "<table><tr><td>ячейка</td><td>вторая</td></tr></table>конец",
+            "<h1>Заголовок</h1>\n\n<div><div><p>вложенный</p></div>текст</div>",
+            "  <p>  &nbsp;неразрывный&nbsp; </p>  ",
+            "<div>блок</div><span>строка</span><div>ещё блок</div>",
+            "",
+    })
+    void extractsSameTextAsJsoup(String body) {
+        Document doc = Jsoup.parse("<html><body>" + body + "</body></html>", BASE);
+
+        assertThat(PageContent.extract(doc).getText()).isEqualTo(doc.body().text());
+    }
+
+    @Test
+    void extractsSameTextAsJsoupOnRandomMarkup() {
+        Random random = new Random(20);
+        String[] tags = {"p", "div", "span", "b", "li", "br", "td", "h2", "pre", "a"};
+        String[] words = {"слово", " ", "  ", "\n", "\t", "word", "&amp;", "x"};
+        for (int run = 0; run < 300; run++) {
+            StringBuilder html = new StringBuilder();
+            for (int i = 0; i < 40; i++) {
+                String tag = tags[random.nextInt(tags.length)];
+                if (tag.equals("br")) {
+                    html.append("<br>");
+                } else if (random.nextBoolean()) {
+                    html.append('<').append(tag).append('>');
+                } else {
+                    html.append("</").append(tag).append('>');
+                }
+                html.append(words[random.nextInt(words.length)]);
+            }
+            Document doc = Jsoup.parse(html.toString(), BASE);
+
+            assertThat(PageContent.extract(doc).getText()).as(html.toString()).isEqualTo(doc.body().text());
+        }
+    }
+
+    @Test
+    void collectsAbsoluteLinksExceptScriptsMailAndBareAnchors() {
+        Document doc = Jsoup.parse("<html><body>"
+                + "<a href='next.html'>1</a>"
+                + "<a href='/root'>2</a>"
+                + "<a href='https://other.ru/x?y=1#z'>3</a>"
+                + "<a href='#'>4</a>"
+                + "<a href='#part'>5</a>"
+                + "<a href='javascript:void(0)'>6</a>"
+                + "<a href='mailto:a@b.ru'>7</a>"
+                + "<a href=''>8</a>"
+                + "<a>9</a>"
+                + "<div><a href='../up'>10</a></div>"
+                + "</body></html>", BASE);
+
+        assertThat(PageContent.extract(doc).getLinks()).containsExactly(
+                "https://site.ru/dir/next.html",
+                "https://site.ru/root",
+                "https://other.ru/x?y=1#z",
+                "https://site.ru/dir/page.html#part",
+                "https://site.ru/up");
+    }
+
+    @Test
+    void linksMatchJsoupSelection() {
+        Document doc = Jsoup.parse("<html><body><p><a href='a'>a</a> текст <a href='b'>b</a></p>"
+                + "<ul><li><a href='/c'>c</a></li></ul></body></html>", BASE);
+        List<String> expected = new ArrayList<>();
+        for (Element a : doc.select("a[href]")) {
+            expected.add(a.absUrl("href"));
+        }
+
+        assertThat(PageContent.extract(doc).getLinks()).isEqualTo(expected);
+    }
+
+    @Test
+    void readsCanonicalFromHead() {
+        Document doc = Jsoup.parse("<html><head><link rel='canonical' href='/dir/page'></head>"
+                + "<body>текст</body></html>", BASE);
+
+        assertThat(PageContent.extract(doc).getCanonicalUrl()).isEqualTo("https://site.ru/dir/page");
+        assertThat(PageContent.extract(Jsoup.parse("<p>x</p>", BASE)).getCanonicalUrl()).isNull();
+    }
+}
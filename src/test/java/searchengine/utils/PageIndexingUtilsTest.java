@@ -0,0 +1,277 @@
+package searchengine.utils;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import searchengine.config.CrawlerSettings;
+import searchengine.config.IndexerSettings;
+import searchengine.crawler.HostScheduler;
+import searchengine.model.PageEntity;
+import searchengine.model.SiteEntity;
+import searchengine.repository.IndexBatchRepository;
+import searchengine.repository.IndexRepository;
+import searchengine.repository.LemmaRepository;
+import searchengine.repository.PageBodyRepository;
+import searchengine.repository.PageRepository;
+import searchengine.repository.SiteRepository;
+import searchengine.search.CorpusStatistics;
+import searchengine.search.InMemoryIndex;
+import searchengine.search.IndexVersion;
+import searchengine.service.MorphologyService;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Запись пачки страниц: page, page_body, удаление старого индекса и вставка нового
+ * идут одной транзакцией, а индекс в памяти меняется только после её фиксации.
+ * Повторный обход: условный GET по валидаторам и сравнение хэша текста.
+ */
+class PageIndexingUtilsTest {
+
+    private final PageRepository pageRepository = mock(PageRepository.class);
+    private final PageBodyRepository pageBodyRepository = mock(PageBodyRepository.class);
+    private final LemmaRepository lemmaRepository = mock(LemmaRepository.class);
+    private final IndexRepository indexRepository = mock(IndexRepository.class);
+    private final SiteRepository siteRepository = mock(SiteRepository.class);
+    private final IndexBatchRepository indexBatchRepository = mock(IndexBatchRepository.class);
+    private final InMemoryIndex inMemoryIndex = mock(InMemoryIndex.class);
+    private final CorpusStatistics corpusStatistics = mock(CorpusStatistics.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final HostScheduler hostScheduler = mock(HostScheduler.class);
+
+    private final PageIndexingUtils utils = new PageIndexingUtils(pageRepository, pageBodyRepository,
+            lemmaRepository, indexRepository, siteRepository, mock(MorphologyService.class),
+            hostScheduler, new CrawlerSettings(), new IndexerSettings(), indexBatchRepository,
+            new LemmaIdCache(null, new IndexerSettings()),
+            inMemoryIndex, mock(IndexVersion.class), corpusStatistics, transactionTemplate);
+
+    private final SiteEntity site = new SiteEntity();
+    /** Журнал вызовов: каждая запись помечена, была ли открыта транзакция. */
+    private final List<String> calls = new ArrayList<>();
+    private int transactions;
+    private boolean inTransaction;
+    private HttpServer server;
+    /** Заголовки условного запроса, пришедшие на сервер последними. */
+    private final List<String> conditionalHeaders = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        site.setId(1);
+        site.setUrl("https://example.com");
+        doAnswer(inv -> {
+            inv.getArgument(0, Runnable.class).run();
+            return null;
+        }).when(corpusStatistics).update(any());
+        doAnswer(inv -> {
+            transactions++;
+            inTransaction = true;
+            try {
+                inv.getArgument(0, Consumer.class).accept(null);
+            } finally {
+                inTransaction = false;
+            }
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        when(transactionTemplate.execute(any())).thenAnswer(inv -> {
+            transactions++;
+            inTransaction = true;
+            try {
+                return inv.getArgument(0, TransactionCallback.class).doInTransaction(null);
+            } finally {
+                inTransaction = false;
+            }
+        });
+
+        PageEntity existing = new PageEntity();
+        existing.setId(7);
+        existing.setPath("/old");
+        when(pageRepository.findBySiteAndPath(site, "/old")).thenReturn(Optional.of(existing));
+        when(pageRepository.findBySiteAndPath(site, "/new")).thenReturn(Optional.empty());
+        when(pageRepository.save(any())).thenAnswer(inv -> {
+            PageEntity page = inv.getArgument(0);
+            if (page.getId() == null) {
+                page.setId(8);
+            }
+            record("page " + page.getId());
+            return page;
+        });
+        doAnswer(inv -> record("body " + inv.getArgument(0))).when(pageBodyRepository).save(anyInt(), anyString());
+        when(indexRepository.findLemmaRanksByPage(existing))
+                .thenReturn(List.<Object[]>of(new Object[]{3, "старый", 2}));
+        when(indexRepository.deleteByPage(existing)).thenAnswer(inv -> record("delete index 7"));
+        when(indexBatchRepository.findLemmaIds(eq(1), anyList())).thenReturn(Map.of("дом", 10));
+        doAnswer(inv -> record("insert index " + inv.getArgument(0))).when(indexBatchRepository)
+                .insertIndices(anyList(), anyList(), anyList(), anyList());
+        doAnswer(inv -> record("memory remove " + inv.getArgument(0))).when(inMemoryIndex).removePage(anyInt());
+        doAnswer(inv -> record("memory put " + inv.getArgument(0))).when(inMemoryIndex)
+                .putPage(anyInt(), anyInt(), any(), any());
+    }
+
+    @Test
+    void writesWholeBatchInOneTransactionAndUpdatesMemoryAfterCommit() {
+        utils.savePages(site, List.of(
+                PageWrite.page("/old", "дом", null, null, null, terms()),
+                PageWrite.page("/new", "дом", null, null, null, terms())));
+
+        assertThat(transactions).isEqualTo(1);
+        assertThat(calls).containsExactly(
+                "tx: page 7", "tx: body 7", "tx: delete index 7",
+                "tx: page 8", "tx: body 8",
+                "tx: insert index [7, 8]",
+                "memory remove 7", "memory put 7", "memory put 8");
+    }
+
+    @Test
+    void leavesMemoryUntouchedWhenBatchRollsBack() {
+        doAnswer(inv -> {
+            throw new IllegalStateException("deadlock");
+        }).when(indexBatchRepository).insertIndices(anyList(), anyList(), anyList(), anyList());
+
+        assertThatThrownBy(() -> utils.savePages(site, List.of(
+                PageWrite.page("/old", "дом", null, null, null, terms()))))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(calls).allMatch(call -> call.startsWith("tx: "));
+    }
+
+    @Test
+    void aliasDropsOldIndexInTheSameTransaction() {
+        utils.savePages(site, List.of(PageWrite.alias("/old", "дом", null, null, null, "/new")));
+
+        assertThat(transactions).isEqualTo(1);
+        assertThat(calls).containsExactly("tx: page 7", "tx: delete index 7", "memory remove 7");
+    }
+
+    @Test
+    void firstFetchIsUnconditional() throws IOException {
+        PageIndexingUtils.FetchResult result = utils.fetchDocument(startServer("\"v2\""), null);
+
+        assertThat(conditionalHeaders).isEmpty();
+        assertThat(result.isNotModified()).isFalse();
+        assertThat(result.parse().text()).isEqualTo("дом");
+        assertThat(result.getEtag()).isEqualTo("\"v2\"");
+        assertThat(result.getLastModified()).isEqualTo("Wed, 01 Jan 2025 00:00:00 GMT");
+    }
+
+    @Test
+    void sendsValidatorsAndKeepsThemOnNotModified() throws IOException {
+        PageEntity known = known("\"v1\"", "Tue, 31 Dec 2024 00:00:00 GMT");
+
+        PageIndexingUtils.FetchResult result = utils.fetchDocument(startServer("\"v1\""), known);
+
+        assertThat(conditionalHeaders).containsExactly(
+                "If-None-Match: \"v1\"", "If-Modified-Since: Tue, 31 Dec 2024 00:00:00 GMT");
+        assertThat(result.isNotModified()).isTrue();
+        assertThat(result.parse()).isNull();
+        assertThat(result.getEtag()).isEqualTo("\"v1\"");
+        assertThat(result.getLastModified()).isEqualTo("Tue, 31 Dec 2024 00:00:00 GMT");
+    }
+
+    @Test
+    void returnsNewBodyAndValidatorsWhenPageChanged() throws IOException {
+        PageIndexingUtils.FetchResult result = utils.fetchDocument(startServer("\"v2\""), known("\"v1\"", null));
+
+        assertThat(conditionalHeaders).containsExactly("If-None-Match: \"v1\"");
+        assertThat(result.isNotModified()).isFalse();
+        assertThat(result.getEtag()).isEqualTo("\"v2\"");
+    }
+
+    @Test
+    void touchWritesValidatorsOnlyWhenServerChangedThem() {
+        PageEntity known = known("\"v1\"", "Tue, 31 Dec 2024 00:00:00 GMT");
+
+        utils.touchPage(known, "\"v1\"", "Tue, 31 Dec 2024 00:00:00 GMT");
+        verify(pageRepository, never()).updateValidators(anyInt(), any(), any());
+
+        utils.touchPage(known, "\"v1\"", "Wed, 01 Jan 2025 00:00:00 GMT");
+        verify(pageRepository).updateValidators(7, "\"v1\"", "Wed, 01 Jan 2025 00:00:00 GMT");
+    }
+
+    @Test
+    void contentHashIsSha256OfText() {
+        assertThat(PageIndexingUtils.contentHash(""))
+                .isEqualTo("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855");
+        assertThat(PageIndexingUtils.contentHash("дом")).isEqualTo(PageIndexingUtils.contentHash("дом"))
+                .isNotEqualTo(PageIndexingUtils.contentHash("дом "));
+    }
+
+    @AfterEach
+    void stopServer() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    /** Сервер отдаёт страницу с ETag {@code etag} и отвечает 304, если клиент прислал такой же. */
+    private String startServer(String etag) throws IOException {
+        HostScheduler.Permit permit = mock(HostScheduler.Permit.class);
+        when(hostScheduler.acquire(anyString())).thenReturn(permit);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+            String ifModifiedSince = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+            if (ifNoneMatch != null) {
+                conditionalHeaders.add("If-None-Match: " + ifNoneMatch);
+            }
+            if (ifModifiedSince != null) {
+                conditionalHeaders.add("If-Modified-Since: " + ifModifiedSince);
+            }
+            if (etag.equals(ifNoneMatch)) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            byte[] body = "<html><body>дом</body></html>".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "text/html; charset=utf-8");
+            exchange.getResponseHeaders().add("ETag", etag);
+            exchange.getResponseHeaders().add("Last-Modified", "Wed, 01 Jan 2025 00:00:00 GMT");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/page";
+    }
+
+    private static PageEntity known(String etag, String lastModified) {
+        PageEntity page = new PageEntity();
+        page.setId(7);
+        page.setPath("/page");
+        page.setEtag(etag);
+        page.setLastModified(lastModified);
+        return page;
+    }
+
+    private Object record(String call) {
+        calls.add(inTransaction ? "tx: " + call : call);
+        return null;
+    }
+
+    private static PageTerms terms() {
+        return new PageTerms(Map.of("дом", 1), Map.of());
+    }
+}
@@ -0,0 +1,84 @@
+package searchengine.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SimHashTest {
+
+    @ParameterizedTest(name = "{0} ^ {1} -> {2}")
+    @CsvSource(delimiter = '|', value = {
+            "0  | 0  | 0",
+            "0  | -1 | 64",
+            "5  | 6  | 2",
+            "-1 | 9223372036854775807 | 1",
+    })
+    void countsDifferingBits(long a, long b, int distance) {
+        assertThat(SimHash.distance(a, b)).isEqualTo(distance);
+        assertThat(SimHash.distance(b, a)).isEqualTo(distance);
+    }
+
+    @Test
+    void identicalTextsHaveIdenticalFingerprints() {
+        List<String> words = words(new Random(1), 300);
+        assertThat(of(words).value()).isEqualTo(of(new ArrayList<>(words)).value());
+        assertThat(of(words).tokens()).isEqualTo(300);
+    }
+
+    @Test
+    void smallEditKeepsFingerprintClose() {
+        Random random = new Random(2);
+        List<String> words = words(random, 500);
+        List<String> edited = new ArrayList<>(words);
+        edited.set(250, "опечатка");
+
+        assertThat(SimHash.distance(of(words).value(), of(edited).value())).isLessThanOrEqualTo(3);
+    }
+
+    @Test
+    void differentTextsAreFarApart() {
+        Random random = new Random(3);
+        long a = of(words(random, 500)).value();
+        long b = of(words(random, 500)).value();
+
+        assertThat(SimHash.distance(a, b)).isGreaterThan(16);
+    }
+
+    @Test
+    void wordOrderMatters() {
+        List<String> words = words(new Random(4), 200);
+        List<String> shuffled = new ArrayList<>(words);
+        Collections.shuffle(shuffled, new Random(5));
+
+        assertThat(SimHash.distance(of(words).value(), of(shuffled).value())).isGreaterThan(16);
+    }
+
+    @Test
+    void textShorterThanShingleHasEmptyFingerprint() {
+        assertThat(of(List.of("один", "два")).value()).isZero();
+    }
+
+    private static SimHash of(List<String> words) {
+        SimHash simHash = new SimHash();
+        for (int i = 0; i < words.size(); i++) {
+            char[] buffer = words.get(i).toCharArray();
+            simHash.accept(buffer, buffer.length, i);
+        }
+        return simHash;
+    }
+
+    private static List<String> words(Random random, int count) {
+        List<String> words = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            words.add("слово" + random.nextInt(1_000));
+        }
+        return words;
+    }
+}
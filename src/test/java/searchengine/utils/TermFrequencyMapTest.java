@@ -0,0 +1,79 @@
+package searchengine.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TermFrequencyMapTest {
+
+    @Test
+    void countsTermsFromBufferAndStringUnderSameKey() {
+        TermFrequencyMap map = new TermFrequencyMap();
+        char[] buffer = "котики".toCharArray();
+        map.add(buffer, 3);
+        map.add(buffer, 3, 2);
+        map.add("кот");
+        map.add(buffer, 6);
+
+        assertThat(map.get("кот")).isEqualTo(4);
+        assertThat(map.get("котики")).isEqualTo(1);
+        assertThat(map.get("ко")).isZero();
+        assertThat(map.size()).isEqualTo(2);
+        assertThat(map.toMap()).containsOnly(Map.entry("кот", 4), Map.entry("котики", 1));
+    }
+
+    @Test
+    void keepsCountsAcrossRehashes() {
+        TermFrequencyMap map = new TermFrequencyMap(1);
+        Map<String, Integer> expected = new HashMap<>();
+        Random random = new Random(11);
+        for (int i = 0; i < 50_000; i++) {
+            String term = "w" + random.nextInt(5_000);
+            expected.merge(term, 1, Integer::sum);
+            if (i % 2 == 0) {
+                map.add(term);
+            } else {
+                map.add(term.toCharArray(), term.length());
+            }
+        }
+
+        assertThat(map.toMap()).isEqualTo(expected);
+        assertThat(map.size()).isEqualTo(expected.size());
+    }
+
+    @Test
+    void tracksPositionsOfEachTermInOrder() {
+        TermFrequencyMap map = new TermFrequencyMap(1, true);
+        List<String> text = List.of("а", "б", "а", "в", "а", "а", "а", "б");
+        for (int position = 0; position < text.size(); position++) {
+            map.add(text.get(position), position);
+        }
+        for (int i = 0; i < 100; i++) {
+            map.add("шум" + i, 100 + i);
+        }
+
+        Map<String, int[]> positions = new HashMap<>();
+        map.forEachPositions((term, list, count) -> positions.put(term, Arrays.copyOf(list, count)));
+        assertThat(map.isTrackingPositions()).isTrue();
+        assertThat(positions.get("а")).containsExactly(0, 2, 4, 5, 6);
+        assertThat(positions.get("б")).containsExactly(1, 7);
+        assertThat(positions.get("шум42")).containsExactly(142);
+    }
+
+    @Test
+    void skipsPositionsWhenNotTracking() {
+        TermFrequencyMap map = new TermFrequencyMap();
+        map.add("а", 0);
+        map.forEachPositions((term, list, count) -> {
+            throw new AssertionError("позиции не хранятся");
+        });
+        assertThat(map.isTrackingPositions()).isFalse();
+        assertThat(map.get("а")).isEqualTo(1);
+    }
+}
@@ -0,0 +1,89 @@
+package searchengine.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import searchengine.config.CanonicalRules;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UrlCanonicalizerTest {
+
+    private final UrlCanonicalizer canonicalizer = UrlCanonicalizer.DEFAULT;
+
+    @ParameterizedTest(name = "{0} -> {1}")
+    @CsvSource(delimiter = '|', value = {
+            // порт по умолчанию
+            "http://site.ru:80/a|http://site.ru/a",
+            "https://site.ru:443/a|https://site.ru/a",
+            "https://site.ru:80/a|https://site.ru:80/a",
+            "http://site.ru:8080/a|http://site.ru:8080/a",
+            "HTTP://Site.RU:80/A|http://site.ru/A",
+            // сегменты . и ..
+            "https://site.ru/a/./b|https://site.ru/a/b",
+            "https://site.ru/a/b/../c|https://site.ru/a/c",
+            "https://site.ru/a/b/..|https://site.ru/a",
+            "https://site.ru/../../a|https://site.ru/a",
+            "https://site.ru/a/.|https://site.ru/a",
+            "https://site.ru/.hidden/x|https://site.ru/.hidden/x",
+            "https://site.ru/a/../index.html|https://site.ru",
+            // параметры запроса
+            "https://site.ru/p?b=2&a=1|https://site.ru/p?a=1&b=2",
+            "https://site.ru/p?a=2&a=1|https://site.ru/p?a=1&a=2",
+            "https://site.ru/p?utm_source=x&id=5&fbclid=y|https://site.ru/p?id=5",
+            "https://site.ru/p?utm_source=x|https://site.ru/p",
+            "https://site.ru?x=1|https://site.ru/?x=1",
+            "https://site.ru/p?|https://site.ru/p",
+            // фрагмент
+            "https://site.ru/p#top|https://site.ru/p",
+            "https://site.ru/p?b=1&a=2#frag|https://site.ru/p?a=2&b=1",
+            "https://site.ru/#|https://site.ru",
+            // www, индексный файл, завершающий слэш
+            "https://www.site.ru/a/|https://site.ru/a",
+            "https://site.ru/a/index.php|https://site.ru/a",
+            "https://site.ru/|https://site.ru",
+            "https://user@site.ru:443/a|https://user@site.ru/a",
+    })
+    void canonicalizesWithDefaultRules(String url, String expected) {
+        assertThat(canonicalizer.canonicalize(url)).isEqualTo(expected);
+    }
+
+    @Test
+    void returnsSameInstanceWhenAlreadyCanonical() {
+        String url = "https://site.ru/a?x=1";
+        assertThat(canonicalizer.canonicalize(url)).isSameAs(url);
+    }
+
+    @Test
+    void leavesRelativeAndEmptyUrlsAlone() {
+        assertThat(canonicalizer.canonicalize("/a/b#x")).isEqualTo("/a/b");
+        assertThat(canonicalizer.canonicalize("")).isEmpty();
+        assertThat(canonicalizer.canonicalize(null)).isNull();
+    }
+
+    @Test
+    void isIdempotent() {
+        for (String url : List.of("https://WWW.site.ru:443/a/./b/../c/index.html?z=1&utm_x=2&a=3#f",
+                "http://site.ru/?b&a", "https://site.ru/a/b/")) {
+            String once = canonicalizer.canonicalize(url);
+            assertThat(canonicalizer.canonicalize(once)).isEqualTo(once);
+        }
+    }
+
+    @Test
+    void appliesConfiguredTrailingSlashAndParamRules() {
+        CanonicalRules rules = new CanonicalRules();
+        rules.setTrailingSlash(CanonicalRules.TrailingSlash.ADD);
+        rules.setSortParams(false);
+        rules.setAllowParams(List.of("page", "q*"));
+        rules.setStripWww(false);
+        UrlCanonicalizer custom = new UrlCanonicalizer(rules);
+
+        assertThat(custom.canonicalize("https://www.site.ru/a?q=1&x=2&page=3"))
+                .isEqualTo("https://www.site.ru/a/?q=1&page=3");
+        assertThat(custom.canonicalize("https://site.ru/file.pdf")).isEqualTo("https://site.ru/file.pdf");
+        assertThat(custom.canonicalize("https://site.ru")).isEqualTo("https://site.ru/");
+    }
+}